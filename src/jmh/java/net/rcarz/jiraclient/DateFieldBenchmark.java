@@ -0,0 +1,71 @@
+package net.rcarz.jiraclient;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing and formatting dates and date-times. The <code>simpleDateFormat</code>
+ * benchmarks repeat the previous implementation, which built a
+ * SimpleDateFormat for every value, as the baseline for the shared
+ * formatters and the fast path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class DateFieldBenchmark {
+
+    /** offset shapes JIRA emits */
+    @Param({"2016-05-19T10:15:30.123+0000", "2016-05-19T10:15:30.123Z", "2016-05-19T10:15:30.123+02:00"})
+    String dateTime;
+
+    private final String date = "2016-05-19";
+    private final Date value = new Date(1463652930123L);
+
+    @Benchmark
+    public Date getDateTime() {
+        return Field.getDateTime(dateTime);
+    }
+
+    @Benchmark
+    public Date getDateTimeSimpleDateFormat() {
+        return new SimpleDateFormat(Field.DATETIME_FORMAT).parse(dateTime, new ParsePosition(0));
+    }
+
+    @Benchmark
+    public Date getDate() {
+        return Field.getDate(date);
+    }
+
+    @Benchmark
+    public Date getDateSimpleDateFormat() {
+        return new SimpleDateFormat(Field.DATE_FORMAT).parse(date, new ParsePosition(0));
+    }
+
+    @Benchmark
+    public String formatDateTime() {
+        return Field.formatDateTime(value);
+    }
+
+    @Benchmark
+    public String formatDateTimeSimpleDateFormat() {
+        return new SimpleDateFormat(Field.DATETIME_FORMAT).format(value);
+    }
+}
@@ -0,0 +1,74 @@
+package net.rcarz.jiraclient;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decoding resource arrays and encoding field values for writes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldBenchmark {
+
+    @Param({"10", "100"})
+    int arraySize;
+
+    private RestClient restclient;
+    private JSONArray versions;
+    private JSONObject editmeta;
+    private Map<String, Object> values;
+
+    @Setup
+    public void setUp() {
+        restclient = new RestClient(null, URI.create("https://jira.example.com"));
+        versions = Fixtures.versions(arraySize);
+        editmeta = Fixtures.editmeta();
+
+        values = new LinkedHashMap<String, Object>();
+        values.put(Field.SUMMARY, "Maintain company details");
+        values.put(Field.DESCRIPTION, "As an administrator I want to maintain the company details.");
+        values.put(Field.LABELS, Arrays.asList("backend", "customer", "q3"));
+        values.put(Field.COMPONENTS, Arrays.asList("Core", "UI"));
+        values.put(Field.FIX_VERSIONS, Arrays.asList("1.0", "1.1"));
+        values.put(Field.PRIORITY, "Major");
+        values.put(Field.ASSIGNEE, "jdoe");
+        values.put(Field.DUE_DATE, new Date(1700000000000L));
+        values.put("customfield_10010", 5);
+        values.put("customfield_10020", Field.valueById("10100"));
+    }
+
+    @Benchmark
+    public List<Version> getResourceArray() {
+        return Field.getResourceArray(Version.class, versions, restclient);
+    }
+
+    @Benchmark
+    public void toJson(Blackhole bh) throws JiraException {
+        for (Map.Entry<String, Object> ent : values.entrySet())
+            bh.consume(Field.toJson(ent.getKey(), ent.getValue(), editmeta));
+    }
+}
@@ -0,0 +1,119 @@
+package net.rcarz.jiraclient;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Payloads shaped like real JIRA responses for the benchmarks.
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Builds a search page of copies of the test issue with distinct ids
+     * and keys.
+     *
+     * @param size Number of issues on the page
+     *
+     * @return the page as JIRA returns it
+     */
+    public static JSONObject searchPage(int size) {
+        String template = Utils.getTestIssue().toString();
+        JSONArray issues = new JSONArray();
+
+        for (int i = 0; i < size; i++) {
+            JSONObject issue = new JSONObject(template);
+            issue.put("id", String.valueOf(10000 + i));
+            issue.put("key", "BENCH-" + (i + 1));
+            issues.put(issue);
+        }
+
+        return new JSONObject()
+            .put("startAt", 0)
+            .put("maxResults", size)
+            .put("total", size)
+            .put("issues", issues);
+    }
+
+    /**
+     * Builds a list of versions like the fixVersions of a busy project.
+     *
+     * @param size Number of versions
+     *
+     * @return the versions
+     */
+    public static JSONArray versions(int size) {
+        JSONArray versions = new JSONArray();
+
+        for (int i = 0; i < size; i++) {
+            versions.put(new JSONObject()
+                .put("self", "https://jira.example.com/rest/api/2/version/" + (10000 + i))
+                .put("id", String.valueOf(10000 + i))
+                .put("name", "1." + i)
+                .put("description", "Release 1." + i)
+                .put("archived", false)
+                .put("released", i % 2 == 0)
+                .put("releaseDate", "2024-01-15"));
+        }
+
+        return versions;
+    }
+
+    /**
+     * Builds the edit metadata of a typical issue screen.
+     */
+    public static JSONObject editmeta() {
+        return new JSONObject()
+            .put(Field.SUMMARY, meta("Summary", "string", null, "summary"))
+            .put(Field.DESCRIPTION, meta("Description", "string", null, "description"))
+            .put(Field.LABELS, meta("Labels", "array", "string", "labels"))
+            .put(Field.COMPONENTS, meta("Component/s", "array", "component", "components"))
+            .put(Field.FIX_VERSIONS, meta("Fix Version/s", "array", "version", "fixVersions"))
+            .put(Field.PRIORITY, meta("Priority", "priority", null, "priority"))
+            .put(Field.ASSIGNEE, meta("Assignee", "user", null, "assignee"))
+            .put(Field.DUE_DATE, meta("Due Date", "date", null, "duedate"))
+            .put("customfield_10010", meta("Story Points", "number", null, null))
+            .put("customfield_10020", meta("Team", "option", null, null));
+    }
+
+    private static JSONObject meta(String name, String type, String items, String system) {
+        JSONObject schema = new JSONObject().put("type", type);
+
+        if (items != null)
+            schema.put("items", items);
+        if (system != null)
+            schema.put("system", system);
+
+        return new JSONObject()
+            .put("required", false)
+            .put("name", name)
+            .put("schema", schema);
+    }
+
+    /**
+     * Builds a page of agile boards.
+     *
+     * @param size Number of boards
+     *
+     * @return the page as the agile API returns it
+     */
+    public static JSONObject boards(int size) {
+        JSONArray values = new JSONArray();
+
+        for (int i = 0; i < size; i++) {
+            values.put(new JSONObject()
+                .put("id", i + 1)
+                .put("self", "https://jira.example.com/rest/agile/1.0/board/" + (i + 1))
+                .put("name", "Board " + (i + 1))
+                .put("type", i % 2 == 0 ? "scrum" : "kanban"));
+        }
+
+        return new JSONObject()
+            .put("maxResults", size)
+            .put("startAt", 0)
+            .put("isLast", true)
+            .put("values", values);
+    }
+}
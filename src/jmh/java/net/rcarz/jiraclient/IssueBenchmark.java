@@ -0,0 +1,78 @@
+package net.rcarz.jiraclient;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Building issues from search pages, with eager and lazy field
+ * materialisation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IssueBenchmark {
+
+    @Param({"50", "500", "1000"})
+    int pageSize;
+
+    @Param({"false", "true"})
+    boolean lazy;
+
+    private RestClient restclient;
+    private String page;
+    private JSONArray issues;
+
+    @Setup
+    public void setUp() {
+        restclient = new RestClient(null, URI.create("https://jira.example.com"));
+        restclient.setLazyFields(lazy);
+
+        JSONObject json = Fixtures.searchPage(pageSize);
+        page = json.toString();
+        issues = json.getJSONArray("issues");
+    }
+
+    @Benchmark
+    public List<Issue> construct() {
+        return Field.getResourceArray(Issue.class, issues, restclient);
+    }
+
+    @Benchmark
+    public List<Issue> parseAndConstruct() {
+        JSONObject json = new JSONObject(page);
+        return Field.getResourceArray(Issue.class, json.get("issues"), restclient);
+    }
+
+    /**
+     * Reads the fields a typical report shows, which is where lazy
+     * materialisation pays for the skipped work.
+     */
+    @Benchmark
+    public void constructAndRead(Blackhole bh) {
+        for (Issue issue : Field.getResourceArray(Issue.class, issues, restclient)) {
+            bh.consume(issue.getKey());
+            bh.consume(issue.getSummary());
+            bh.consume(issue.getStatus());
+            bh.consume(issue.getAssignee());
+        }
+    }
+}
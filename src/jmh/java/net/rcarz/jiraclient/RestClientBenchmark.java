@@ -0,0 +1,69 @@
+package net.rcarz.jiraclient;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding a response body into JSON inside {@link RestClient}, without
+ * network I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestClientBenchmark {
+
+    /** Replays the same body from memory for every request. */
+    static class ReplayHttpClient extends StubHttpClient {
+        private final byte[] body;
+
+        ReplayHttpClient(byte[] body) {
+            this.body = body;
+        }
+
+        @Override
+        protected CloseableHttpResponse respond(HttpRequest req) {
+            CloseableHttpResponse resp = response(200, null, null, null);
+            resp.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+            return resp;
+        }
+    }
+
+    @Param({"50", "500"})
+    int pageSize;
+
+    private RestClient restclient;
+    private URI uri;
+
+    @Setup
+    public void setUp() {
+        byte[] body = Fixtures.searchPage(pageSize).toString().getBytes(StandardCharsets.UTF_8);
+        uri = URI.create("https://jira.example.com/rest/api/2/search");
+        restclient = new RestClient(new ReplayHttpClient(body), URI.create("https://jira.example.com"));
+    }
+
+    @Benchmark
+    public JSONObject decode() throws Exception {
+        return restclient.getMap(uri);
+    }
+}
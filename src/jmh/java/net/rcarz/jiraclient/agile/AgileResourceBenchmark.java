@@ -0,0 +1,50 @@
+package net.rcarz.jiraclient.agile;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.rcarz.jiraclient.Fixtures;
+import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.RestClient;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding pages of agile resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgileResourceBenchmark {
+
+    @Param({"50", "500"})
+    int pageSize;
+
+    private RestClient restclient;
+    private JSONObject page;
+
+    @Setup
+    public void setUp() {
+        restclient = new RestClient(null, URI.create("https://jira.example.com"));
+        page = Fixtures.boards(pageSize);
+    }
+
+    @Benchmark
+    public List<Board> getResourceArray() throws JiraException {
+        return AgileResource.getResourceArray(Board.class, page, restclient, "values");
+    }
+}
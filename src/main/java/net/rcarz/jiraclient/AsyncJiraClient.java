@@ -0,0 +1,250 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous view of a {@link JiraClient}.
+ *
+ * Every call is handed to an executor and its outcome is published through a
+ * {@link CompletableFuture}. Failures complete the future exceptionally with
+ * the original {@link JiraException}. The default executor is a shared pool
+ * of daemon threads, no larger than the default connections per route since
+ * more threads would only wait for a connection; pass your own executor to
+ * {@link JiraClient#async(Executor)} to change the bound or to run on virtual
+ * threads where the JVM has them.
+ */
+public class AsyncJiraClient {
+
+    /**
+     * A blocking JIRA operation.
+     *
+     * @param <T> result type
+     */
+    public interface Call<T> {
+        T call() throws JiraException;
+    }
+
+    private static volatile ExecutorService defaultExecutor = null;
+
+    private final JiraClient jira;
+    private final Executor executor;
+
+    /**
+     * Creates an asynchronous view of the given client.
+     *
+     * @param jira JIRA client to delegate to
+     * @param executor Executor to run blocking calls on
+     */
+    public AsyncJiraClient(JiraClient jira, Executor executor) {
+        if (jira == null || executor == null)
+            throw new NullPointerException();
+
+        this.jira = jira;
+        this.executor = executor;
+    }
+
+    /**
+     * Gets the shared executor used when none is given. The pool grows on
+     * demand up to the default connections per route, queues further calls
+     * and lets idle threads die after a minute.
+     */
+    static ExecutorService getDefaultExecutor() {
+        ExecutorService result = defaultExecutor;
+
+        if (result == null) {
+            synchronized (AsyncJiraClient.class) {
+                result = defaultExecutor;
+
+                if (result == null) {
+                    final AtomicInteger counter = new AtomicInteger();
+                    int threads = JiraClientConfig.defaults().getMaxConnectionsPerRoute();
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                        1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(),
+                        new ThreadFactory() {
+                            public Thread newThread(Runnable r) {
+                                Thread t = new Thread(r, "jira-async-" + counter.incrementAndGet());
+                                t.setDaemon(true);
+                                return t;
+                            }
+                        });
+                    pool.allowCoreThreadTimeOut(true);
+                    result = pool;
+                    defaultExecutor = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Runs an arbitrary blocking call asynchronously. Use this to lift
+     * operations on {@link Issue}, {@link net.rcarz.jiraclient.agile.AgileClient}
+     * or {@link net.rcarz.jiraclient.greenhopper.GreenHopperClient}.
+     *
+     * @param call Operation to run
+     *
+     * @return a future holding the result of the call
+     */
+    public <T> CompletableFuture<T> supply(final Call<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    if (future.isDone())
+                        return;
+
+                    try {
+                        future.complete(call.call());
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+
+        return future;
+    }
+
+    /**
+     * @see JiraClient#getIssue(String)
+     */
+    public CompletableFuture<Issue> getIssue(final String key) {
+        return supply(() -> jira.getIssue(key));
+    }
+
+    /**
+     * @see JiraClient#getIssue(String, String)
+     */
+    public CompletableFuture<Issue> getIssue(final String key, final String includedFields) {
+        return supply(() -> jira.getIssue(key, includedFields));
+    }
+
+    /**
+     * @see JiraClient#getIssue(String, String, String)
+     */
+    public CompletableFuture<Issue> getIssue(final String key, final String includedFields,
+            final String expand) {
+
+        return supply(() -> jira.getIssue(key, includedFields, expand));
+    }
+
+    /**
+     * @see JiraClient#countIssues(String)
+     */
+    public CompletableFuture<Integer> countIssues(final String jql) {
+        return supply(() -> jira.countIssues(jql));
+    }
+
+    /**
+     * @see JiraClient#searchIssues(String)
+     */
+    public CompletableFuture<Issue.SearchResult> searchIssues(final String jql) {
+        return searchIssues(jql, null, null, null, null);
+    }
+
+    /**
+     * @see JiraClient#searchIssues(String, String, Integer)
+     */
+    public CompletableFuture<Issue.SearchResult> searchIssues(final String jql,
+            final String includedFields, final Integer maxResults) {
+
+        return searchIssues(jql, includedFields, null, maxResults, null);
+    }
+
+    /**
+     * @see JiraClient#searchIssues(String, String, String, Integer, Integer)
+     */
+    public CompletableFuture<Issue.SearchResult> searchIssues(final String jql,
+            final String includedFields, final String expandFields,
+            final Integer maxResults, final Integer startAt) {
+
+        return supply(() -> jira.searchIssues(jql, includedFields, expandFields, maxResults, startAt));
+    }
+
+    /**
+     * @see JiraClient#getFilter(String)
+     */
+    public CompletableFuture<Filter> getFilter(final String id) {
+        return supply(() -> jira.getFilter(id));
+    }
+
+    /**
+     * @see JiraClient#getPriorities()
+     */
+    public CompletableFuture<List<Priority>> getPriorities() {
+        return supply(() -> jira.getPriorities());
+    }
+
+    /**
+     * @see JiraClient#getProjects()
+     */
+    public CompletableFuture<List<Project>> getProjects() {
+        return supply(() -> jira.getProjects());
+    }
+
+    /**
+     * @see JiraClient#getProject(String)
+     */
+    public CompletableFuture<Project> getProject(final String key) {
+        return supply(() -> jira.getProject(key));
+    }
+
+    /**
+     * @see JiraClient#getIssueTypes()
+     */
+    public CompletableFuture<List<IssueType>> getIssueTypes() {
+        return supply(() -> jira.getIssueTypes());
+    }
+
+    /**
+     * @see JiraClient#getComponent(String)
+     */
+    public CompletableFuture<Component> getComponent(final String id) {
+        return supply(() -> jira.getComponent(id));
+    }
+
+    /**
+     * @see JiraClient#getIssueChangeLog(Issue)
+     */
+    public CompletableFuture<List<IssueHistory>> getIssueChangeLog(final Issue issue) {
+        return supply(() -> jira.getIssueChangeLog(issue));
+    }
+
+    /**
+     * Gets the blocking client behind this view.
+     */
+    public JiraClient getJiraClient() {
+        return jira;
+    }
+}
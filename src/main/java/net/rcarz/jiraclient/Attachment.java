@@ -19,14 +19,25 @@
 
 package net.rcarz.jiraclient;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Date;
 import java.util.Map;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpGet;
 import org.json.JSONObject;
 
@@ -35,6 +46,10 @@ import org.json.JSONObject;
  */
 public class Attachment extends Resource {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+
     private User author = null;
     private String filename = null;
     private Date created = null;
@@ -102,25 +117,271 @@ public class Attachment extends Resource {
      * @throws JiraException when the download fails
      */
     public byte[] download() 
-    	throws JiraException{
-    	ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    	try{
-        	HttpGet get = new HttpGet(content);
-        	HttpResponse response = restclient.getHttpClient().execute(get);
-        	HttpEntity entity = response.getEntity();
-        	if (entity != null) {
-        	    InputStream inputStream = entity.getContent();
-        	    int next = inputStream.read();
-        	    while (next > -1) {
-        	        bos.write(next);
-        	        next = inputStream.read();
-        	    }
-        	    bos.flush();
-        	}
-    	}catch(IOException e){
-    		  throw new JiraException(String.format("Failed downloading attachment from %s: %s", this.content, e.getMessage()));
-    	}
-    	return bos.toByteArray();
+        throws JiraException {
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(size, 32));
+        download(bos);
+        return bos.toByteArray();
+    }
+
+    /**
+     * Streams the attachment content to the given stream. The stream is
+     * not closed.
+     *
+     * @param out Destination stream
+     *
+     * @return the number of bytes written
+     *
+     * @throws JiraException when the download fails
+     */
+    public long download(OutputStream out) throws JiraException {
+        InputStream in = openStream();
+
+        try {
+            byte[] buffer = new byte[size > 0 ? Math.min(size, BUFFER_SIZE) : BUFFER_SIZE];
+            long total = 0;
+            int n;
+
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+                total += n;
+            }
+
+            out.flush();
+            return total;
+        } catch (IOException e) {
+            throw new JiraException(String.format("Failed downloading attachment from %s: %s", this.content, e.getMessage()), e);
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Downloads the attachment to a file, replacing its content.
+     *
+     * @param target File to write
+     *
+     * @return the number of bytes written
+     *
+     * @throws JiraException when the download fails
+     */
+    public long download(Path target) throws JiraException {
+        return download(target, false);
+    }
+
+    /**
+     * Downloads the attachment to a file. When resuming, an existing
+     * shorter file is treated as a partial download and only the missing
+     * bytes are requested with an HTTP Range header. If the server ignores
+     * the range the file is rewritten from the start; if it reports that
+     * the file is already complete nothing is written.
+     *
+     * @param target File to write
+     * @param resume Whether to continue a partial download
+     *
+     * @return the number of bytes written by this call
+     *
+     * @throws JiraException when the download fails
+     */
+    public long download(Path target, boolean resume) throws JiraException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long offset = resume ? channel.size() : 0;
+
+            if (resume && size > 0 && offset >= size) {
+                channel.truncate(size);
+                return 0;
+            }
+
+            RangedStream in = openRange(offset);
+
+            try {
+                if (offset > 0 && !in.partial)
+                    offset = 0;
+
+                channel.truncate(offset);
+
+                ReadableByteChannel source = Channels.newChannel(in);
+                long position = offset;
+                long n;
+
+                while ((n = channel.transferFrom(source, position, TRANSFER_CHUNK)) > 0)
+                    position += n;
+
+                return position - offset;
+            } finally {
+                closeQuietly(in);
+            }
+        } catch (IOException e) {
+            throw new JiraException(String.format("Failed downloading attachment from %s: %s", this.content, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Opens a stream over the attachment content. Closing the stream
+     * releases the underlying connection, also when it was not fully read.
+     *
+     * @return the content stream
+     *
+     * @throws JiraException when the request fails
+     */
+    public InputStream openStream() throws JiraException {
+        return openStream(0);
+    }
+
+    /**
+     * Opens a stream over the attachment content starting at the given byte
+     * offset. The offset is requested with an HTTP Range header and skipped
+     * locally when the server ignores it.
+     *
+     * @param offset Number of leading bytes to skip
+     *
+     * @return the content stream
+     *
+     * @throws JiraException when the request fails
+     */
+    public InputStream openStream(long offset) throws JiraException {
+        RangedStream in = openRange(offset);
+
+        try {
+            if (offset > 0 && !in.partial) {
+                long skipped = 0;
+
+                while (skipped < offset) {
+                    long n = in.skip(offset - skipped);
+                    if (n <= 0 && in.read() == -1)
+                        break;
+                    skipped += Math.max(n, 1);
+                }
+            }
+
+            return in;
+        } catch (IOException e) {
+            closeQuietly(in);
+            throw new JiraException(String.format("Failed downloading attachment from %s: %s", this.content, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Requests the content from the given offset on. An offset at the end
+     * of the content yields an empty stream.
+     */
+    private RangedStream openRange(long offset) throws JiraException {
+        if (offset < 0)
+            throw new IllegalArgumentException("offset must not be negative");
+
+        HttpGet get = new HttpGet(content);
+
+        if (offset > 0)
+            get.addHeader(HttpHeaders.RANGE, "bytes=" + offset + "-");
+
+        try {
+            HttpResponse response = restclient.getStream(get);
+            return new RangedStream(get, response);
+        } catch (RestException e) {
+            if (offset > 0 && contentLength(e) == offset)
+                return new RangedStream(get);
+
+            get.abort();
+            throw new JiraException(String.format("Failed downloading attachment from %s: %s", this.content, e.getMessage()), e);
+        } catch (Exception e) {
+            get.abort();
+            throw new JiraException(String.format("Failed downloading attachment from %s: %s", this.content, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Gets the full length from a 416 answer's <code>Content-Range: bytes
+     * &#42;/length</code> header, or -1.
+     */
+    private static long contentLength(RestException e) {
+        if (e.getHttpStatusCode() != HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE || e.getHeaders() == null)
+            return -1;
+
+        for (Header header : e.getHeaders()) {
+            String value = header.getValue();
+
+            if (header.getName().equalsIgnoreCase(HttpHeaders.CONTENT_RANGE) && value != null) {
+                int slash = value.indexOf('/');
+                try {
+                    return Long.parseLong(value.substring(slash + 1).trim());
+                } catch (NumberFormatException ex) {
+                    return -1;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private static void closeQuietly(InputStream in) {
+        if (in == null)
+            return;
+
+        try {
+            in.close();
+        } catch (IOException ignore) {
+            /* connection already released */
+        }
+    }
+
+    /**
+     * Response body stream that releases the connection on close. An
+     * unfinished body is aborted instead of being drained, so closing early
+     * does not read the rest of a large file.
+     */
+    private static final class RangedStream extends FilterInputStream {
+        private final HttpGet get;
+        private final boolean partial;
+        private boolean eof = false;
+
+        RangedStream(HttpGet get, HttpResponse response) throws IOException {
+            super(content(response.getEntity()));
+            this.get = get;
+            this.partial = response.getStatusLine().getStatusCode() == HttpStatus.SC_PARTIAL_CONTENT;
+        }
+
+        /**
+         * An empty range past the end of the content.
+         */
+        RangedStream(HttpGet get) {
+            super(new ByteArrayInputStream(new byte[0]));
+            this.get = get;
+            this.partial = true;
+            this.eof = true;
+        }
+
+        private static InputStream content(HttpEntity entity) throws IOException {
+            InputStream in = entity != null ? entity.getContent() : null;
+            return in != null ? in : new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1)
+                eof = true;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n == -1)
+                eof = true;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!eof)
+                get.abort();
+
+            try {
+                super.close();
+            } finally {
+                get.releaseConnection();
+            }
+        }
     }
 
     @Override
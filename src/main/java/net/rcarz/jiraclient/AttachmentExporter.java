@@ -0,0 +1,309 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mirrors the attachments of many issues into a local directory.
+ *
+ * Each attachment is stored as
+ * <code>&lt;target&gt;/&lt;issue key&gt;/&lt;attachment id&gt;_&lt;file name&gt;</code>.
+ * A file that already has the attachment's size is skipped, and a shorter
+ * one is resumed with an HTTP Range request, so an interrupted export can
+ * simply be run again. Attachments are deduplicated by id and size within a
+ * run. Downloads run on a fixed pool of worker threads; issue pages are only
+ * fetched as fast as the workers keep up.
+ */
+public class AttachmentExporter {
+
+    /**
+     * What happened to one attachment.
+     */
+    public enum Outcome {
+        DOWNLOADED, RESUMED, SKIPPED, FAILED
+    }
+
+    /**
+     * Receives per-attachment outcomes. Called from worker threads; a
+     * RuntimeException thrown here is recorded as a failure of the
+     * attachment.
+     */
+    public interface Listener {
+        void exported(Issue issue, Attachment attachment, Outcome outcome, Path file, JiraException error);
+    }
+
+    /**
+     * Totals of an export run.
+     */
+    public static class Report {
+        private final AtomicLong issues = new AtomicLong();
+        private final AtomicLong attachments = new AtomicLong();
+        private final AtomicLong downloaded = new AtomicLong();
+        private final AtomicLong resumed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final Map<String, JiraException> failures =
+            Collections.synchronizedMap(new LinkedHashMap<String, JiraException>());
+        private long elapsedNanos = 0;
+
+        /** Number of issues scanned */
+        public long getIssueCount() {
+            return issues.get();
+        }
+
+        /** Number of distinct attachments found */
+        public long getAttachmentCount() {
+            return attachments.get();
+        }
+
+        /** Number of attachments downloaded from scratch */
+        public long getDownloadedCount() {
+            return downloaded.get();
+        }
+
+        /** Number of partial files completed */
+        public long getResumedCount() {
+            return resumed.get();
+        }
+
+        /** Number of attachments already present */
+        public long getSkippedCount() {
+            return skipped.get();
+        }
+
+        /** Failed attachments by attachment id */
+        public Map<String, JiraException> getFailures() {
+            return failures;
+        }
+
+        /** Bytes transferred */
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        /** Wall clock time of the run in milliseconds */
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /** Transfer rate over the whole run */
+        public double getBytesPerSecond() {
+            return elapsedNanos > 0 ? bytes.get() * 1e9 / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d issues, %d attachments: %d downloaded, %d resumed, " +
+                "%d skipped, %d failed; %d bytes in %d ms (%.1f KiB/s)",
+                getIssueCount(), getAttachmentCount(), getDownloadedCount(), getResumedCount(),
+                getSkippedCount(), failures.size(), getBytes(), getElapsedMillis(),
+                getBytesPerSecond() / 1024);
+        }
+    }
+
+    private final JiraClient jira;
+    private final Path target;
+    private int parallelism = 4;
+    private Listener listener = null;
+
+    /**
+     * Creates an exporter.
+     *
+     * @param jira JIRA client
+     * @param target Directory to mirror into; created when missing
+     */
+    public AttachmentExporter(JiraClient jira, Path target) {
+        if (jira == null || target == null)
+            throw new NullPointerException();
+
+        this.jira = jira;
+        this.target = target;
+    }
+
+    /**
+     * Sets the number of concurrent downloads. Defaults to four.
+     *
+     * @param parallelism Number of worker threads
+     *
+     * @return the current exporter instance
+     */
+    public AttachmentExporter parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the listener notified for every attachment.
+     *
+     * @param listener Listener or null
+     *
+     * @return the current exporter instance
+     */
+    public AttachmentExporter listener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Exports the attachments of all issues matching a query.
+     *
+     * @param jql JQL statement
+     *
+     * @return the totals of the run
+     *
+     * @throws JiraException when the search fails or the run is interrupted
+     */
+    public Report export(String jql) throws JiraException {
+        return export(jira.searchIssues(jql, Field.ATTACHMENT));
+    }
+
+    /**
+     * Exports the attachments of all issues of a search result, following
+     * its further pages. The search must include the attachment field.
+     *
+     * @param result Search result
+     *
+     * @return the totals of the run
+     *
+     * @throws JiraException when the run is interrupted
+     */
+    public Report export(Issue.SearchResult result) throws JiraException {
+        return export(result.iterator());
+    }
+
+    /**
+     * Exports the attachments of the given issues.
+     *
+     * @param issues Issues to export
+     *
+     * @return the totals of the run
+     *
+     * @throws JiraException when the run is interrupted
+     */
+    public Report export(final Iterator<Issue> issues) throws JiraException {
+        final Report report = new Report();
+        final Set<String> seen = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        long start = System.nanoTime();
+
+        try {
+            Files.createDirectories(target);
+        } catch (IOException ex) {
+            throw new JiraException("Failed to create " + target, ex);
+        }
+
+        try {
+            WorkerPool.run(parallelism, "exporting attachments", pool -> {
+                while (issues.hasNext()) {
+                    final Issue issue = issues.next();
+                    report.issues.incrementAndGet();
+
+                    if (issue.getAttachments() == null)
+                        continue;
+
+                    for (final Attachment attachment : issue.getAttachments()) {
+                        if (!seen.add(attachment.getId() + ":" + attachment.getSize()))
+                            continue;
+
+                        report.attachments.incrementAndGet();
+                        pool.execute(() -> exportOne(issue, attachment, report));
+                    }
+                }
+            });
+        } finally {
+            report.elapsedNanos = System.nanoTime() - start;
+        }
+
+        return report;
+    }
+
+    private void exportOne(Issue issue, Attachment attachment, Report report) {
+        Path file = null;
+        Outcome outcome = null;
+        JiraException error = null;
+
+        try {
+            file = target.resolve(sanitize(issue.getKey()))
+                .resolve(sanitize(attachment.getId() + "_" + attachment.getFileName()));
+            Files.createDirectories(file.getParent());
+            long existing = Files.exists(file) ? Files.size(file) : -1;
+
+            if (existing == attachment.getSize()) {
+                outcome = Outcome.SKIPPED;
+                report.skipped.incrementAndGet();
+            } else if (existing > 0 && existing < attachment.getSize()) {
+                report.bytes.addAndGet(attachment.download(file, true));
+                outcome = Outcome.RESUMED;
+                report.resumed.incrementAndGet();
+            } else {
+                report.bytes.addAndGet(attachment.download(file, false));
+                outcome = Outcome.DOWNLOADED;
+                report.downloaded.incrementAndGet();
+            }
+        } catch (JiraException ex) {
+            error = ex;
+        } catch (IOException ex) {
+            error = new JiraException("Failed to write " + file, ex);
+        } catch (RuntimeException ex) {
+            error = new JiraException("Failed to export attachment " + attachment.getId(), ex);
+        }
+
+        if (error != null) {
+            outcome = Outcome.FAILED;
+            report.failures.put(attachment.getId(), error);
+        }
+
+        if (listener == null)
+            return;
+
+        try {
+            listener.exported(issue, attachment, outcome, file, error);
+        } catch (RuntimeException ex) {
+            if (error == null)
+                report.failures.put(attachment.getId(),
+                    new JiraException("Listener failed for attachment " + attachment.getId(), ex));
+        }
+    }
+
+    /**
+     * Makes a name safe to use as a single path element.
+     */
+    static String sanitize(String name) {
+        String safe = name == null ? "" : name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_");
+
+        if (safe.isEmpty() || safe.equals(".") || safe.equals(".."))
+            safe = "_" + safe;
+
+        return safe;
+    }
+}
@@ -0,0 +1,439 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+import org.apache.http.entity.mime.content.ContentBody;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Uploads attachments to an issue.
+ *
+ * File contents are streamed into the multipart request body as it is
+ * written, so nothing is buffered in memory beyond what the caller already
+ * holds. Files are grouped into requests of {@link #filesPerRequest(int)}
+ * files each, and up to {@link #parallelism(int)} requests run at once.
+ * Every file gets its own {@link Result}.
+ */
+public class AttachmentUpload {
+
+    /**
+     * Receives upload progress. Callbacks may arrive concurrently from
+     * several upload threads.
+     */
+    public interface Listener {
+        /**
+         * Called as the bytes of a file are written to the connection, every
+         * 64 KiB and once the whole file is written.
+         *
+         * @param file File being sent
+         * @param sent Bytes of the file sent so far
+         * @param total Size of the file or -1 when unknown
+         */
+        void progress(Issue.NewAttachment file, long sent, long total);
+
+        /**
+         * Called once the outcome of a file is known.
+         *
+         * @param result Upload result
+         */
+        default void completed(Result result) {
+        }
+    }
+
+    /**
+     * Outcome of one file.
+     */
+    public static class Result {
+        private final Issue.NewAttachment file;
+        private final Attachment attachment;
+        private final JiraException error;
+
+        Result(Issue.NewAttachment file, Attachment attachment, JiraException error) {
+            this.file = file;
+            this.attachment = attachment;
+            this.error = error;
+        }
+
+        public Issue.NewAttachment getFile() {
+            return file;
+        }
+
+        /**
+         * Gets the created attachment, or null when the upload failed.
+         */
+        public Attachment getAttachment() {
+            return attachment;
+        }
+
+        /**
+         * Gets the failure, or null when the upload succeeded.
+         */
+        public JiraException getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    private final RestClient restclient;
+    private final String path;
+    private final List<Issue.NewAttachment> files = new ArrayList<Issue.NewAttachment>();
+    private int filesPerRequest = 1;
+    private int parallelism = 4;
+    private int retries = 0;
+    private ExecutorService executor = null;
+    private Listener listener = null;
+
+    AttachmentUpload(RestClient restclient, String path) {
+        this.restclient = restclient;
+        this.path = path;
+    }
+
+    /**
+     * Queues files for upload.
+     *
+     * @param attachments Files to upload
+     *
+     * @return the current upload instance
+     */
+    public AttachmentUpload add(Issue.NewAttachment... attachments) {
+        files.addAll(Arrays.asList(attachments));
+        return this;
+    }
+
+    /**
+     * Sets how many files are sent in one request. Defaults to one, which
+     * lets each file fail and be retried on its own.
+     *
+     * @param count Files per request
+     *
+     * @return the current upload instance
+     */
+    public AttachmentUpload filesPerRequest(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("count must be at least 1");
+
+        this.filesPerRequest = count;
+        return this;
+    }
+
+    /**
+     * Sets how many requests may run at once. Defaults to four.
+     *
+     * @param parallelism Maximum concurrent requests
+     *
+     * @return the current upload instance
+     */
+    public AttachmentUpload parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets how often a failed request is retried. An upload is not
+     * idempotent, and one that failed after it reached the server may still
+     * have created the attachments, so only failures where JIRA cannot have
+     * processed the request are retried: the connection could not be opened
+     * or the server answered 503 Service Unavailable. Requests with stream
+     * content are never retried since the stream cannot be read twice.
+     *
+     * @param retries Number of retries
+     *
+     * @return the current upload instance
+     */
+    public AttachmentUpload retries(int retries) {
+        if (retries < 0)
+            throw new IllegalArgumentException("retries must not be negative");
+
+        this.retries = retries;
+        return this;
+    }
+
+    /**
+     * Sets the executor running the requests. Defaults to the shared
+     * executor of {@link AsyncJiraClient}.
+     *
+     * @param executor Executor to use
+     *
+     * @return the current upload instance
+     */
+    public AttachmentUpload executor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Sets the progress listener.
+     *
+     * @param listener Listener or null
+     *
+     * @return the current upload instance
+     */
+    public AttachmentUpload listener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Uploads all queued files. Failures are reported per file.
+     *
+     * @return one result per file in the order they were added
+     *
+     * @throws JiraException when interrupted
+     */
+    public List<Result> execute() throws JiraException {
+        final List<List<Issue.NewAttachment>> batches = new ArrayList<List<Issue.NewAttachment>>();
+        for (int i = 0; i < files.size(); i += filesPerRequest)
+            batches.add(files.subList(i, Math.min(files.size(), i + filesPerRequest)));
+
+        final Result[] results = new Result[files.size()];
+
+        if (batches.size() == 1) {
+            send(batches.get(0), 0, results);
+            return Arrays.asList(results);
+        }
+
+        ExecutorService exec = executor != null ? executor : AsyncJiraClient.getDefaultExecutor();
+        final AtomicInteger next = new AtomicInteger();
+        Callable<Void> worker = new Callable<Void>() {
+            public Void call() {
+                int b;
+                while ((b = next.getAndIncrement()) < batches.size())
+                    send(batches.get(b), b * filesPerRequest, results);
+                return null;
+            }
+        };
+
+        try {
+            WorkerPool.share(exec, Math.min(parallelism, batches.size()), worker);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while uploading attachments", ex);
+        } catch (ExecutionException ex) {
+            throw new JiraException("Failed to upload attachments", ex.getCause());
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Sends one request and records the result of each of its files.
+     */
+    private void send(List<Issue.NewAttachment> batch, int offset, Result[] results) {
+        boolean repeatable = true;
+        for (Issue.NewAttachment file : batch)
+            repeatable &= file.isRepeatable();
+
+        Object response = null;
+        JiraException error = null;
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                MultipartEntityBuilder builder = MultipartEntityBuilder.create();
+                for (Issue.NewAttachment file : batch)
+                    builder.addPart("file", new ProgressBody(file, file.toBody(), listener));
+
+                response = restclient.postEntity(path, builder.build());
+                error = null;
+                break;
+            } catch (RestException ex) {
+                error = new JiraException("Failed to upload attachments to " + path, ex);
+                if (ex.getHttpStatusCode() != HttpStatus.SC_SERVICE_UNAVAILABLE)
+                    break;
+            } catch (IOException ex) {
+                error = new JiraException("Failed to upload attachments to " + path, ex);
+                if (!notSent(ex))
+                    break;
+            } catch (Exception ex) {
+                error = new JiraException("Failed to upload attachments to " + path, ex);
+                break;
+            }
+
+            if (!repeatable || attempt >= retries)
+                break;
+        }
+
+        JSONArray created = response instanceof JSONArray ? (JSONArray) response : null;
+
+        for (int i = 0; i < batch.size(); i++) {
+            Attachment attachment = null;
+
+            if (error == null && created != null && i < created.length()) {
+                Object json = created.opt(i);
+                if (json instanceof JSONObject)
+                    attachment = new Attachment(restclient, (JSONObject) json);
+            }
+
+            Result result = new Result(batch.get(i), attachment, error);
+            results[offset + i] = result;
+
+            if (listener != null)
+                listener.completed(result);
+        }
+    }
+
+    /**
+     * Tells whether the request failed before any of it reached the server.
+     */
+    private static boolean notSent(IOException ex) {
+        return ex instanceof ConnectException ||
+               ex instanceof ConnectTimeoutException ||
+               ex instanceof UnknownHostException;
+    }
+
+    /* bytes written between two progress callbacks */
+    static final int PROGRESS_INTERVAL = 64 * 1024;
+
+    /**
+     * Content body that reports the bytes written for its file, at most once
+     * per {@link #PROGRESS_INTERVAL} bytes and once when the file is done.
+     */
+    static final class ProgressBody extends AbstractContentBody {
+        private final Issue.NewAttachment file;
+        private final ContentBody delegate;
+        private final Listener listener;
+
+        ProgressBody(Issue.NewAttachment file, ContentBody delegate, Listener listener) {
+            super(contentType(delegate));
+            this.file = file;
+            this.delegate = delegate;
+            this.listener = listener;
+        }
+
+        /**
+         * Keeps the charset and parameters of the wrapped body's type.
+         */
+        private static ContentType contentType(ContentBody body) {
+            if (body instanceof AbstractContentBody)
+                return ((AbstractContentBody) body).getContentType();
+
+            return ContentType.create(body.getMimeType(), body.getCharset());
+        }
+
+        @Override
+        public String getMimeType() {
+            return delegate.getMimeType();
+        }
+
+        @Override
+        public String getMediaType() {
+            return delegate.getMediaType();
+        }
+
+        @Override
+        public String getSubType() {
+            return delegate.getSubType();
+        }
+
+        @Override
+        public String getCharset() {
+            return delegate.getCharset();
+        }
+
+        public String getFilename() {
+            return delegate.getFilename();
+        }
+
+        public String getTransferEncoding() {
+            return delegate.getTransferEncoding();
+        }
+
+        public long getContentLength() {
+            return delegate.getContentLength();
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            if (listener == null) {
+                delegate.writeTo(out);
+                return;
+            }
+
+            final long total = delegate.getContentLength();
+            listener.progress(file, 0, total);
+
+            ProgressStream progress = new ProgressStream(out, total);
+            delegate.writeTo(progress);
+            progress.finish();
+        }
+
+        private final class ProgressStream extends FilterOutputStream {
+            private final long total;
+            private long sent = 0;
+            private long reported = 0;
+
+            ProgressStream(OutputStream out, long total) {
+                super(out);
+                this.total = total;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                sent(1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                sent(len);
+            }
+
+            private void sent(int len) {
+                sent += len;
+                if (sent - reported >= PROGRESS_INTERVAL)
+                    report();
+            }
+
+            void finish() {
+                if (sent != reported)
+                    report();
+            }
+
+            private void report() {
+                reported = sent;
+                listener.progress(file, sent, total);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONObject;
+
+/**
+ * Moves many issues through the same transition.
+ *
+ * The transitions are fetched once per project, issue type and status and
+ * reused for every issue of that combination, so each issue costs a single
+ * POST instead of a GET and a POST. The client's {@link MetadataCache} is
+ * used when one is installed, otherwise a cache that lives for the run.
+ * An issue that the cached list does not fit, e.g. because a condition
+ * hides or shows a transition for it, falls back to its own transitions.
+ * The POSTs run on a fixed pool of worker threads; issue pages are only
+ * fetched as fast as the workers keep up. A failed issue is recorded and
+ * the run goes on.
+ */
+public class BulkTransition {
+
+    /**
+     * Totals of a transition run. Counters are live while the run is going.
+     */
+    public static class Report {
+        private final AtomicLong issues = new AtomicLong();
+        private final AtomicLong transitioned = new AtomicLong();
+        private final AtomicLong lookups = new AtomicLong();
+        private final AtomicLong cacheMisses = new AtomicLong();
+        private final AtomicLong transitionRequests = new AtomicLong();
+        private final Map<String, JiraException> failures =
+            Collections.synchronizedMap(new LinkedHashMap<String, JiraException>());
+        private final long start = System.nanoTime();
+        private volatile long end = 0;
+
+        /** Number of issues submitted */
+        public long getIssueCount() {
+            return issues.get();
+        }
+
+        /** Number of issues transitioned */
+        public long getTransitionedCount() {
+            return transitioned.get();
+        }
+
+        /** Number of requests made to list the transitions of an issue */
+        public long getTransitionRequestCount() {
+            return transitionRequests.get();
+        }
+
+        /** Number of issues whose transitions were found in the cache */
+        public long getCacheHitCount() {
+            return lookups.get() - cacheMisses.get();
+        }
+
+        /** Failed issues by issue key */
+        public Map<String, JiraException> getFailures() {
+            return failures;
+        }
+
+        /** Wall clock time of the run so far in milliseconds */
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis((end != 0 ? end : System.nanoTime()) - start);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d issues: %d transitioned, %d failed, %d transition requests, " +
+                "%d cache hits; %d ms",
+                getIssueCount(), getTransitionedCount(), failures.size(),
+                getTransitionRequestCount(), getCacheHitCount(), getElapsedMillis());
+        }
+    }
+
+    private final JiraClient jira;
+    private final String name;
+    private final Map<String, Object> fields = new LinkedHashMap<String, Object>();
+    private int parallelism = 4;
+
+    /**
+     * Creates a bulk transition.
+     *
+     * @param jira JIRA client
+     * @param name Transition name, e.g. "Done"
+     */
+    public BulkTransition(JiraClient jira, String name) {
+        if (jira == null || name == null)
+            throw new NullPointerException();
+
+        this.jira = jira;
+        this.name = name;
+    }
+
+    /**
+     * Sets a field on the transition screen of every issue.
+     *
+     * @param name Name of the field
+     * @param value New field value
+     *
+     * @return the current bulk transition instance
+     */
+    public BulkTransition field(String name, Object value) {
+        fields.put(name, value);
+        return this;
+    }
+
+    /**
+     * Sets the number of concurrent transitions. Defaults to four.
+     *
+     * @param parallelism Number of worker threads
+     *
+     * @return the current bulk transition instance
+     */
+    public BulkTransition parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Transitions all issues matching a query. Only the project, issue type
+     * and status are fetched.
+     *
+     * @param jql JQL statement
+     *
+     * @return the totals of the run
+     *
+     * @throws JiraException when the search fails or the run is interrupted
+     */
+    public Report execute(String jql) throws JiraException {
+        return execute(jira.searchIssues(jql,
+            Field.PROJECT + "," + Field.ISSUE_TYPE + "," + Field.STATUS).iterator());
+    }
+
+    /**
+     * Transitions the given issues. Issues without project, issue type or
+     * status fetch their own transitions.
+     *
+     * @param issues Issues to transition
+     *
+     * @return the totals of the run
+     *
+     * @throws JiraException when the run is interrupted
+     */
+    public Report execute(final Iterator<Issue> issues) throws JiraException {
+        MetadataCache installed = jira.getRestClient().getMetadataCache();
+        final MetadataCache cache = installed != null ? installed : new MetadataCache(1, TimeUnit.HOURS);
+        final Report report = new Report();
+
+        try {
+            WorkerPool.run(parallelism, "transitioning issues", pool -> {
+                while (issues.hasNext()) {
+                    final Issue issue = issues.next();
+                    report.issues.incrementAndGet();
+                    pool.execute(() -> transitionOne(issue, cache, report));
+                }
+            });
+        } finally {
+            report.end = System.nanoTime();
+        }
+
+        return report;
+    }
+
+    private void transitionOne(final Issue issue, MetadataCache cache, final Report report) {
+        Issue.FluentTransition transition = null;
+
+        try {
+            String key = issue.transitionKey();
+            report.lookups.incrementAndGet();
+
+            JSONObject transitions;
+            if (key == null) {
+                report.cacheMisses.incrementAndGet();
+                report.transitionRequests.incrementAndGet();
+                transitions = issue.fetchTransitionsJson();
+            } else {
+                transitions = cache.get(key, () -> {
+                    report.cacheMisses.incrementAndGet();
+                    report.transitionRequests.incrementAndGet();
+                    return issue.fetchTransitionsJson();
+                });
+            }
+
+            transition = issue.transition(transitions, cache);
+
+            for (Map.Entry<String, Object> ent : fields.entrySet())
+                transition.field(ent.getKey(), ent.getValue());
+
+            transition.execute(name);
+            report.transitioned.incrementAndGet();
+        } catch (JiraException ex) {
+            report.failures.put(issue.getKey(), ex);
+        } catch (RuntimeException ex) {
+            report.failures.put(issue.getKey(),
+                new JiraException("Failed to transition issue " + issue.getKey(), ex));
+        } finally {
+            if (transition != null)
+                report.transitionRequests.addAndGet(transition.fetches);
+        }
+    }
+}
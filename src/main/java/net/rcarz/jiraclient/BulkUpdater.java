@@ -0,0 +1,360 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONObject;
+
+/**
+ * Applies the same kind of update to many issues.
+ *
+ * Edit metadata is fetched once per project and issue type and reused for
+ * every issue of that combination, so each issue costs a single PUT instead
+ * of a GET and a PUT. The client's {@link MetadataCache} is used when one is
+ * installed, otherwise a cache that lives for the run. Issues whose project
+ * or issue type is unknown fetch their own metadata. The PUTs run on a fixed
+ * pool of worker threads; issue pages are only fetched as fast as the
+ * workers keep up. A failed issue is recorded and the run goes on.
+ *
+ * Edit metadata may differ between issues of one project and issue type
+ * when field configurations depend on the workflow status. Updates that
+ * touch such fields should use {@link Issue#update()} instead.
+ */
+public class BulkUpdater {
+
+    /**
+     * Fills in the update of one issue. Called from worker threads.
+     */
+    public interface Edit {
+        void apply(Issue issue, Issue.FluentUpdate update) throws JiraException;
+    }
+
+    /**
+     * Receives per-issue outcomes. Called from worker threads.
+     */
+    public interface Listener {
+        /**
+         * @param issue Issue that was updated
+         * @param error Failure or null when the update succeeded
+         * @param progress Totals of the run so far
+         */
+        void updated(Issue issue, JiraException error, Report progress);
+    }
+
+    /**
+     * Totals of an update run. Counters are live while the run is going.
+     */
+    public static class Report {
+        private final AtomicLong issues = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong metadataRequests = new AtomicLong();
+        private final Map<String, JiraException> failures =
+            Collections.synchronizedMap(new LinkedHashMap<String, JiraException>());
+        private final long start = System.nanoTime();
+        private volatile long end = 0;
+
+        /** Number of issues submitted */
+        public long getIssueCount() {
+            return issues.get();
+        }
+
+        /** Number of issues updated */
+        public long getUpdatedCount() {
+            return updated.get();
+        }
+
+        /** Number of edit metadata requests made */
+        public long getMetadataRequestCount() {
+            return metadataRequests.get();
+        }
+
+        /** Failed issues by issue key */
+        public Map<String, JiraException> getFailures() {
+            return failures;
+        }
+
+        /** Wall clock time of the run so far in milliseconds */
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis((end != 0 ? end : System.nanoTime()) - start);
+        }
+
+        /** Updated issues per second over the run so far */
+        public double getIssuesPerSecond() {
+            long nanos = (end != 0 ? end : System.nanoTime()) - start;
+            return nanos > 0 ? updated.get() * 1e9 / nanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d issues: %d updated, %d failed, %d metadata requests; " +
+                "%d ms (%.1f issues/s)",
+                getIssueCount(), getUpdatedCount(), failures.size(), getMetadataRequestCount(),
+                getElapsedMillis(), getIssuesPerSecond());
+        }
+    }
+
+    private final JiraClient jira;
+    private final List<Edit> edits = new ArrayList<Edit>();
+    private int parallelism = 4;
+    private Listener listener = null;
+
+    /**
+     * Creates an updater.
+     *
+     * @param jira JIRA client
+     */
+    public BulkUpdater(JiraClient jira) {
+        if (jira == null)
+            throw new NullPointerException();
+
+        this.jira = jira;
+    }
+
+    /**
+     * Sets a field to the same value on every issue.
+     *
+     * @param name Name of the field
+     * @param value New field value
+     *
+     * @return the current updater instance
+     */
+    public BulkUpdater field(final String name, final Object value) {
+        return edit(new Edit() {
+            public void apply(Issue issue, Issue.FluentUpdate update) {
+                update.field(name, value);
+            }
+        });
+    }
+
+    /**
+     * Adds a value to a field of every issue.
+     *
+     * @param name Name of the field
+     * @param value Field value to append
+     *
+     * @return the current updater instance
+     */
+    public BulkUpdater fieldAdd(final String name, final Object value) {
+        return edit(new Edit() {
+            public void apply(Issue issue, Issue.FluentUpdate update) {
+                update.fieldAdd(name, value);
+            }
+        });
+    }
+
+    /**
+     * Removes a value from a field of every issue.
+     *
+     * @param name Name of the field
+     * @param value Field value to remove
+     *
+     * @return the current updater instance
+     */
+    public BulkUpdater fieldRemove(final String name, final Object value) {
+        return edit(new Edit() {
+            public void apply(Issue issue, Issue.FluentUpdate update) {
+                update.fieldRemove(name, value);
+            }
+        });
+    }
+
+    /**
+     * Adds an update that depends on the issue.
+     *
+     * @param edit Callback filling in the update
+     *
+     * @return the current updater instance
+     */
+    public BulkUpdater edit(Edit edit) {
+        if (edit == null)
+            throw new NullPointerException();
+
+        edits.add(edit);
+        return this;
+    }
+
+    /**
+     * Sets the number of concurrent updates. Defaults to four.
+     *
+     * @param parallelism Number of worker threads
+     *
+     * @return the current updater instance
+     */
+    public BulkUpdater parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the listener notified for every issue.
+     *
+     * @param listener Listener or null
+     *
+     * @return the current updater instance
+     */
+    public BulkUpdater listener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Updates all issues matching a query. Only the project and issue type
+     * are fetched; use {@link #execute(Issue.SearchResult)} when the edits
+     * read other fields.
+     *
+     * @param jql JQL statement
+     *
+     * @return the totals of the run
+     *
+     * @throws JiraException when the search fails or the run is interrupted
+     */
+    public Report execute(String jql) throws JiraException {
+        return execute(jira.searchIssues(jql, Field.PROJECT + "," + Field.ISSUE_TYPE));
+    }
+
+    /**
+     * Updates all issues of a search result, following its further pages.
+     *
+     * @param result Search result
+     *
+     * @return the totals of the run
+     *
+     * @throws JiraException when the run is interrupted
+     */
+    public Report execute(Issue.SearchResult result) throws JiraException {
+        return execute(result.iterator());
+    }
+
+    /**
+     * Updates the given issues.
+     *
+     * @param issues Issues to update
+     *
+     * @return the totals of the run
+     *
+     * @throws JiraException when no update was given or the run is interrupted
+     */
+    public Report execute(Iterator<Issue> issues) throws JiraException {
+        if (edits.isEmpty())
+            throw new JiraException("No fields were given for update");
+
+        MetadataCache installed = jira.getRestClient().getMetadataCache();
+        final MetadataCache cache = installed != null ? installed : new MetadataCache(1, TimeUnit.HOURS);
+
+        return forEach(issues, parallelism, listener, new Task() {
+            public void run(Issue issue, Report report) throws JiraException {
+                Issue.FluentUpdate update = issue.update(editMetadata(issue, cache, report), cache);
+
+                for (Edit edit : edits)
+                    edit.apply(issue, update);
+
+                update.execute();
+            }
+        });
+    }
+
+    /**
+     * Work done for one issue.
+     */
+    interface Task {
+        void run(Issue issue, Report report) throws JiraException;
+    }
+
+    /**
+     * Runs a task for every issue on a {@link WorkerPool}.
+     *
+     * @param issues Issues to process
+     * @param parallelism Number of worker threads
+     * @param listener Listener or null
+     * @param task Work done for each issue
+     *
+     * @return the totals of the run
+     *
+     * @throws JiraException when the run is interrupted
+     */
+    static Report forEach(final Iterator<Issue> issues, int parallelism, final Listener listener,
+            final Task task) throws JiraException {
+
+        final Report report = new Report();
+
+        try {
+            WorkerPool.run(parallelism, "updating issues", pool -> {
+                while (issues.hasNext()) {
+                    final Issue issue = issues.next();
+                    report.issues.incrementAndGet();
+                    pool.execute(() -> runOne(issue, task, listener, report));
+                }
+            });
+        } finally {
+            report.end = System.nanoTime();
+        }
+
+        return report;
+    }
+
+    private static void runOne(Issue issue, Task task, Listener listener, Report report) {
+        JiraException error = null;
+
+        try {
+            task.run(issue, report);
+            report.updated.incrementAndGet();
+        } catch (JiraException ex) {
+            error = ex;
+        } catch (RuntimeException ex) {
+            error = new JiraException("Failed to update issue " + issue.getKey(), ex);
+        }
+
+        if (error != null)
+            report.failures.put(issue.getKey(), error);
+
+        if (listener != null)
+            listener.updated(issue, error, report);
+    }
+
+    /**
+     * Gets the edit metadata shared by the issue's project and issue type,
+     * fetching it with the first issue of the combination.
+     */
+    private static JSONObject editMetadata(final Issue issue, MetadataCache cache,
+            final Report report) throws JiraException {
+
+        String key = issue.editMetadataKey();
+        if (key == null) {
+            report.metadataRequests.incrementAndGet();
+            return issue.fetchEditMetadata();
+        }
+
+        return cache.get(key, () -> {
+            report.metadataRequests.incrementAndGet();
+            return issue.fetchEditMetadata();
+        });
+    }
+}
@@ -0,0 +1,303 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Reads issue change logs page by page and hands each history record to a
+ * listener as soon as its page arrives.
+ *
+ * Single issues are read from the paged <code>issue/{key}/changelog</code>
+ * resource. On JIRA versions without that resource the reader falls back
+ * to expanding the change log of the issue itself. {@link #readAll} reads
+ * the change logs of a whole query through <code>expand=changelog</code>
+ * on the search pages, so one request covers a page of issues; only issues
+ * whose change log is longer than the search embeds are completed with
+ * extra requests.
+ */
+public class ChangeLogReader {
+
+    /**
+     * Receives history records in the order JIRA returns them, oldest
+     * first.
+     */
+    public interface Listener {
+        void history(String issueKey, IssueHistory history) throws JiraException;
+    }
+
+    /**
+     * Counts of one {@link #readAll} run.
+     */
+    public static class Result {
+        public int issues = 0;
+        public long histories = 0;
+        public int searchPages = 0;
+        /** change log pages requested for issues with long histories */
+        public int extraPages = 0;
+    }
+
+    private final RestClient restclient;
+    private int pageSize = 100;
+    private String includedFields = Field.UPDATED_DATE;
+    private volatile boolean legacy = false;
+
+    /**
+     * Creates a reader.
+     *
+     * @param restclient REST client instance
+     */
+    public ChangeLogReader(RestClient restclient) {
+        if (restclient == null)
+            throw new NullPointerException();
+
+        this.restclient = restclient;
+    }
+
+    /**
+     * Sets the number of issues per search page in {@link #readAll}.
+     * Defaults to 100; JIRA may return fewer.
+     *
+     * @param pageSize Issues per search page
+     *
+     * @return the current reader instance
+     */
+    public ChangeLogReader pageSize(int pageSize) {
+        if (pageSize < 1)
+            throw new IllegalArgumentException("pageSize must be at least 1");
+
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Sets the issue fields requested with each search page. Defaults to
+     * the update time only, since the issues themselves are not returned.
+     *
+     * @param includedFields Comma separated field names
+     *
+     * @return the current reader instance
+     */
+    public ChangeLogReader fields(String includedFields) {
+        this.includedFields = includedFields;
+        return this;
+    }
+
+    /**
+     * Reads the change log of one issue.
+     *
+     * @param issue Issue key or id
+     *
+     * @return the history records, oldest first
+     *
+     * @throws JiraException when the retrieval fails
+     */
+    public ArrayList<IssueHistory> read(String issue) throws JiraException {
+        final ArrayList<IssueHistory> result = new ArrayList<IssueHistory>();
+
+        read(issue, new Listener() {
+            public void history(String issueKey, IssueHistory history) {
+                result.add(history);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Streams the change log of one issue to a listener.
+     *
+     * @param issue Issue key or id
+     * @param listener Listener receiving the history records
+     *
+     * @return the number of history records read
+     *
+     * @throws JiraException when the retrieval fails
+     */
+    public int read(String issue, Listener listener) throws JiraException {
+        return read(issue, 0, Integer.MAX_VALUE, listener, null);
+    }
+
+    /**
+     * Streams the change logs of all issues matching a query.
+     *
+     * @param jql JQL statement
+     * @param listener Listener receiving the history records, issue by issue
+     *
+     * @return counts of the run
+     *
+     * @throws JiraException when the retrieval fails
+     */
+    public Result readAll(String jql, Listener listener) throws JiraException {
+        Result result = new Result();
+        int startAt = 0;
+
+        while (true) {
+            JSONObject page = Issue.searchPage(restclient, jql, includedFields,
+                    Field.CHANGE_LOG, pageSize, startAt);
+            JSONArray issues = page.optJSONArray("issues");
+            result.searchPages++;
+
+            if (issues == null || issues.length() == 0)
+                break;
+
+            for (int i = 0; i < issues.length(); i++) {
+                JSONObject issue = issues.getJSONObject(i);
+                String key = Field.getString(issue.opt("key"));
+                JSONObject changelog = issue.optJSONObject(Field.CHANGE_LOG);
+                int read = 0;
+
+                if (changelog != null) {
+                    /* the search may embed any window of the change log, e.g. the latest entries */
+                    JSONArray histories = changelog.optJSONArray(Field.CHANGE_LOG_ENTRIES);
+                    int embedded = histories != null
+                        ? Math.min(histories.length(), changelog.optInt("maxResults", histories.length()))
+                        : 0;
+                    int first = changelog.optInt("startAt", 0);
+                    int total = changelog.optInt("total", first + embedded);
+
+                    if (first > 0)
+                        read += read(key, 0, first, listener, result);
+
+                    read += stream(key, histories, embedded, listener);
+
+                    if (first + embedded < total)
+                        read += read(key, first + embedded, total, listener, result);
+                }
+
+                result.issues++;
+                result.histories += read;
+            }
+
+            startAt += issues.length();
+
+            if (startAt >= page.optInt("total", 0))
+                break;
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the change log entries from <code>startAt</code> up to but not
+     * including <code>end</code>, counting the pages requested into the
+     * result when given.
+     */
+    private int read(String issue, int startAt, int end, Listener listener, Result result)
+            throws JiraException {
+
+        if (legacy)
+            return readExpanded(issue, startAt, end, listener, result);
+
+        int read = 0;
+
+        while (startAt + read < end) {
+            Map<String, String> params = new HashMap<String, String>();
+            params.put("startAt", String.valueOf(startAt + read));
+            params.put("maxResults", String.valueOf(Math.min(100, end - startAt - read)));
+
+            JSONObject page;
+            try {
+                URI uri = restclient.buildURI(Issue.getBaseUri() + "issue/" + issue + "/changelog", params);
+                page = restclient.getMap(uri);
+            } catch (RestException ex) {
+                if (ex.getHttpStatusCode() == 404 && read == 0) {
+                    /* older JIRA without the changelog resource, unless the issue is missing */
+                    int expanded = readExpanded(issue, startAt, end, listener, result);
+                    legacy = true;
+                    return expanded;
+                }
+                throw new JiraException("Failed to retrieve change log of " + issue, ex);
+            } catch (Exception ex) {
+                throw new JiraException("Failed to retrieve change log of " + issue, ex);
+            }
+
+            if (result != null)
+                result.extraPages++;
+
+            int n = stream(issue, page.optJSONArray("values"), end - startAt - read, listener);
+            read += n;
+
+            if (n == 0 || page.optBoolean("isLast", false) ||
+                    startAt + read >= page.optInt("total", Integer.MAX_VALUE))
+                break;
+        }
+
+        return read;
+    }
+
+    /**
+     * Reads the change log through <code>expand=changelog</code> on the
+     * issue, which returns the whole history in one response.
+     */
+    private int readExpanded(String issue, int startAt, int end, Listener listener, Result result)
+            throws JiraException {
+
+        Map<String, String> params = new HashMap<String, String>();
+        params.put("expand", Field.CHANGE_LOG);
+        params.put("fields", Field.UPDATED_DATE);
+
+        JSONObject json;
+        try {
+            URI uri = restclient.buildURI(Issue.getBaseUri() + "issue/" + issue, params);
+            json = restclient.getMap(uri);
+        } catch (Exception ex) {
+            throw new JiraException("Failed to retrieve change log of " + issue, ex);
+        }
+
+        if (result != null)
+            result.extraPages++;
+
+        JSONObject changelog = json != null ? json.optJSONObject(Field.CHANGE_LOG) : null;
+        JSONArray histories = changelog != null ? changelog.optJSONArray(Field.CHANGE_LOG_ENTRIES) : null;
+
+        if (histories == null)
+            return 0;
+
+        int read = 0;
+        for (int i = startAt; i < Math.min(end, histories.length()); i++, read++)
+            listener.history(issue, new IssueHistory(restclient, histories.getJSONObject(i)));
+
+        return read;
+    }
+
+    /**
+     * Hands at most <code>limit</code> history records to the listener.
+     */
+    private int stream(String issue, JSONArray histories, int limit, Listener listener)
+            throws JiraException {
+
+        if (histories == null)
+            return 0;
+
+        int n = Math.min(limit, histories.length());
+        for (int i = 0; i < n; i++)
+            listener.history(issue, new IssueHistory(restclient, histories.getJSONObject(i)));
+
+        return n;
+    }
+}
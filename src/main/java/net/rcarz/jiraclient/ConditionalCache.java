@@ -0,0 +1,134 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers GET responses together with their ETag and Last-Modified
+ * validators so they can be revalidated with a conditional request.
+ *
+ * When the server answers 304 Not Modified the stored JSON value is returned
+ * as is, without reading or decoding a body. Stored values are shared between
+ * callers and must not be modified. The cache holds at most a fixed number of
+ * responses and drops the least recently used one when full.
+ */
+public class ConditionalCache {
+
+    /**
+     * A stored response and its validators.
+     */
+    static final class Entry {
+        final String etag;
+        final String lastModified;
+        final Object value;
+
+        Entry(String etag, String lastModified, Object value) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.value = value;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries;
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong modified = new AtomicLong();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxEntries Maximum number of responses to keep
+     */
+    public ConditionalCache(final int maxEntries) {
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    synchronized Entry get(URI uri) {
+        return entries.get(uri.toString());
+    }
+
+    /**
+     * Stores a response when it carries at least one validator.
+     */
+    synchronized void put(URI uri, String etag, String lastModified, Object value) {
+        if (value == null || (etag == null && lastModified == null)) {
+            entries.remove(uri.toString());
+            return;
+        }
+
+        entries.put(uri.toString(), new Entry(etag, lastModified, value));
+    }
+
+    void recordNotModified() {
+        notModified.incrementAndGet();
+    }
+
+    void recordModified() {
+        modified.incrementAndGet();
+    }
+
+    /**
+     * Drops the stored response of a URI.
+     *
+     * @param uri Request URI
+     */
+    public synchronized void invalidate(URI uri) {
+        entries.remove(uri.toString());
+    }
+
+    /**
+     * Drops every stored response.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of conditional requests answered with 304 Not Modified.
+     */
+    public long getNotModifiedCount() {
+        return notModified.get();
+    }
+
+    /**
+     * Gets the number of conditional requests that returned a new body.
+     */
+    public long getModifiedCount() {
+        return modified.get();
+    }
+
+    /**
+     * Gets the number of responses currently held.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -24,7 +24,12 @@ import java.lang.UnsupportedOperationException;
 import java.net.URI;
 import java.sql.Timestamp;
 import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -154,6 +159,15 @@ public final class Field {
     public static final String DATE_FORMAT = "yyyy-MM-dd";
     public static final String DATETIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSX";
 
+    /* java.time formatters are immutable and thread-safe, so one instance is
+       shared instead of building a SimpleDateFormat for every value */
+    private static final DateTimeFormatter DATE_FORMATTER =
+        DateTimeFormatter.ofPattern(DATE_FORMAT);
+    private static final DateTimeFormatter DATETIME_FORMATTER =
+        DateTimeFormatter.ofPattern(DATETIME_FORMAT);
+    private static final DateTimeFormatter DATETIME_PARSER =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS[XXX][XX][X]");
+
     private Field() { }
 
     /**
@@ -242,8 +256,12 @@ public final class Field {
         Date result = null;
 
         if (d instanceof String) {
-            SimpleDateFormat df = new SimpleDateFormat(DATE_FORMAT);
-            result = df.parse((String)d, new ParsePosition(0));
+            try {
+                TemporalAccessor t = DATE_FORMATTER.parse((String)d, new ParsePosition(0));
+                result = Date.from(LocalDate.from(t).atStartOfDay(ZoneId.systemDefault()).toInstant());
+            } catch (DateTimeException ex) {
+                /* not a date */
+            }
         }
 
         return result;
@@ -260,13 +278,115 @@ public final class Field {
         Date result = null;
 
         if (d instanceof String) {
-            SimpleDateFormat df = new SimpleDateFormat(DATETIME_FORMAT);
-            result = df.parse((String)d, new ParsePosition(0));
+            long millis = parseDateTimeFast((String)d);
+
+            if (millis != Long.MIN_VALUE) {
+                result = new Date(millis);
+            } else {
+                try {
+                    TemporalAccessor t = DATETIME_PARSER.parse((String)d, new ParsePosition(0));
+                    result = Date.from(Instant.from(t));
+                } catch (DateTimeException ex) {
+                    /* not a date-time or missing the offset */
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses the timestamp shape JIRA emits (yyyy-MM-ddTHH:mm:ss.SSS followed
+     * by Z, +hh, +hhmm or +hh:mm) without going through a formatter.
+     *
+     * @param s a string representation of a date-time
+     *
+     * @return epoch milliseconds or Long.MIN_VALUE when s has another shape
+     */
+    private static long parseDateTimeFast(String s) {
+        if (s.length() < 24 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T' ||
+                s.charAt(13) != ':' || s.charAt(16) != ':' || s.charAt(19) != '.')
+            return Long.MIN_VALUE;
+
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+        int hour = digits(s, 11, 2);
+        int minute = digits(s, 14, 2);
+        int second = digits(s, 17, 2);
+        int millis = digits(s, 20, 3);
+
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || hour > 23 ||
+                minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0)
+            return Long.MIN_VALUE;
+
+        int offset = 0;
+        char sign = s.charAt(23);
+
+        if (sign == '+' || sign == '-') {
+            int oh = s.length() >= 26 ? digits(s, 24, 2) : -1;
+            int om = 0;
+
+            if (s.length() >= 29 && s.charAt(26) == ':')
+                om = digits(s, 27, 2);
+            else if (s.length() >= 28 && digits(s, 26, 2) >= 0)
+                om = digits(s, 26, 2);
+
+            if (oh < 0 || oh > 18 || om < 0 || om > 59)
+                return Long.MIN_VALUE;
+
+            offset = (oh * 3600 + om * 60) * (sign == '-' ? -1 : 1);
+        } else if (sign != 'Z') {
+            return Long.MIN_VALUE;
+        }
+
+        long epochDay;
+        try {
+            epochDay = LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException ex) {
+            return Long.MIN_VALUE;
+        }
+
+        long seconds = epochDay * 86400 + hour * 3600 + minute * 60 + second - offset;
+        return seconds * 1000 + millis;
+    }
+
+    private static int digits(String s, int start, int count) {
+        int result = 0;
+
+        for (int i = start; i < start + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            result = result * 10 + (c - '0');
         }
 
         return result;
     }
 
+    /**
+     * Formats a date using {@link #DATE_FORMAT} in the default time zone.
+     *
+     * @param d a Date instance
+     *
+     * @return the formatted date
+     */
+    public static String formatDate(Date d) {
+        return DATE_FORMATTER.format(Instant.ofEpochMilli(d.getTime()).atZone(ZoneId.systemDefault()));
+    }
+
+    /**
+     * Formats a date with a time using {@link #DATETIME_FORMAT} in the
+     * default time zone.
+     *
+     * @param d a Date instance
+     *
+     * @return the formatted date-time
+     */
+    public static String formatDateTime(Date d) {
+        return DATETIME_FORMATTER.format(Instant.ofEpochMilli(d.getTime()).atZone(ZoneId.systemDefault()));
+    }
+
     /**
      * Gets an floating-point number from the given object.
      *
@@ -367,6 +487,9 @@ public final class Field {
      * @param parentId id/key of the parent resource
      *
      * @return a Resource instance or null if r isn't a JSONObject instance
+     * or no factory is registered for type
+     *
+     * @see ResourceRegistry
      */
     public static <T extends Resource> T getResource(
         Class<T> type, Object r, RestClient restclient, String parentId) {
@@ -374,57 +497,15 @@ public final class Field {
         T result = null;
 
         if (r instanceof JSONObject) {
-            JSONObject json = (JSONObject) r;
-            if (type == Attachment.class)
-                result = (T)new Attachment(restclient, json);
-            else if (type == ChangeLog.class)
-                result = (T)new ChangeLog(restclient, json);
-            else if (type == ChangeLogEntry.class)
-                result = (T)new ChangeLogEntry(restclient, json);
-            else if (type == ChangeLogItem.class)
-                result = (T)new ChangeLogItem(restclient, json);
-            else if (type == Comment.class)
-                result = (T)new Comment(restclient, json, parentId);
-            else if (type == Component.class)
-                result = (T)new Component(restclient, json);
-            else if (type == CustomFieldOption.class)
-                result = (T)new CustomFieldOption(restclient, json);
-            else if (type == Issue.class)
-                result = (T)new Issue(restclient, json);
-            else if (type == IssueLink.class)
-                result = (T)new IssueLink(restclient, json);
-            else if (type == IssueType.class)
-                result = (T)new IssueType(restclient, json);
-            else if (type == LinkType.class)
-                result = (T)new LinkType(restclient, json);
-            else if (type == Priority.class)
-                result = (T)new Priority(restclient, json);
-            else if (type == Project.class)
-                result = (T)new Project(restclient, json);
-            else if (type == ProjectCategory.class)
-                result = (T)new ProjectCategory(restclient, json);
-            else if (type == RemoteLink.class)
-                result = (T)new RemoteLink(restclient, json);
-            else if (type == Resolution.class)
-                result = (T)new Resolution(restclient, json);
-            else if (type == Status.class)
-                result = (T)new Status(restclient, json);
-            else if (type == Transition.class)
-                result = (T)new Transition(restclient, json);
-            else if (type == User.class)
-                result = (T)new User(restclient, json);
-            else if (type == Visibility.class)
-                result = (T)new Visibility(restclient, json);
-            else if (type == Version.class)
-                result = (T)new Version(restclient, json);
-            else if (type == Votes.class)
-                result = (T)new Votes(restclient, json);
-            else if (type == Watches.class)
-                result = (T)new Watches(restclient, json);
-            else if (type == WorkLog.class)
-                result = (T)new WorkLog(restclient, json);
-            else if (type == Security.class)
-                result = (T)new Security(restclient, json);
+            ResourceFactory<T> factory = ResourceRegistry.get(type);
+
+            if (factory != null) {
+                try {
+                    result = factory.create(restclient, (JSONObject) r, parentId);
+                } catch (JiraException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
         }
 
         return result;
@@ -578,11 +659,10 @@ public final class Field {
             return (Date)value;
 
         String dateStr = value.toString();
-        SimpleDateFormat df = new SimpleDateFormat(DATE_FORMAT);
         if (dateStr.length() > DATE_FORMAT.length()) {
-            df = new SimpleDateFormat(DATETIME_FORMAT);
+            return getDateTime(dateStr);
         }
-        return df.parse(dateStr, new ParsePosition(0));
+        return getDate(dateStr);
     }
 
     /**
@@ -679,16 +759,14 @@ public final class Field {
             if (d == null)
                 throw new JiraException("Field '" + name + "' expects a date value or format is invalid");
 
-            SimpleDateFormat df = new SimpleDateFormat(DATE_FORMAT);
-            return df.format(d);
+            return formatDate(d);
         } else if (m.type.equals("datetime")) {
             if (value == null)
                 return null;
             else if (!(value instanceof Timestamp))
                 throw new JiraException("Field '" + name + "' expects a Timestamp value");
 
-            SimpleDateFormat df = new SimpleDateFormat(DATETIME_FORMAT);
-            return df.format(value);
+            return formatDateTime((Timestamp)value);
         } else if (m.type.equals("issuetype") || m.type.equals("priority") ||
                 m.type.equals("user") || m.type.equals("resolution") || m.type.equals("securitylevel")) {
             JSONObject json = new JSONObject();
@@ -23,10 +23,24 @@ import java.io.File;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.text.SimpleDateFormat;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import net.rcarz.utils.WorklogUtils;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.content.ByteArrayBody;
+import org.apache.http.entity.mime.content.ContentBody;
+import org.apache.http.entity.mime.content.FileBody;
+import org.apache.http.entity.mime.content.InputStreamBody;
 import org.joda.time.DateTime;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -44,10 +58,12 @@ public class Issue extends Resource {
         Map<String, Object> fields = new HashMap<String, Object>();
         RestClient restclient = null;
         JSONObject createmeta = null;
+        String metaKey = null;
 
-        private FluentCreate(RestClient restclient, JSONObject createmeta) {
+        private FluentCreate(RestClient restclient, JSONObject createmeta, String metaKey) {
             this.restclient = restclient;
             this.createmeta = createmeta;
+            this.metaKey = metaKey;
         }
 
         /**
@@ -94,25 +110,13 @@ public class Issue extends Resource {
          * @throws JiraException when the create fails
          */
         private Issue executeCreate(String includedFields) throws JiraException {
-            JSONObject fieldmap = new JSONObject();
-
-            if (fields.size() == 0) {
-                throw new JiraException("No fields were given for create");
-            }
-
-            for (Map.Entry<String, Object> ent : fields.entrySet()) {
-                Object newval = Field.toJson(ent.getKey(), ent.getValue(), createmeta);
-                fieldmap.put(ent.getKey(), newval);
-            }
-
-            JSONObject req = new JSONObject();
-            req.put("fields", fieldmap);
-
+            JSONObject req = toRequest();
             JSONObject result = null;
 
             try {
                 result = restclient.post(getRestUri(null), req);
             } catch (Exception ex) {
+                schemaError(restclient, metaKey, ex);
                 throw new JiraException("Failed to create issue", ex);
             }
 
@@ -127,6 +131,33 @@ public class Issue extends Resource {
             }
         }
 
+        /**
+         * Builds the create request payload.
+         *
+         * @throws JiraException when no fields were given
+         */
+        JSONObject toRequest() throws JiraException {
+            JSONObject fieldmap = new JSONObject();
+
+            if (fields.size() == 0) {
+                throw new JiraException("No fields were given for create");
+            }
+
+            try {
+                for (Map.Entry<String, Object> ent : fields.entrySet()) {
+                    Object newval = Field.toJson(ent.getKey(), ent.getValue(), createmeta);
+                    fieldmap.put(ent.getKey(), newval);
+                }
+            } catch (JiraException ex) {
+                invalidateMetadata(restclient, metaKey);
+                throw ex;
+            }
+
+            JSONObject req = new JSONObject();
+            req.put("fields", fieldmap);
+            return req;
+        }
+
         /**
          * Appends a field to the update action.
          *
@@ -152,6 +183,313 @@ public class Issue extends Resource {
     }
 
 
+    /**
+     * Used to create many issues through the bulk create endpoint. Issues
+     * added with {@link #add()} share a single copy of the create metadata.
+     */
+    public static final class FluentBulkCreate {
+
+        /** maximum number of issues JIRA accepts in one bulk request */
+        public static final int MAX_CHUNK_SIZE = 50;
+
+        private final RestClient restclient;
+        private final String project;
+        private final String issueType;
+        private final JSONObject createmeta;
+        private final List<FluentCreate> items = new ArrayList<FluentCreate>();
+        private boolean fetch = true;
+        private String includedFields = null;
+        private int chunkSize = MAX_CHUNK_SIZE;
+
+        private FluentBulkCreate(RestClient restclient, String project, String issueType,
+                JSONObject createmeta) {
+
+            this.restclient = restclient;
+            this.project = project;
+            this.issueType = issueType;
+            this.createmeta = createmeta;
+        }
+
+        /**
+         * Starts a new issue in the batch with the project and issue type
+         * already set.
+         *
+         * @return a fluent create instance to set the issue fields on
+         */
+        public FluentCreate add() {
+            FluentCreate fc = new FluentCreate(restclient, createmeta,
+                    MetadataCache.createKey(project, issueType))
+                .field(Field.PROJECT, project)
+                .field(Field.ISSUE_TYPE, issueType);
+            items.add(fc);
+            return fc;
+        }
+
+        /**
+         * Adds an issue prepared elsewhere, e.g. for another project.
+         *
+         * @param fc Fluent create instance
+         *
+         * @return the current fluent bulk create instance
+         */
+        public FluentBulkCreate add(FluentCreate fc) {
+            items.add(fc);
+            return this;
+        }
+
+        /**
+         * Sets whether the created issues are fetched again after creation.
+         * When disabled, or when fetching them fails, the result only holds
+         * the id and key of each issue.
+         *
+         * @param fetch true to fetch the created issues (the default)
+         *
+         * @return the current fluent bulk create instance
+         */
+        public FluentBulkCreate fetch(boolean fetch) {
+            this.fetch = fetch;
+            return this;
+        }
+
+        /**
+         * Sets which fields to retrieve when fetching the created issues.
+         *
+         * @param includedFields Comma separated field list
+         *
+         * @return the current fluent bulk create instance
+         */
+        public FluentBulkCreate includedFields(String includedFields) {
+            this.includedFields = includedFields;
+            return this;
+        }
+
+        /**
+         * Sets how many issues are sent per request.
+         *
+         * @param chunkSize Between 1 and {@link #MAX_CHUNK_SIZE}
+         *
+         * @return the current fluent bulk create instance
+         */
+        public FluentBulkCreate chunkSize(int chunkSize) {
+            if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE)
+                throw new IllegalArgumentException("chunkSize must be between 1 and " + MAX_CHUNK_SIZE);
+
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Gets the number of issues queued for creation.
+         */
+        public int size() {
+            return items.size();
+        }
+
+        /**
+         * Creates all queued issues. Issues rejected by JIRA are reported
+         * per item and do not stop the rest of the batch. When a request
+         * fails as a whole, its items and those of the requests not yet
+         * sent are reported as failed, so the keys of the issues already
+         * created are never lost. Items of the failed request may still
+         * have been created if the server processed it before failing.
+         *
+         * @return one result per queued issue, in the order they were added
+         *
+         * @throws JiraException not thrown; failures are reported per item
+         */
+        public List<BulkCreateItem> execute() throws JiraException {
+            List<BulkCreateItem> results = new ArrayList<BulkCreateItem>(items.size());
+            String failure = null;
+
+            for (int start = 0; start < items.size(); start += chunkSize) {
+                List<FluentCreate> chunk = items.subList(start, Math.min(items.size(), start + chunkSize));
+
+                if (failure != null) {
+                    results.addAll(failedChunk(start, chunk.size(), "Not sent: " + failure));
+                    continue;
+                }
+
+                try {
+                    results.addAll(executeChunk(start, chunk));
+                } catch (JiraException ex) {
+                    failure = ex.getCause() != null
+                        ? ex.getMessage() + ": " + ex.getCause().getMessage()
+                        : ex.getMessage();
+                    results.addAll(failedChunk(start, chunk.size(), failure));
+                }
+            }
+
+            if (fetch) {
+                try {
+                    fetchCreated(results);
+                } catch (JiraException ex) {
+                    /* the items keep the id and key from the create response */
+                }
+            }
+
+            return results;
+        }
+
+        private static List<BulkCreateItem> failedChunk(int offset, int size, String error) {
+            List<BulkCreateItem> items = new ArrayList<BulkCreateItem>(size);
+            for (int i = 0; i < size; i++) {
+                BulkCreateItem item = new BulkCreateItem();
+                item.index = offset + i;
+                item.error = error;
+                items.add(item);
+            }
+            return items;
+        }
+
+        private List<BulkCreateItem> executeChunk(int offset, List<FluentCreate> chunk)
+                throws JiraException {
+
+            JSONArray updates = new JSONArray();
+            for (FluentCreate fc : chunk)
+                updates.put(fc.toRequest());
+
+            JSONObject req = new JSONObject();
+            req.put("issueUpdates", updates);
+
+            JSONObject result = null;
+
+            try {
+                result = restclient.post(getRestUri("bulk"), req);
+            } catch (RestException ex) {
+                /* JIRA answers 400 with the usual body when every item failed */
+                result = parseBulkError(ex);
+                if (result == null)
+                    throw new JiraException("Failed to create issues", ex);
+            } catch (Exception ex) {
+                throw new JiraException("Failed to create issues", ex);
+            }
+
+            if (result == null)
+                throw new JiraException("Unexpected result on bulk create issue");
+
+            List<BulkCreateItem> items = new ArrayList<BulkCreateItem>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                BulkCreateItem item = new BulkCreateItem();
+                item.index = offset + i;
+                items.add(item);
+            }
+
+            JSONArray errors = result.optJSONArray("errors");
+            for (int i = 0; errors != null && i < errors.length(); i++) {
+                JSONObject err = errors.getJSONObject(i);
+                int failed = err.optInt("failedElementNumber", -1);
+                if (failed >= 0 && failed < items.size())
+                    items.get(failed).error = describeError(err.optJSONObject("elementErrors"));
+            }
+
+            /* created issues are listed in request order, skipping failed items */
+            JSONArray created = result.optJSONArray("issues");
+            int c = 0;
+            for (BulkCreateItem item : items) {
+                if (item.error != null)
+                    continue;
+
+                if (created == null || c >= created.length()) {
+                    item.error = "Missing from bulk create response";
+                    continue;
+                }
+
+                JSONObject issue = created.getJSONObject(c++);
+                item.id = Field.getString(issue.opt("id"));
+                item.key = Field.getString(issue.opt("key"));
+                item.issue = new Issue(restclient, issue);
+            }
+
+            return items;
+        }
+
+        private void fetchCreated(List<BulkCreateItem> results) throws JiraException {
+            List<String> keys = new ArrayList<String>(results.size());
+            for (BulkCreateItem item : results) {
+                if (item.key != null)
+                    keys.add(item.key);
+            }
+
+            if (keys.isEmpty())
+                return;
+
+            KeyFetchResult fetched = getAll(restclient, keys, includedFields, null,
+                    AsyncJiraClient.getDefaultExecutor(), 4);
+
+            Map<String, Issue> byKey = new HashMap<String, Issue>();
+            for (Issue issue : fetched.issues)
+                byKey.put(issue.getKey().toUpperCase(Locale.ROOT), issue);
+
+            for (BulkCreateItem item : results) {
+                if (item.key == null)
+                    continue;
+
+                Issue issue = byKey.get(item.key.toUpperCase(Locale.ROOT));
+                if (issue != null)
+                    item.issue = issue;
+            }
+        }
+
+        private static JSONObject parseBulkError(RestException ex) {
+            if (ex.getHttpStatusCode() != 400 || ex.getHttpResult() == null)
+                return null;
+
+            try {
+                JSONObject body = new JSONObject(ex.getHttpResult());
+                return body.has("errors") && body.get("errors") instanceof JSONArray ? body : null;
+            } catch (Exception ignore) {
+                return null;
+            }
+        }
+
+        private static String describeError(JSONObject elementErrors) {
+            if (elementErrors == null)
+                return "Unknown error";
+
+            List<String> messages = new ArrayList<String>();
+            JSONArray general = elementErrors.optJSONArray("errorMessages");
+            for (int i = 0; general != null && i < general.length(); i++)
+                messages.add(general.optString(i));
+
+            JSONObject perField = elementErrors.optJSONObject("errors");
+            if (perField != null) {
+                for (String field : new TreeSet<String>(perField.keySet()))
+                    messages.add(field + ": " + perField.optString(field));
+            }
+
+            if (messages.isEmpty())
+                return "Unknown error";
+
+            StringBuilder sb = new StringBuilder();
+            for (String m : messages) {
+                if (sb.length() > 0)
+                    sb.append("; ");
+                sb.append(m);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Outcome of one issue in a bulk create.
+     */
+    public static class BulkCreateItem {
+        /** Position of the issue in the batch */
+        public int index = 0;
+        /** ID of the created issue, null when it failed */
+        public String id = null;
+        /** Key of the created issue, null when it failed */
+        public String key = null;
+        /** Created issue; only id and key are set unless fetching was enabled */
+        public Issue issue = null;
+        /** Error reported by JIRA, null on success */
+        public String error = null;
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
     /**
      * Used to {@link #create() create} remote links. Provide at least the {@link #url(String)} or
      * {@link #globalId(String) global id} and the {@link #title(String) title}.
@@ -344,9 +682,13 @@ public class Issue extends Resource {
         Map<String, Object> fields = new HashMap<String, Object>();
         Map<String, List> fieldOpers = new HashMap<String, List>();
         JSONObject editmeta = null;
+        MetadataCache cache = null;
+        String metaKey = null;
 
-        private FluentUpdate(JSONObject editmeta) {
+        private FluentUpdate(JSONObject editmeta, MetadataCache cache, String metaKey) {
             this.editmeta = editmeta;
+            this.cache = cache;
+            this.metaKey = metaKey;
         }
 
         /**
@@ -361,14 +703,20 @@ public class Issue extends Resource {
             if (fields.size() == 0 && fieldOpers.size() == 0)
                 throw new JiraException("No fields were given for update");
 
-            for (Map.Entry<String, Object> ent : fields.entrySet()) {
-                Object newval = Field.toJson(ent.getKey(), ent.getValue(), editmeta);
-                fieldmap.put(ent.getKey(), newval);
-            }
+            try {
+                for (Map.Entry<String, Object> ent : fields.entrySet()) {
+                    Object newval = Field.toJson(ent.getKey(), ent.getValue(), editmeta);
+                    fieldmap.put(ent.getKey(), newval);
+                }
 
-            for (Map.Entry<String, List> ent : fieldOpers.entrySet()) {
-                Object newval = Field.toJson(ent.getKey(), ent.getValue(), editmeta);
-                updatemap.put(ent.getKey(), newval);
+                for (Map.Entry<String, List> ent : fieldOpers.entrySet()) {
+                    Object newval = Field.toJson(ent.getKey(), ent.getValue(), editmeta);
+                    updatemap.put(ent.getKey(), newval);
+                }
+            } catch (JiraException ex) {
+                if (cache != null)
+                    cache.invalidate(metaKey);
+                throw ex;
             }
 
             JSONObject req = new JSONObject();
@@ -382,6 +730,8 @@ public class Issue extends Resource {
             try {
                 restclient.put(getRestUri(key), req);
             } catch (Exception ex) {
+                if (cache != null)
+                    cache.invalidateOnSchemaError(metaKey, ex);
                 throw new JiraException("Failed to update issue " + key, ex);
             }
         }
@@ -449,12 +799,41 @@ public class Issue extends Resource {
 
         Map<String, Object> fields = new HashMap<String, Object>();
         List<Transition> transitions = null;
+        MetadataCache cache = null;
+        String metaKey = null;
+        /* requests made for this issue's own transitions */
+        int fetches = 0;
 
-        private FluentTransition(List<Transition> transitions) {
+        private FluentTransition(List<Transition> transitions, MetadataCache cache, String metaKey) {
             this.transitions = transitions;
+            this.cache = cache;
+            this.metaKey = metaKey;
         }
 
         private Transition getTransition(String id, boolean isName) throws JiraException {
+            Transition result = find(transitions, id, isName);
+
+            if (result == null && metaKey != null) {
+                /* the cached list may come from an issue whose conditions hid it */
+                List<Transition> current = fetchOwnTransitions();
+
+                if (!signature(current).equals(signature(transitions)))
+                    cache.invalidate(metaKey);
+
+                transitions = current;
+                metaKey = null;
+                result = find(transitions, id, isName);
+            }
+
+            if (result == null) {
+                final String allTransitionNames = Arrays.toString(transitions.toArray());
+                throw new JiraException("Transition '" + id + "' was not found. Known transitions are:" + allTransitionNames);
+            }
+
+            return result;
+        }
+
+        private Transition find(List<Transition> transitions, String id, boolean isName) {
             Transition result = null;
 
             for (Transition transition : transitions) {
@@ -464,14 +843,14 @@ public class Issue extends Resource {
                 }
             }
 
-            if (result == null) {
-                final String allTransitionNames = Arrays.toString(transitions.toArray());
-                throw new JiraException("Transition '" + id + "' was not found. Known transitions are:" + allTransitionNames);
-            }
-
             return result;
         }
 
+        private List<Transition> fetchOwnTransitions() throws JiraException {
+            fetches++;
+            return fetchTransitions();
+        }
+
         private void realExecute(Transition trans) throws JiraException {
 
             if (trans == null || trans.getFields() == null)
@@ -495,11 +874,71 @@ public class Issue extends Resource {
 
             try {
                 restclient.post(getRestUri(key) + "/transitions", req);
+            } catch (RestException ex) {
+                if (metaKey == null || ex.getHttpStatusCode() != 400)
+                    throw new JiraException("Failed to transition issue " + key, ex);
+
+                retryUncached(trans, req, ex);
             } catch (Exception ex) {
                 throw new JiraException("Failed to transition issue " + key, ex);
             }
         }
 
+        /**
+         * Handles a rejected transition that was looked up in the cache by
+         * comparing it with the issue's own transitions. The cache entry is
+         * only dropped when it is stale: the issue no longer offers the
+         * transition, or its screen changed. In the latter case the
+         * transition is retried once. When the transition is unchanged the
+         * rejection had another cause, e.g. a field failing validation, and
+         * is reported as is; other transitions differing by issue
+         * conditions leave the cache alone.
+         */
+        private void retryUncached(Transition trans, JSONObject req, RestException error)
+            throws JiraException {
+
+            Transition fresh = trans.getId() != null
+                ? find(fetchOwnTransitions(), trans.getId(), false)
+                : null;
+
+            if (fresh == null) {
+                cache.invalidate(metaKey);
+                throw new JiraException("Transition '" + trans.getName() +
+                    "' is not available for issue " + key, error);
+            }
+
+            if (signature(Collections.singletonList(fresh))
+                    .equals(signature(Collections.singletonList(trans))))
+                throw new JiraException("Failed to transition issue " + key, error);
+
+            cache.invalidate(metaKey);
+
+            try {
+                restclient.post(getRestUri(key) + "/transitions", req);
+            } catch (Exception ex) {
+                throw new JiraException("Failed to transition issue " + key, ex);
+            }
+        }
+
+        /**
+         * Describes transitions by id and screen fields, which is what a
+         * stale cache entry gets wrong.
+         */
+        private List<String> signature(List<Transition> transitions) {
+            List<String> result = new ArrayList<String>(transitions.size());
+
+            for (Transition t : transitions) {
+                JSONObject screen = t.getFields();
+                List<String> names = new ArrayList<String>(screen != null ? screen.keySet() :
+                        Collections.<String>emptySet());
+                Collections.sort(names);
+                result.add(t.getId() + names);
+            }
+
+            Collections.sort(result);
+            return result;
+        }
+
         /**
          * Executes the transition action.
          *
@@ -648,19 +1087,8 @@ public class Issue extends Resource {
                 startAt = startAt + issues.size();
             }
 
-            JSONObject result = null;
-
-            try {
-                URI searchUri = createSearchURI(restclient, jql, includedFields,
-                        expandFields, maxResults, startAt);
-                result = restclient.getMap(searchUri);
-            } catch (Exception ex) {
-                throw new JiraException("Failed to search issues", ex);
-            }
-
-            if (result == null) {
-                throw new JiraException("JSON payload is malformed");
-            }
+            JSONObject result = searchPage(restclient, jql, includedFields,
+                    expandFields, maxResults, startAt);
 
             this.startAt = Field.getInteger(result.opt("startAt"));
             this.maxResults = Field.getInteger(result.opt("maxResults"));
@@ -670,6 +1098,178 @@ public class Issue extends Resource {
         }
     }
     
+    /**
+     * Iterates over all issues in the query while fetching the following
+     * pages ahead of time. Page offsets are derived from the total reported
+     * by the first page, so several pages can be in flight at once; they
+     * are still handed out in result order.
+     */
+    private static class PrefetchingIssueIterator implements Iterator<Issue> {
+        private final RestClient restclient;
+        private final String jql;
+        private final String includedFields;
+        private final String expandFields;
+        private final int pageSize;
+        private final int total;
+        private final ExecutorService executor;
+        private final int pagesAhead;
+        private final LinkedList<Future<List<Issue>>> pending = new LinkedList<Future<List<Issue>>>();
+        private Iterator<Issue> currentPage;
+        private int nextStartAt;
+
+        public PrefetchingIssueIterator(RestClient restclient, String jql, String includedFields,
+                                        String expandFields, SearchResult first,
+                                        ExecutorService executor, int pagesAhead) {
+            this.restclient = restclient;
+            this.jql = jql;
+            this.includedFields = includedFields;
+            this.expandFields = expandFields;
+            this.pageSize = first.max;
+            this.total = first.total;
+            this.executor = executor;
+            this.pagesAhead = pagesAhead;
+            this.currentPage = first.issues.iterator();
+            this.nextStartAt = first.start + first.issues.size();
+            fillPipeline();
+        }
+
+        public boolean hasNext() {
+            while (!currentPage.hasNext()) {
+                if (pending.isEmpty())
+                    return false;
+
+                List<Issue> page = awaitPage(pending.removeFirst());
+                fillPipeline();
+
+                if (page.isEmpty()) {
+                    /* the result set shrank while we were paging */
+                    cancelPending();
+                    return false;
+                }
+
+                currentPage = page.iterator();
+            }
+
+            return true;
+        }
+
+        public Issue next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return currentPage.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("Method remove() not support for class " +
+                                                    this.getClass().getName());
+        }
+
+        private void fillPipeline() {
+            if (pageSize <= 0)
+                return;
+
+            while (pending.size() < pagesAhead && nextStartAt < total) {
+                final int startAt = nextStartAt;
+                pending.add(executor.submit(new Callable<List<Issue>>() {
+                    public List<Issue> call() throws JiraException {
+                        JSONObject result = searchPage(restclient, jql, includedFields,
+                                expandFields, pageSize, startAt);
+                        return Field.getResourceArray(Issue.class, result.opt("issues"), restclient);
+                    }
+                }));
+                nextStartAt += pageSize;
+            }
+        }
+
+        private List<Issue> awaitPage(Future<List<Issue>> page) {
+            try {
+                return page.get();
+            } catch (InterruptedException ex) {
+                cancelPending();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(new JiraException("Interrupted while searching issues", ex));
+            } catch (ExecutionException ex) {
+                cancelPending();
+                Throwable cause = ex.getCause();
+                if (cause instanceof JiraException)
+                    throw new RuntimeException(cause);
+                throw new RuntimeException(new JiraException("Failed to search issues", cause));
+            }
+        }
+
+        private void cancelPending() {
+            for (Future<List<Issue>> f : pending)
+                f.cancel(true);
+            pending.clear();
+        }
+    }
+
+    /**
+     * Splits a search result on page boundaries. Each page is fetched and
+     * deserialised lazily by whichever thread advances over it, so a
+     * parallel stream spreads both the requests and the JSON work across
+     * the fork/join pool, while a sequential stream holds one page at a time.
+     */
+    private static class IssueSpliterator implements Spliterator<Issue> {
+        private final SearchResult result;
+        private int page;
+        private int endPage;
+        private Iterator<Issue> currentPage;
+
+        public IssueSpliterator(SearchResult result, int page, int endPage) {
+            this.result = result;
+            this.page = page;
+            this.endPage = endPage;
+        }
+
+        public boolean tryAdvance(Consumer<? super Issue> action) {
+            while (currentPage == null || !currentPage.hasNext()) {
+                if (page >= endPage)
+                    return false;
+
+                currentPage = loadPage(page++).iterator();
+            }
+
+            action.accept(currentPage.next());
+            return true;
+        }
+
+        public Spliterator<Issue> trySplit() {
+            if (currentPage != null && currentPage.hasNext())
+                return null;
+            if (endPage - page < 2)
+                return null;
+
+            int mid = page + (endPage - page) / 2;
+            Spliterator<Issue> prefix = new IssueSpliterator(result, page, mid);
+            page = mid;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            long size = (long) (endPage - page) * Math.max(result.max, 1);
+            return Math.min(size, Math.max(result.total - result.start, 0));
+        }
+
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+
+        private List<Issue> loadPage(int index) {
+            if (index == 0)
+                return result.issues;
+
+            try {
+                JSONObject json = searchPage(result.restclient, result.jql, result.includedFields,
+                        result.expandFields, result.max, result.start + index * result.max);
+                return Field.getResourceArray(Issue.class, json.opt("issues"), result.restclient);
+            } catch (JiraException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
     /**
      * Issue search results structure.
      *
@@ -690,33 +1290,87 @@ public class Issue extends Resource {
         public int total = 0;
         public List<Issue> issues = null;
         private IssueIterator issueIterator;
+        private RestClient restclient;
+        private String jql;
+        private String includedFields;
+        private String expandFields;
 
         public SearchResult(RestClient restclient, String jql, String includedFields, 
                             String expandFields, Integer maxResults, Integer startAt)
                             throws JiraException {
+            this.restclient = restclient;
+            this.jql = jql;
+            this.includedFields = includedFields;
+            this.expandFields = expandFields;
             this.issueIterator = new IssueIterator(
                 restclient,
                 jql,
                 includedFields,
                 expandFields,
-                maxResults,
-                startAt
+                maxResults,
+                startAt
+            );
+            /* backwards compatibility shim - first page only */
+            this.issueIterator.hasNext();
+            this.max = issueIterator.maxResults;
+            this.start = issueIterator.startAt;
+            this.issues = issueIterator.issues;
+            this.total = issueIterator.total;
+        }
+
+        /**
+         * All issues found.
+         * 
+         * @return All issues found.
+         */
+        public Iterator<Issue> iterator() {
+            return issueIterator;
+        }
+
+        /**
+         * All issues found, fetching up to <code>pagesAhead</code> pages
+         * concurrently on the given executor while the caller consumes the
+         * current one. Issues are returned in result order, starting again
+         * from the first page. The executor is owned by the caller.
+         *
+         * @param executor Executor used to fetch the following pages
+         * @param pagesAhead Maximum number of pages requested ahead of the
+         * consumer
+         *
+         * @return All issues found.
+         */
+        public Iterator<Issue> iterator(ExecutorService executor, int pagesAhead) {
+            if (executor == null)
+                throw new NullPointerException("executor may not be null");
+            if (pagesAhead < 1)
+                throw new IllegalArgumentException("pagesAhead must be at least 1");
+
+            return new PrefetchingIssueIterator(
+                restclient,
+                jql,
+                includedFields,
+                expandFields,
+                this,
+                executor,
+                pagesAhead
             );
-            /* backwards compatibility shim - first page only */
-            this.issueIterator.hasNext();
-            this.max = issueIterator.maxResults;
-            this.start = issueIterator.startAt;
-            this.issues = issueIterator.issues;
-            this.total = issueIterator.total;
         }
 
         /**
-         * All issues found.
-         * 
+         * All issues found as a stream. The stream is split on page
+         * boundaries, so <code>parallel()</code> fetches and deserialises
+         * pages concurrently; sequential use keeps a single page in memory.
+         * Issues are streamed starting again from the first page.
+         *
          * @return All issues found.
          */
-        public Iterator<Issue> iterator() {
-            return issueIterator;
+        public Stream<Issue> stream() {
+            int pages = 1;
+
+            if (max > 0 && total > start)
+                pages = (total - start + max - 1) / max;
+
+            return StreamSupport.stream(new IssueSpliterator(this, 0, pages), false);
         }
     }
 
@@ -744,6 +1398,15 @@ public class Issue extends Resource {
             this.content = requireContent(content);
         }
 
+        public NewAttachment(Path content) {
+            this(content.getFileName().toString(), content);
+        }
+
+        public NewAttachment(String filename, Path content) {
+            this.filename = requireFilename(filename);
+            this.content = requireContent(content);
+        }
+
         String getFilename() {
             return filename;
         }
@@ -752,6 +1415,32 @@ public class Issue extends Resource {
             return content;
         }
 
+        /**
+         * Tells whether the content can be sent more than once.
+         */
+        boolean isRepeatable() {
+            return !(content instanceof InputStream);
+        }
+
+        /**
+         * Creates a multipart body that streams the content when written.
+         */
+        ContentBody toBody() {
+            if (content instanceof byte[]) {
+                return new ByteArrayBody((byte[]) content, ContentType.DEFAULT_BINARY, filename);
+            } else if (content instanceof InputStream) {
+                return new InputStreamBody((InputStream) content, ContentType.DEFAULT_BINARY, filename);
+            } else if (content instanceof File) {
+                return new FileBody((File) content, ContentType.DEFAULT_BINARY, filename);
+            } else if (content instanceof Path) {
+                return new FileBody(((Path) content).toFile(), ContentType.DEFAULT_BINARY, filename);
+            } else {
+                throw new IllegalArgumentException(
+                    "Expected file type byte[], java.io.InputStream, java.io.File or java.nio.file.Path but provided " +
+                        content.getClass().getName() + " for the file " + filename);
+            }
+        }
+
         private static String requireFilename(String filename) {
             if (filename == null) {
                 throw new NullPointerException("filename may not be null");
@@ -771,6 +1460,23 @@ public class Issue extends Resource {
 
     }
 
+    /**
+     * Issues fetched by key.
+     */
+    public static class KeyFetchResult {
+        /** Issues found, in the order their keys were requested */
+        public List<Issue> issues = null;
+        /** Requested keys that matched no visible issue, as given */
+        public List<String> missing = null;
+    }
+
+    /* limits used when fetching issues by key */
+    static final int MAX_KEYS_PER_CHUNK = 100;
+    static final int MAX_KEY_JQL_LENGTH = 1500;
+
+    /* an issue key (PROJECT-123) or id once upper-cased */
+    private static final Pattern KEY_OR_ID = Pattern.compile("[A-Z][A-Z0-9_]*-[0-9]+|[0-9]+");
+
     private String key = null;
     private JSONObject fields = null;
 
@@ -806,6 +1512,43 @@ public class Issue extends Resource {
     private Date updatedDate = null;
     private Security security = null;
 
+    /* one bit per system field, used to track lazy materialisation */
+    private static final int F_ASSIGNEE = 1 << 0;
+    private static final int F_ATTACHMENT = 1 << 1;
+    private static final int F_CHANGE_LOG = 1 << 2;
+    private static final int F_COMMENT = 1 << 3;
+    private static final int F_COMPONENTS = 1 << 4;
+    private static final int F_DESCRIPTION = 1 << 5;
+    private static final int F_DUE_DATE = 1 << 6;
+    private static final int F_FIX_VERSIONS = 1 << 7;
+    private static final int F_ISSUE_LINKS = 1 << 8;
+    private static final int F_ISSUE_TYPE = 1 << 9;
+    private static final int F_LABELS = 1 << 10;
+    private static final int F_PARENT = 1 << 11;
+    private static final int F_PRIORITY = 1 << 12;
+    private static final int F_PROJECT = 1 << 13;
+    private static final int F_REPORTER = 1 << 14;
+    private static final int F_RESOLUTION = 1 << 15;
+    private static final int F_RESOLUTION_DATE = 1 << 16;
+    private static final int F_STATUS = 1 << 17;
+    private static final int F_SUBTASKS = 1 << 18;
+    private static final int F_SUMMARY = 1 << 19;
+    private static final int F_TIME_TRACKING = 1 << 20;
+    private static final int F_VERSIONS = 1 << 21;
+    private static final int F_VOTES = 1 << 22;
+    private static final int F_WATCHES = 1 << 23;
+    private static final int F_WORKLOG = 1 << 24;
+    private static final int F_TIME_ESTIMATE = 1 << 25;
+    private static final int F_TIME_SPENT = 1 << 26;
+    private static final int F_CREATED_DATE = 1 << 27;
+    private static final int F_UPDATED_DATE = 1 << 28;
+    private static final int F_SECURITY = 1 << 29;
+    private static final int ALL_FIELDS = (1 << 30) - 1;
+
+    private final boolean lazy;
+    private Object rawChangeLog = null;
+    private int materialised = 0;
+
     /**
      * Creates an issue from a JSON payload.
      *
@@ -815,51 +1558,154 @@ public class Issue extends Resource {
     protected Issue(RestClient restclient, JSONObject json) {
         super(restclient);
 
+        lazy = restclient != null && restclient.isLazyFields();
+
         if (json != null)
             deserialise(json);
     }
 
     private void deserialise(JSONObject json) {
-        id = Field.getString(json.opt("id"));
-        self = Field.getString(json.opt("self"));
-        key = Field.getString(json.opt("key"));
+        JSONObject newFields = (JSONObject)json.opt("fields");
+
+        synchronized (this) {
+            id = Field.getString(json.opt("id"));
+            self = Field.getString(json.opt("self"));
+            key = Field.getString(json.opt("key"));
+
+            if (newFields == null) {
+                fields = null;
+                return;
+            }
+
+            fields = newFields;
+            rawChangeLog = json.opt(Field.CHANGE_LOG);
+            materialised = 0;
+        }
+
+        if (!lazy)
+            materialise(ALL_FIELDS);
+    }
+
+    /**
+     * Builds the typed values of the given system fields unless that
+     * already happened.
+     *
+     * @param mask Bits of the fields to build
+     */
+    private synchronized void materialise(int mask) {
+        int missing = mask & ~materialised;
 
-        fields = (JSONObject)json.opt("fields");
-        if (fields == null)
+        if (missing == 0 || fields == null)
             return;
 
-        assignee = Field.getResource(User.class, fields.opt(Field.ASSIGNEE), restclient);
-        attachments = Field.getResourceArray(Attachment.class, fields.opt(Field.ATTACHMENT), restclient);
-        changeLog = Field.getResource(ChangeLog.class, json.opt(Field.CHANGE_LOG), restclient);
-        comments = Field.getComments(fields.opt(Field.COMMENT), restclient, key);
-        components = Field.getResourceArray(Component.class, fields.opt(Field.COMPONENTS), restclient);
-        description = Field.getString(fields.opt(Field.DESCRIPTION));
-        dueDate = Field.getDate(fields.opt(Field.DUE_DATE));
-        fixVersions = Field.getResourceArray(Version.class, fields.opt(Field.FIX_VERSIONS), restclient);
-        issueLinks = Field.getResourceArray(IssueLink.class, fields.opt(Field.ISSUE_LINKS), restclient);
-        issueType = Field.getResource(IssueType.class, fields.opt(Field.ISSUE_TYPE), restclient);
-        labels = Field.getStringArray(fields.opt(Field.LABELS));
-        parent = Field.getResource(Issue.class, fields.opt(Field.PARENT), restclient);
-        priority = Field.getResource(Priority.class, fields.opt(Field.PRIORITY), restclient);
-        project = Field.getResource(Project.class, fields.opt(Field.PROJECT), restclient);
-        reporter = Field.getResource(User.class, fields.opt(Field.REPORTER), restclient);
-        resolution = Field.getResource(Resolution.class, fields.opt(Field.RESOLUTION), restclient);
-        resolutionDate = Field.getDateTime(fields.opt(Field.RESOLUTION_DATE));
-        status = Field.getResource(Status.class, fields.opt(Field.STATUS), restclient);
-        subtasks = Field.getResourceArray(Issue.class, fields.opt(Field.SUBTASKS), restclient);
-        summary = Field.getString(fields.opt(Field.SUMMARY));
-        timeTracking = Field.getTimeTracking(fields.opt(Field.TIME_TRACKING));
-        versions = Field.getResourceArray(Version.class, fields.opt(Field.VERSIONS), restclient);
-        votes = Field.getResource(Votes.class, fields.opt(Field.VOTES), restclient);
-        watches = Field.getResource(Watches.class, fields.opt(Field.WATCHES), restclient);
-        workLogs = Field.getWorkLogs(fields.opt(Field.WORKLOG), restclient);
-        timeEstimate = Field.getInteger(fields.opt(Field.TIME_ESTIMATE));
-        timeSpent = Field.getInteger(fields.opt(Field.TIME_SPENT));
-        createdDate = Field.getDateTime(fields.opt(Field.CREATED_DATE));
-        updatedDate = Field.getDateTime(fields.opt(Field.UPDATED_DATE));
-        security = Field.getResource(Security.class, fields.opt(Field.SECURITY), restclient);
+        for (int bit = 1; bit <= missing && bit != 0; bit <<= 1) {
+            if ((missing & bit) != 0)
+                materialiseField(bit);
+        }
+
+        materialised |= missing;
+    }
+
+    private void materialiseField(int field) {
+        switch (field) {
+            case F_ASSIGNEE:
+                assignee = Field.getResource(User.class, fields.opt(Field.ASSIGNEE), restclient);
+                break;
+            case F_ATTACHMENT:
+                attachments = Field.getResourceArray(Attachment.class, fields.opt(Field.ATTACHMENT), restclient);
+                break;
+            case F_CHANGE_LOG:
+                changeLog = Field.getResource(ChangeLog.class, rawChangeLog, restclient);
+                break;
+            case F_COMMENT:
+                comments = Field.getComments(fields.opt(Field.COMMENT), restclient, key);
+                break;
+            case F_COMPONENTS:
+                components = Field.getResourceArray(Component.class, fields.opt(Field.COMPONENTS), restclient);
+                break;
+            case F_DESCRIPTION:
+                description = Field.getString(fields.opt(Field.DESCRIPTION));
+                break;
+            case F_DUE_DATE:
+                dueDate = Field.getDate(fields.opt(Field.DUE_DATE));
+                break;
+            case F_FIX_VERSIONS:
+                fixVersions = Field.getResourceArray(Version.class, fields.opt(Field.FIX_VERSIONS), restclient);
+                break;
+            case F_ISSUE_LINKS:
+                issueLinks = Field.getResourceArray(IssueLink.class, fields.opt(Field.ISSUE_LINKS), restclient);
+                break;
+            case F_ISSUE_TYPE:
+                issueType = Field.getResource(IssueType.class, fields.opt(Field.ISSUE_TYPE), restclient);
+                break;
+            case F_LABELS:
+                labels = Field.getStringArray(fields.opt(Field.LABELS));
+                break;
+            case F_PARENT:
+                parent = Field.getResource(Issue.class, fields.opt(Field.PARENT), restclient);
+                break;
+            case F_PRIORITY:
+                priority = Field.getResource(Priority.class, fields.opt(Field.PRIORITY), restclient);
+                break;
+            case F_PROJECT:
+                project = Field.getResource(Project.class, fields.opt(Field.PROJECT), restclient);
+                break;
+            case F_REPORTER:
+                reporter = Field.getResource(User.class, fields.opt(Field.REPORTER), restclient);
+                break;
+            case F_RESOLUTION:
+                resolution = Field.getResource(Resolution.class, fields.opt(Field.RESOLUTION), restclient);
+                break;
+            case F_RESOLUTION_DATE:
+                resolutionDate = Field.getDateTime(fields.opt(Field.RESOLUTION_DATE));
+                break;
+            case F_STATUS:
+                status = Field.getResource(Status.class, fields.opt(Field.STATUS), restclient);
+                break;
+            case F_SUBTASKS:
+                subtasks = Field.getResourceArray(Issue.class, fields.opt(Field.SUBTASKS), restclient);
+                break;
+            case F_SUMMARY:
+                summary = Field.getString(fields.opt(Field.SUMMARY));
+                break;
+            case F_TIME_TRACKING:
+                timeTracking = Field.getTimeTracking(fields.opt(Field.TIME_TRACKING));
+                break;
+            case F_VERSIONS:
+                versions = Field.getResourceArray(Version.class, fields.opt(Field.VERSIONS), restclient);
+                break;
+            case F_VOTES:
+                votes = Field.getResource(Votes.class, fields.opt(Field.VOTES), restclient);
+                break;
+            case F_WATCHES:
+                watches = Field.getResource(Watches.class, fields.opt(Field.WATCHES), restclient);
+                break;
+            case F_WORKLOG:
+                workLogs = Field.getWorkLogs(fields.opt(Field.WORKLOG), restclient);
+                break;
+            case F_TIME_ESTIMATE:
+                timeEstimate = Field.getInteger(fields.opt(Field.TIME_ESTIMATE));
+                break;
+            case F_TIME_SPENT:
+                timeSpent = Field.getInteger(fields.opt(Field.TIME_SPENT));
+                break;
+            case F_CREATED_DATE:
+                createdDate = Field.getDateTime(fields.opt(Field.CREATED_DATE));
+                break;
+            case F_UPDATED_DATE:
+                updatedDate = Field.getDateTime(fields.opt(Field.UPDATED_DATE));
+                break;
+            case F_SECURITY:
+                security = Field.getResource(Security.class, fields.opt(Field.SECURITY), restclient);
+                break;
+        }
+    }
+
+    private void ensure(int field) {
+        if (lazy)
+            materialise(field);
     }
-    
+
     /**
      * Provides the user of a specific user issue field.
      * 
@@ -876,7 +1722,30 @@ public class Issue extends Resource {
         return getBaseUri() + "issue/" + (key != null ? key : "");
     }
 
+    /**
+     * Gets the create metadata of a project and issue type, from the
+     * client's {@link MetadataCache} when one is installed.
+     *
+     * @param restclient REST client instance
+     * @param project Key of the project
+     * @param issueType Name of the issue type
+     *
+     * @return the field metadata
+     *
+     * @throws JiraException when the metadata cannot be retrieved
+     */
     public static JSONObject getCreateMetadata(
+        final RestClient restclient, final String project, final String issueType) throws JiraException {
+
+        MetadataCache cache = restclient.getMetadataCache();
+        if (cache == null)
+            return fetchCreateMetadata(restclient, project, issueType);
+
+        return cache.get(MetadataCache.createKey(project, issueType),
+            () -> fetchCreateMetadata(restclient, project, issueType));
+    }
+
+    private static JSONObject fetchCreateMetadata(
         RestClient restclient, String project, String issueType) throws JiraException {
 
         final String pval = project;
@@ -915,7 +1784,51 @@ public class Issue extends Resource {
         return projects.get(0).getIssueTypes().get(0).getFields();
     }
 
+    /**
+     * Gets the edit metadata of this issue, shared with the other issues of
+     * its project and issue type when a {@link MetadataCache} is installed.
+     *
+     * @return the field metadata
+     *
+     * @throws JiraException when the metadata cannot be retrieved
+     */
     public JSONObject getEditMetadata() throws JiraException {
+        MetadataCache cache = restclient.getMetadataCache();
+        String cacheKey = editMetadataKey();
+
+        if (cache == null || cacheKey == null)
+            return fetchEditMetadata();
+
+        return cache.get(cacheKey, () -> fetchEditMetadata());
+    }
+
+    /**
+     * Gets the metadata cache key of this issue, or null when the project
+     * or issue type is unknown.
+     */
+    String editMetadataKey() {
+        Project p = getProject();
+        IssueType t = getIssueType();
+
+        if (p == null || t == null || p.getKey() == null || t.getName() == null)
+            return null;
+
+        return MetadataCache.editKey(p.getKey(), t.getName());
+    }
+
+    private static void invalidateMetadata(RestClient restclient, String metaKey) {
+        MetadataCache cache = restclient.getMetadataCache();
+        if (cache != null)
+            cache.invalidate(metaKey);
+    }
+
+    private static void schemaError(RestClient restclient, String metaKey, Exception ex) {
+        MetadataCache cache = restclient.getMetadataCache();
+        if (cache != null)
+            cache.invalidateOnSchemaError(metaKey, ex);
+    }
+
+    JSONObject fetchEditMetadata() throws JiraException {
         JSONObject result = null;
 
         try {
@@ -934,7 +1847,47 @@ public class Issue extends Resource {
         return (JSONObject)result.get("fields");
     }
 
+    /**
+     * Gets the transitions available for this issue. With a
+     * {@link MetadataCache} installed they are shared by all issues of the
+     * same project, issue type and status.
+     *
+     * @return the transitions
+     *
+     * @throws JiraException when the transitions cannot be retrieved
+     */
     public List<Transition> getTransitions() throws JiraException {
+        return getTransitions(restclient.getMetadataCache());
+    }
+
+    private List<Transition> getTransitions(MetadataCache cache) throws JiraException {
+        String cacheKey = transitionKey();
+
+        if (cache == null || cacheKey == null)
+            return fetchTransitions();
+
+        return toTransitions(cache.get(cacheKey, () -> fetchTransitionsJson()));
+    }
+
+    /**
+     * Gets the transition cache key of this issue, or null when the project,
+     * issue type or status is unknown.
+     */
+    String transitionKey() {
+        Status st = getStatus();
+        String typeKey = editMetadataKey();
+
+        if (typeKey == null || st == null || st.getId() == null)
+            return null;
+
+        return MetadataCache.transitionKey(getProject().getKey(), getIssueType().getName(), st.getId());
+    }
+
+    private List<Transition> fetchTransitions() throws JiraException {
+        return toTransitions(fetchTransitionsJson());
+    }
+
+    JSONObject fetchTransitionsJson() throws JiraException {
         JSONObject result = null;
 
         try {
@@ -951,6 +1904,10 @@ public class Issue extends Resource {
                 !(result.get("transitions") instanceof JSONArray))
             throw new JiraException("Transition metadata is missing.");
 
+        return result;
+    }
+
+    private List<Transition> toTransitions(JSONObject result) {
         JSONArray transitions = (JSONArray) result.get("transitions");
 
         List<Transition> trans = new ArrayList<Transition>();
@@ -970,11 +1927,7 @@ public class Issue extends Resource {
      * @throws JiraException when the attachment creation fails
      */
     public void addAttachment(File file) throws JiraException {
-        try {
-            restclient.post(getRestUri(key) + "/attachments", file);
-        } catch (Exception ex) {
-            throw new JiraException("Failed add attachment to issue " + key, ex);
-        }
+        addAttachments(new NewAttachment(file));
     }
 
     /**
@@ -1019,13 +1972,28 @@ public class Issue extends Resource {
         if (attachments.length == 0) {
             return;
         }
-        try {
-            restclient.post(getRestUri(key) + "/attachments", attachments);
-        } catch (Exception ex) {
-            throw new JiraException("Failed add attachment to issue " + key, ex);
+
+        List<AttachmentUpload.Result> results = uploadAttachments()
+            .add(attachments)
+            .filesPerRequest(attachments.length)
+            .execute();
+
+        for (AttachmentUpload.Result r : results) {
+            if (!r.isSuccess())
+                throw new JiraException("Failed add attachment to issue " + key, r.getError());
         }
     }
 
+    /**
+     * Prepares a streaming upload of many attachments, optionally split
+     * across parallel requests and with progress reporting.
+     *
+     * @return an attachment upload instance
+     */
+    public AttachmentUpload uploadAttachments() {
+        return new AttachmentUpload(restclient, getRestUri(key) + "/attachments");
+    }
+
     /**
      * Removes an attachments.
      *
@@ -1129,8 +2097,7 @@ public class Issue extends Resource {
               req.put("comment", comment);
               Date date = new Date();
               date.setTime(startDate.getMillis());
-              req.put("started", new SimpleDateFormat(Field.DATETIME_FORMAT).format(date));
-              //req.put("started", DateTimeFormat.forPattern(Field.DATETIME_FORMAT).print(startDate.getMillis()));
+              req.put("started", Field.formatDateTime(date));
               req.put("timeSpent", timeSpent);
 
               JSONObject result = restclient.post(getRestUri(key) + "/worklog", req);
@@ -1231,13 +2198,35 @@ public class Issue extends Resource {
 
         FluentCreate fc = new FluentCreate(
             restclient,
-            getCreateMetadata(restclient, project, issueType));
+            getCreateMetadata(restclient, project, issueType),
+            MetadataCache.createKey(project, issueType));
 
         return fc
             .field(Field.PROJECT, project)
             .field(Field.ISSUE_TYPE, issueType);
     }
 
+    /**
+     * Prepares many new issues in the given project for bulk creation.
+     *
+     * @param restclient REST client instance
+     * @param project Key of the project to create the issues in
+     * @param issueType Name of the issue type to create
+     *
+     * @return a fluent bulk create instance
+     *
+     * @throws JiraException when the client fails to retrieve issue metadata
+     */
+    public static FluentBulkCreate createBulk(RestClient restclient, String project,
+            String issueType) throws JiraException {
+
+        return new FluentBulkCreate(
+            restclient,
+            project,
+            issueType,
+            getCreateMetadata(restclient, project, issueType));
+    }
+
     /**
      * Creates a new sub-task.
      *
@@ -1394,6 +2383,290 @@ public class Issue extends Resource {
         );
     }
 
+    /**
+     * Fetches a single page of search results.
+     *
+     * @return the raw search response
+     *
+     * @throws JiraException when the search fails
+     */
+    static JSONObject searchPage(RestClient restclient, String jql,
+            String includedFields, String expandFields, Integer maxResults,
+            Integer startAt) throws JiraException {
+
+        return searchPage(restclient, jql, includedFields, expandFields,
+                maxResults, startAt, null);
+    }
+
+    /**
+     * Fetches a single page of search results, passing
+     * <code>validateQuery</code> (strict, warn or false) when given.
+     *
+     * @return the raw search response
+     *
+     * @throws JiraException when the search fails
+     */
+    static JSONObject searchPage(RestClient restclient, String jql,
+            String includedFields, String expandFields, Integer maxResults,
+            Integer startAt, String validateQuery) throws JiraException {
+
+        JSONObject result = null;
+
+        try {
+            URI searchUri = createSearchURI(restclient, jql, includedFields,
+                    expandFields, maxResults, startAt, validateQuery);
+            result = restclient.getMap(searchUri);
+        } catch (Exception ex) {
+            throw new JiraException("Failed to search issues", ex);
+        }
+
+        if (result == null) {
+            throw new JiraException("JSON payload is malformed");
+        }
+
+        return result;
+    }
+
+    /**
+     * Retrieves many issues by key. The keys are split into chunks small
+     * enough to keep the search URI within common length limits, and the
+     * chunks are searched in parallel.
+     *
+     * @param restclient REST client instance
+     *
+     * @param keys Issue keys (PROJECT-123) or ids; duplicates are fetched
+     * once, keys of moved or renamed issues find the issue under its
+     * current key, and anything that is neither a key nor an id is
+     * reported missing without a search
+     *
+     * @param includedFields Specifies which issue fields will be included in
+     * the result
+     *
+     * @param expandFields fields to expand when obtaining the issues
+     *
+     * @param executor Executor to run the chunk searches on; the calling
+     * thread searches too, so a saturated executor cannot stall the call
+     *
+     * @param parallelism Maximum number of chunks searched at once
+     *
+     * @return the issues found in request order and the keys not found
+     *
+     * @throws JiraException when a search fails
+     */
+    public static KeyFetchResult getAll(final RestClient restclient,
+            Collection<String> keys, final String includedFields,
+            final String expandFields, ExecutorService executor,
+            int parallelism) throws JiraException {
+
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1");
+
+        /* normalised key -> key as the caller wrote it */
+        LinkedHashMap<String, String> wanted = new LinkedHashMap<String, String>();
+        for (String k : keys) {
+            if (k != null && !k.trim().isEmpty()) {
+                String normalised = k.trim().toUpperCase(Locale.ROOT);
+                if (!wanted.containsKey(normalised))
+                    wanted.put(normalised, k);
+            }
+        }
+
+        List<String> valid = new ArrayList<String>(wanted.size());
+        for (String k : wanted.keySet()) {
+            if (KEY_OR_ID.matcher(k).matches())
+                valid.add(k);
+        }
+
+        final List<List<String>> chunks = chunkKeys(valid);
+        final Map<String, Issue> found = Collections.synchronizedMap(new HashMap<String, Issue>());
+        final AtomicInteger next = new AtomicInteger();
+        Callable<Void> worker = new Callable<Void>() {
+            public Void call() throws JiraException {
+                int c;
+                while ((c = next.getAndIncrement()) < chunks.size()) {
+                    found.putAll(matchKeys(restclient, chunks.get(c),
+                            includedFields, expandFields));
+                }
+                return null;
+            }
+        };
+
+        try {
+            WorkerPool.share(executor, Math.min(parallelism, chunks.size()), worker);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while fetching issues", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof JiraException)
+                throw (JiraException)cause;
+            throw new JiraException("Failed to fetch issues", cause);
+        }
+
+        KeyFetchResult result = new KeyFetchResult();
+        result.issues = new ArrayList<Issue>(found.size());
+        result.missing = new ArrayList<String>();
+
+        /* an old key and the current key or id of one issue yield it once */
+        Set<String> added = new HashSet<String>();
+        for (Map.Entry<String, String> k : wanted.entrySet()) {
+            Issue issue = found.get(k.getKey());
+            if (issue == null)
+                result.missing.add(k.getValue());
+            else if (added.add(issue.getId() != null ? issue.getId() : issue.getKey()))
+                result.issues.add(issue);
+        }
+
+        return result;
+    }
+
+    /**
+     * Splits keys into chunks whose JQL stays below MAX_KEY_JQL_LENGTH
+     * characters and MAX_KEYS_PER_CHUNK keys.
+     */
+    static List<List<String>> chunkKeys(Collection<String> keys) {
+        List<List<String>> chunks = new ArrayList<List<String>>();
+        List<String> current = new ArrayList<String>();
+        int length = 0;
+
+        for (String k : keys) {
+            int cost = k.length() + 3;
+
+            if (!current.isEmpty() &&
+                (length + cost > MAX_KEY_JQL_LENGTH || current.size() == MAX_KEYS_PER_CHUNK)) {
+
+                chunks.add(current);
+                current = new ArrayList<String>();
+                length = 0;
+            }
+
+            current.add(k);
+            length += cost;
+        }
+
+        if (!current.isEmpty())
+            chunks.add(current);
+
+        return chunks;
+    }
+
+    /**
+     * Searches one chunk of normalised keys and maps each key that was found
+     * to its issue. Issues are matched by key or id; a requested key that
+     * JIRA accepted but that matches neither belongs to a moved or renamed
+     * issue, which the search returns under its current key, so those keys
+     * are looked up one at a time.
+     */
+    private static Map<String, Issue> matchKeys(RestClient restclient, List<String> keys,
+            String includedFields, String expandFields) throws JiraException {
+
+        Set<String> rejected = new HashSet<String>();
+        List<Issue> issues = fetchKeys(restclient, keys, includedFields, expandFields, rejected);
+        Map<String, Issue> matched = new HashMap<String, Issue>();
+        Set<String> requested = new HashSet<String>(keys);
+        List<Issue> unmatched = new ArrayList<Issue>();
+
+        for (Issue issue : issues) {
+            String key = issue.getKey() != null ? issue.getKey().toUpperCase(Locale.ROOT) : null;
+            boolean hit = false;
+
+            if (key != null && requested.contains(key)) {
+                matched.put(key, issue);
+                hit = true;
+            }
+            if (issue.getId() != null && requested.contains(issue.getId())) {
+                matched.put(issue.getId(), issue);
+                hit = true;
+            }
+            if (!hit)
+                unmatched.add(issue);
+        }
+
+        List<String> aliases = new ArrayList<String>();
+        for (String k : keys) {
+            if (!matched.containsKey(k) && !rejected.contains(k))
+                aliases.add(k);
+        }
+
+        if (aliases.size() == 1 && unmatched.size() == 1) {
+            matched.put(aliases.get(0), unmatched.get(0));
+        } else {
+            for (String k : aliases) {
+                List<Issue> one = fetchKeys(restclient, Collections.singletonList(k),
+                        includedFields, expandFields, rejected);
+                if (!one.isEmpty())
+                    matched.put(k, one.get(0));
+            }
+        }
+
+        return matched;
+    }
+
+    /**
+     * Searches one chunk of keys, following pages if the server caps the page
+     * size. The search asks JIRA to only warn about keys that do not exist,
+     * and the keys named in the warnings are added to <code>rejected</code>.
+     * Servers that ignore this reject the whole query, so a rejected chunk is
+     * split in half until the bad keys are isolated.
+     */
+    private static List<Issue> fetchKeys(RestClient restclient, List<String> keys,
+            String includedFields, String expandFields, Set<String> rejected)
+            throws JiraException {
+
+        StringBuilder jql = new StringBuilder("key in (");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0)
+                jql.append(',');
+            jql.append('"').append(keys.get(i)).append('"');
+        }
+        jql.append(')');
+
+        List<Issue> issues = new ArrayList<Issue>(keys.size());
+
+        try {
+            int total = Integer.MAX_VALUE;
+            while (issues.size() < total) {
+                JSONObject page = searchPage(restclient, jql.toString(), includedFields,
+                        expandFields, keys.size(), issues.size(), "warn");
+                List<Issue> batch = Field.getResourceArray(Issue.class,
+                        page.opt("issues"), restclient);
+
+                JSONArray warnings = page.optJSONArray("warningMessages");
+                for (int w = 0; warnings != null && w < warnings.length(); w++) {
+                    String warning = warnings.optString(w);
+                    for (String k : keys) {
+                        if (warning.contains("'" + k + "'"))
+                            rejected.add(k);
+                    }
+                }
+
+                total = Field.getInteger(page.opt("total"));
+                if (batch.isEmpty())
+                    break;
+
+                issues.addAll(batch);
+            }
+        } catch (JiraException ex) {
+            if (!(ex.getCause() instanceof RestException) ||
+                ((RestException)ex.getCause()).getHttpStatusCode() != 400)
+                throw ex;
+
+            if (keys.size() == 1) {
+                rejected.add(keys.get(0));
+                return Collections.emptyList();
+            }
+
+            int half = keys.size() / 2;
+            issues.clear();
+            issues.addAll(fetchKeys(restclient, keys.subList(0, half),
+                    includedFields, expandFields, rejected));
+            issues.addAll(fetchKeys(restclient, keys.subList(half, keys.size()),
+                    includedFields, expandFields, rejected));
+        }
+
+        return issues;
+    }
+
     /**
      * Creates the URI to execute a jql search.
      * 
@@ -1403,12 +2676,13 @@ public class Issue extends Resource {
      * @param expandFields
      * @param maxResults
      * @param startAt
+     * @param validateQuery
      * @return the URI to execute a jql search.
      * @throws URISyntaxException
      */
     private static URI createSearchURI(RestClient restclient, String jql,
             String includedFields, String expandFields, Integer maxResults,
-            Integer startAt) throws URISyntaxException {
+            Integer startAt, String validateQuery) throws URISyntaxException {
         Map<String, String> queryParams = new HashMap<String, String>();
         queryParams.put("jql", jql);
         if(maxResults != null){
@@ -1423,6 +2697,9 @@ public class Issue extends Resource {
         if (startAt != null) {
             queryParams.put("startAt", String.valueOf(startAt));
         }
+        if (validateQuery != null) {
+            queryParams.put("validateQuery", validateQuery);
+        }
 
         URI searchUri = restclient.buildURI(getBaseUri() + "search", queryParams);
         return searchUri;
@@ -1495,7 +2772,36 @@ public class Issue extends Resource {
      * @throws JiraException when the client fails to retrieve issue metadata
      */
     public FluentTransition transition() throws JiraException {
-        return new FluentTransition(getTransitions());
+        return transition(restclient.getMetadataCache());
+    }
+
+    /**
+     * Begins a transition field chain looking up transitions in the given
+     * cache.
+     *
+     * @param cache Transition cache or null to fetch the transitions
+     *
+     * @return a fluent transition instance
+     *
+     * @throws JiraException when the client fails to retrieve issue metadata
+     */
+    FluentTransition transition(MetadataCache cache) throws JiraException {
+        String cacheKey = cache != null ? transitionKey() : null;
+        return new FluentTransition(getTransitions(cache), cache, cacheKey);
+    }
+
+    /**
+     * Begins a transition field chain with transitions looked up earlier,
+     * e.g. for another issue in the same status.
+     *
+     * @param transitions Transitions response as returned by JIRA
+     * @param cache Cache holding transitions, or null
+     *
+     * @return a fluent transition instance
+     */
+    FluentTransition transition(JSONObject transitions, MetadataCache cache) {
+        String cacheKey = cache != null ? transitionKey() : null;
+        return new FluentTransition(toTransitions(transitions), cache, cacheKey);
     }
 
     /**
@@ -1506,7 +2812,20 @@ public class Issue extends Resource {
      * @throws JiraException when the client fails to retrieve issue metadata
      */
     public FluentUpdate update() throws JiraException {
-        return new FluentUpdate(getEditMetadata());
+        return new FluentUpdate(getEditMetadata(), restclient.getMetadataCache(), editMetadataKey());
+    }
+
+    /**
+     * Begins an update field chain using edit metadata fetched earlier,
+     * e.g. for another issue of the same project and issue type.
+     *
+     * @param editmeta Edit metadata fields
+     * @param cache Cache holding editmeta, dropped on a field error, or null
+     *
+     * @return a fluent update instance
+     */
+    FluentUpdate update(JSONObject editmeta, MetadataCache cache) {
+        return new FluentUpdate(editmeta, cache, editMetadataKey());
     }
 
     /**
@@ -1585,6 +2904,7 @@ public class Issue extends Resource {
     }
 
     public ChangeLog getChangeLog() {
+        ensure(F_CHANGE_LOG);
         return changeLog;
     }
 
@@ -1593,58 +2913,72 @@ public class Issue extends Resource {
     }
 
     public User getAssignee() {
+        ensure(F_ASSIGNEE);
         return assignee;
     }
 
     public List<Attachment> getAttachments() {
+        ensure(F_ATTACHMENT);
         return attachments;
     }
 
     public List<Comment> getComments() {
+        ensure(F_COMMENT);
         return comments;
     }
 
     public List<Component> getComponents() {
+        ensure(F_COMPONENTS);
         return components;
     }
 
     public String getDescription() {
+        ensure(F_DESCRIPTION);
         return description;
     }
 
     public Date getDueDate() {
+        ensure(F_DUE_DATE);
         return dueDate;
     }
 
     public List<Version> getFixVersions() {
+        ensure(F_FIX_VERSIONS);
         return fixVersions;
     }
 
     public List<IssueLink> getIssueLinks() {
+        ensure(F_ISSUE_LINKS);
         return issueLinks;
     }
 
     public IssueType getIssueType() {
+        ensure(F_ISSUE_TYPE);
         return issueType;
     }
 
     public List<String> getLabels() {
+        ensure(F_LABELS);
         return labels;
     }
 
     public Issue getParent() {
+        ensure(F_PARENT);
         return parent;
     }
 
     public Priority getPriority() {
+        ensure(F_PRIORITY);
         return priority;
     }
 
     public Project getProject() {
+        ensure(F_PROJECT);
         return project;
     }
 
     public User getReporter() {
+        ensure(F_REPORTER);
         return reporter;
     }
 
@@ -1662,42 +2996,52 @@ public class Issue extends Resource {
     }
 
     public Resolution getResolution() {
+        ensure(F_RESOLUTION);
         return resolution;
     }
 
     public Date getResolutionDate() {
+        ensure(F_RESOLUTION_DATE);
         return resolutionDate;
     }
 
     public Status getStatus() {
+        ensure(F_STATUS);
         return status;
     }
 
     public List<Issue> getSubtasks() {
+        ensure(F_SUBTASKS);
         return subtasks;
     }
 
     public String getSummary() {
+        ensure(F_SUMMARY);
         return summary;
     }
 
     public TimeTracking getTimeTracking() {
+        ensure(F_TIME_TRACKING);
         return timeTracking;
     }
 
     public List<Version> getVersions() {
+        ensure(F_VERSIONS);
         return versions;
     }
 
     public Votes getVotes() {
+        ensure(F_VOTES);
         return votes;
     }
 
     public Watches getWatches() {
+        ensure(F_WATCHES);
         return watches;
     }
 
     public List<WorkLog> getWorkLogs() {
+        ensure(F_WORKLOG);
         return workLogs;
     }
 
@@ -1715,22 +3059,27 @@ public class Issue extends Resource {
     }
 
     public Integer getTimeSpent() {
+        ensure(F_TIME_SPENT);
         return timeSpent;
     }
 
     public Integer getTimeEstimate() {
+        ensure(F_TIME_ESTIMATE);
         return timeEstimate;
     }
 
     public Date getCreatedDate() {
+        ensure(F_CREATED_DATE);
         return createdDate;
     }
 
     public Date getUpdatedDate() {
+        ensure(F_UPDATED_DATE);
         return updatedDate;
     }
 
     public Security getSecurity() {
+        ensure(F_SECURITY);
         return security;
     }
 
@@ -39,11 +39,13 @@ public class IssueHistory extends Resource {
         id = Field.getString(json.opt("id"));
         user = new User(restclient, (JSONObject)json.opt("author"));
         created = Field.getDateTime(json.opt("created"));
-        JSONArray items = new JSONArray(json.opt("items"));
-        changes = new ArrayList<IssueHistoryItem>(items.length());
-        for (int i = 0; i < items.length(); i++) {
-            JSONObject p = items.getJSONObject(i);
-            changes.add(new IssueHistoryItem(restclient, p));
+        JSONArray items = json.optJSONArray(Field.CHANGE_LOG_ITEMS);
+        changes = new ArrayList<IssueHistoryItem>(items != null ? items.length() : 0);
+        if (items != null) {
+            for (int i = 0; i < items.length(); i++) {
+                JSONObject p = items.getJSONObject(i);
+                changes.add(new IssueHistoryItem(restclient, p));
+            }
         }
     }
 
@@ -0,0 +1,357 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+
+/**
+ * Follows the changes of the issues matching a query.
+ *
+ * Each {@link #run()} searches for <code>updated &gt;= checkpoint</code> in
+ * ascending order of the update time and reports every issue to the
+ * listener, so the cost of a run follows the rate of change rather than the
+ * number of issues. Pages are read by key rather than by offset: each page
+ * after the first searches again from the update time of the last issue
+ * seen, so an issue edited during the run moves to the end without making
+ * the run skip another. JQL compares dates to the minute, so every run
+ * reaches back by an overlap window before the checkpoint. Issues seen
+ * within that window are remembered by key and update time and not
+ * reported twice.
+ *
+ * The {@link Checkpoint} advances with every reported issue and can be
+ * stored with {@link Checkpoint#toJson()} to continue in a later process.
+ * When a run fails part way, the next one continues after the last issue
+ * reported.
+ */
+public class IssueSync {
+
+    /**
+     * Kind of change reported.
+     */
+    public enum ChangeType {
+        /** the issue was created since the previous run, or this is the first run */
+        CREATED,
+        /** an existing issue was changed */
+        UPDATED
+    }
+
+    /**
+     * Receives changed issues in ascending order of their update time.
+     */
+    public interface Listener {
+        void issueChanged(ChangeType type, Issue issue) throws JiraException;
+    }
+
+    /**
+     * Counts of one run.
+     */
+    public static class Result {
+        public int created = 0;
+        public int updated = 0;
+        public int duplicates = 0;
+    }
+
+    /**
+     * Position of the sync: the latest update time reported and the issues
+     * reported within the overlap window before it.
+     */
+    public static final class Checkpoint {
+        private final long updated;
+        private final Map<String, Long> recent;
+
+        /**
+         * Creates a checkpoint.
+         *
+         * @param updated Latest update time reported, in epoch milliseconds
+         * @param recent Update times of the issues reported in the overlap
+         * window, by issue key
+         */
+        public Checkpoint(long updated, Map<String, Long> recent) {
+            this.updated = updated;
+            this.recent = Collections.unmodifiableMap(new HashMap<String, Long>(recent));
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+
+        public Map<String, Long> getRecent() {
+            return recent;
+        }
+
+        /**
+         * Serialises the checkpoint, e.g. to store it between runs.
+         */
+        public JSONObject toJson() {
+            return new JSONObject()
+                .put("updated", updated)
+                .put("recent", new JSONObject(recent));
+        }
+
+        /**
+         * Reads a checkpoint written by {@link #toJson()}.
+         */
+        public static Checkpoint fromJson(JSONObject json) {
+            Map<String, Long> recent = new HashMap<String, Long>();
+            JSONObject r = json.optJSONObject("recent");
+
+            if (r != null) {
+                for (String key : r.keySet())
+                    recent.put(key, r.getLong(key));
+            }
+
+            return new Checkpoint(json.getLong("updated"), recent);
+        }
+    }
+
+    private static final DateTimeFormatter JQL_DATE =
+        DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm", Locale.ROOT);
+    private static final int PAGE_SIZE = 100;
+
+    private final JiraClient jira;
+    private final String jql;
+    private String includedFields = "*navigable";
+    private long overlap = TimeUnit.MINUTES.toMillis(2);
+    private DateTimeFormatter jqlDate = JQL_DATE.withZone(ZoneId.systemDefault());
+    private Listener listener = null;
+    private volatile Checkpoint checkpoint = null;
+
+    /**
+     * Creates a sync that starts with all matching issues.
+     *
+     * @param jira JIRA client
+     * @param jql Query restricting the issues, e.g. a project, or null for
+     * all issues. Must not contain an ORDER BY clause.
+     */
+    public IssueSync(JiraClient jira, String jql) {
+        if (jira == null)
+            throw new NullPointerException();
+
+        this.jira = jira;
+        this.jql = jql;
+    }
+
+    /**
+     * Sets the fields to retrieve. The created and updated dates are always
+     * included. Defaults to the navigable fields.
+     *
+     * @param includedFields Comma separated field names
+     *
+     * @return the current sync instance
+     */
+    public IssueSync fields(String includedFields) {
+        this.includedFields = includedFields;
+        return this;
+    }
+
+    /**
+     * Sets how far each query reaches back before the checkpoint. Defaults
+     * to two minutes and is at least one, the resolution of JQL dates.
+     *
+     * @param overlap Overlap window
+     * @param unit Unit of the window
+     *
+     * @return the current sync instance
+     */
+    public IssueSync overlap(long overlap, TimeUnit unit) {
+        this.overlap = Math.max(TimeUnit.MINUTES.toMillis(1), unit.toMillis(overlap));
+        return this;
+    }
+
+    /**
+     * Sets the time zone JIRA reads JQL dates in, i.e. that of the user the
+     * client is logged in as. Defaults to the local time zone.
+     *
+     * @param timeZone Time zone of the JIRA user
+     *
+     * @return the current sync instance
+     */
+    public IssueSync timeZone(TimeZone timeZone) {
+        this.jqlDate = JQL_DATE.withZone(timeZone.toZoneId());
+        return this;
+    }
+
+    /**
+     * Sets the listener receiving the changed issues.
+     *
+     * @param listener Listener
+     *
+     * @return the current sync instance
+     */
+    public IssueSync listener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Continues from a stored checkpoint.
+     *
+     * @param checkpoint Checkpoint or null to start over
+     *
+     * @return the current sync instance
+     */
+    public IssueSync checkpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    /**
+     * Gets the current checkpoint, or null before the first issue was
+     * reported.
+     */
+    public Checkpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Reports the issues changed since the checkpoint and advances it.
+     *
+     * @return counts of the run
+     *
+     * @throws JiraException when the search or the listener fails
+     */
+    public Result run() throws JiraException {
+        Checkpoint start = checkpoint;
+        Long bound = start != null ? lowerBound(start.getUpdated()) : null;
+        String fields = includedFields + "," + Field.CREATED_DATE + "," + Field.UPDATED_DATE;
+        Map<String, Long> recent = start != null
+            ? new HashMap<String, Long>(start.getRecent())
+            : new HashMap<String, Long>();
+        long latest = start != null ? start.getUpdated() : Long.MIN_VALUE;
+        Result result = new Result();
+
+        try {
+            int startAt = 0;
+
+            while (true) {
+                Issue.SearchResult page = jira.searchIssues(buildJql(bound), fields, PAGE_SIZE, startAt);
+                long last = bound != null ? bound : Long.MIN_VALUE;
+
+                for (Issue issue : page.issues) {
+                    Date updatedDate = issue.getUpdatedDate();
+                    long updated = updatedDate != null ? updatedDate.getTime() : latest;
+                    Long seen = recent.get(issue.getKey());
+
+                    last = Math.max(last, updated);
+
+                    if (seen != null && seen >= updated) {
+                        result.duplicates++;
+                        continue;
+                    }
+
+                    Date created = issue.getCreatedDate();
+                    ChangeType type = start == null || (created != null && created.getTime() > start.getUpdated())
+                        ? ChangeType.CREATED
+                        : ChangeType.UPDATED;
+
+                    if (listener != null)
+                        listener.issueChanged(type, issue);
+
+                    if (type == ChangeType.CREATED)
+                        result.created++;
+                    else
+                        result.updated++;
+
+                    latest = Math.max(latest, updated);
+                    recent.put(issue.getKey(), updated);
+                }
+
+                if (page.issues.isEmpty() || startAt + page.issues.size() >= page.total)
+                    break;
+
+                /* a page within a single minute cannot move the bound, only the offset can */
+                Long next = floor(last);
+                if (next.equals(bound)) {
+                    startAt += page.issues.size();
+                } else {
+                    bound = next;
+                    startAt = 0;
+                }
+            }
+        } finally {
+            if (latest != Long.MIN_VALUE)
+                checkpoint = new Checkpoint(latest, window(recent, latest));
+        }
+
+        return result;
+    }
+
+    /**
+     * Drops the issues the next query will not return again.
+     */
+    private Map<String, Long> window(Map<String, Long> recent, long latest) {
+        long bound = lowerBound(latest);
+        Iterator<Map.Entry<String, Long>> it = recent.entrySet().iterator();
+
+        while (it.hasNext()) {
+            if (it.next().getValue() < bound)
+                it.remove();
+        }
+
+        return recent;
+    }
+
+    /**
+     * Gets the lower bound of the query following a checkpoint: the overlap
+     * window before it, floored to the minute as JQL compares dates.
+     */
+    long lowerBound(long updated) {
+        return floor(updated - overlap);
+    }
+
+    /**
+     * Floors a time to the minute in the zone JQL dates are read in.
+     */
+    private long floor(long time) {
+        return Instant.ofEpochMilli(time)
+            .atZone(jqlDate.getZone())
+            .truncatedTo(ChronoUnit.MINUTES)
+            .toInstant()
+            .toEpochMilli();
+    }
+
+    String buildJql(Long since) {
+        StringBuilder q = new StringBuilder();
+
+        if (jql != null && !jql.trim().isEmpty())
+            q.append('(').append(jql).append(')');
+
+        if (since != null) {
+            if (q.length() > 0)
+                q.append(" AND ");
+            q.append("updated >= \"").append(jqlDate.format(Instant.ofEpochMilli(since))).append('"');
+        }
+
+        return q.append(" ORDER BY updated ASC, key ASC").toString();
+    }
+}
@@ -19,27 +19,30 @@
 
 package net.rcarz.jiraclient;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.apache.http.client.HttpClient;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 /**
  * A simple JIRA REST client.
  */
-public class JiraClient {
+public class JiraClient implements Closeable {
 
     private RestClient restclient = null;
     private String username = null;
+    private volatile AsyncJiraClient async = null;
+    private CloseableHttpClient ownedClient = null;
+    private ChangeLogReader changeLogReader = null;
 
     /**
      * Creates a JIRA client.
@@ -71,14 +74,32 @@ public class JiraClient {
      * @throws JiraException 
      */
     public JiraClient(HttpClient httpClient, String uri, ICredentials creds) throws JiraException {
+        this(httpClient, uri, creds, null);
+    }
+
+    /**
+     * Creates an authenticated JIRA client with custom connection settings.
+     *
+     * @param uri Base URI of the JIRA server
+     * @param creds Credentials to authenticate with
+     * @param config Connection pool, timeout and keep-alive settings
+     * @throws JiraException 
+     */
+    public JiraClient(String uri, ICredentials creds, JiraClientConfig config) throws JiraException {
+        this(null, uri, creds, config);
+    }
+
+    private JiraClient(HttpClient httpClient, String uri, ICredentials creds,
+            JiraClientConfig config) throws JiraException {
+
         if (httpClient == null) {
-            PoolingClientConnectionManager connManager = new PoolingClientConnectionManager();
-            connManager.setDefaultMaxPerRoute(20);
-            connManager.setMaxTotal(40);
-            httpClient = new DefaultHttpClient(connManager);
+            ownedClient = (config != null ? config : JiraClientConfig.defaults()).createHttpClient();
+            httpClient = ownedClient;
         }
 
         restclient = new RestClient(httpClient, creds, URI.create(uri));
+        /* shared so it remembers when the server lacks the changelog resource */
+        changeLogReader = new ChangeLogReader(restclient);
 
         if (creds != null) {
             username = creds.getLogonName();
@@ -87,6 +108,15 @@ public class JiraClient {
         }
     }
 
+    /**
+     * Releases the connection pool of the HTTP client created by this JIRA
+     * client. A custom HttpClient passed to the constructor is left open.
+     */
+    public void close() throws IOException {
+        if (ownedClient != null)
+            ownedClient.close();
+    }
+
     /**
      * Creates a new issue in the given project.
      *
@@ -103,6 +133,22 @@ public class JiraClient {
         return Issue.create(restclient, project, issueType);
     }
 
+    /**
+     * Prepares many new issues in the given project for bulk creation.
+     *
+     * @param project Key of the project to create in
+     * @param issueType Name of the issue type to create
+     *
+     * @return a fluent bulk create instance
+     *
+     * @throws JiraException when something goes wrong
+     */
+    public Issue.FluentBulkCreate createIssues(String project, String issueType)
+            throws JiraException {
+
+        return Issue.createBulk(restclient, project, issueType);
+    }
+
     /**
      * Retreives the issue with the given key.
      *
@@ -372,6 +418,59 @@ public class JiraClient {
         );
     }
 
+    /**
+     * Retrieves many issues by key in as few searches as possible. Keys are
+     * grouped into <code>key in (...)</code> queries that stay within URI
+     * length limits, and up to eight of these run in parallel.
+     *
+     * @param keys Issue keys (PROJECT-123)
+     *
+     * @param includedFields Specifies which issue fields will be included in
+     * the result (see {@link #getIssue(String, String)})
+     *
+     * @param expand fields to expand when obtaining the issues
+     *
+     * @return the issues in request order, plus any keys that were not found
+     *
+     * @throws JiraException when a search fails
+     */
+    public Issue.KeyFetchResult getIssues(Collection<String> keys, String includedFields,
+            String expand) throws JiraException {
+
+        return Issue.getAll(restclient, keys, includedFields, expand,
+                AsyncJiraClient.getDefaultExecutor(), 8);
+    }
+
+    /**
+     * Moves all issues matching a query through the named transition. The
+     * transitions are looked up once per project, issue type and status,
+     * using the installed {@link MetadataCache} or else one for this run,
+     * and up to eight transitions run at once.
+     *
+     * @param jql JQL statement
+     * @param name Transition name, e.g. "Done"
+     * @param fields Fields to set on the transition screen, or null
+     *
+     * @return the totals of the run with a failure per issue that could
+     * not be transitioned
+     *
+     * @throws JiraException when the search fails or the run is interrupted
+     *
+     * @see BulkTransition
+     */
+    public BulkTransition.Report transitionAll(String jql, String name,
+            Map<String, Object> fields) throws JiraException {
+
+        BulkTransition bulk = new BulkTransition(this, name).parallelism(8);
+
+        if (fields != null) {
+            for (Map.Entry<String, Object> ent : fields.entrySet())
+                bulk.field(ent.getKey(), ent.getValue());
+        }
+
+        return bulk.execute(jql);
+    }
+
     /**
      * Retrieve the jira filter with the supplied id.
      * @param id id of the filter to retreive.
@@ -447,6 +546,103 @@ public class JiraClient {
         return componentOptions;
     }
 
+    /**
+     * Gets an asynchronous view of this client running on the shared
+     * default executor.
+     *
+     * @return an async client
+     */
+    public AsyncJiraClient async() {
+        AsyncJiraClient result = async;
+
+        if (result == null) {
+            result = new AsyncJiraClient(this, AsyncJiraClient.getDefaultExecutor());
+            async = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets an asynchronous view of this client running on the given executor.
+     *
+     * @param executor Executor to run blocking calls on
+     *
+     * @return an async client
+     */
+    public AsyncJiraClient async(Executor executor) {
+        return new AsyncJiraClient(this, executor);
+    }
+
+    /**
+     * Caches responses of slow-changing endpoints such as priorities, issue
+     * types, projects, versions and components.
+     *
+     * @param cache Response cache, e.g. {@link ResponseCache#metadata(int)},
+     * or null to disable caching
+     */
+    public void setResponseCache(ResponseCache cache) {
+        restclient.setResponseCache(cache);
+    }
+
+    /**
+     * Gets the response cache, or null when caching is disabled.
+     */
+    public ResponseCache getResponseCache() {
+        return restclient.getResponseCache();
+    }
+
+    /**
+     * Revalidates GET responses with ETag and Last-Modified validators so
+     * unchanged resources are answered with 304 Not Modified.
+     *
+     * @param cache Conditional cache or null to disable revalidation
+     */
+    public void setConditionalCache(ConditionalCache cache) {
+        restclient.setConditionalCache(cache);
+    }
+
+    /**
+     * Caches create and edit metadata by project and issue type, e.g.
+     * <code>new MetadataCache(15, TimeUnit.MINUTES)</code>.
+     *
+     * @param cache Metadata cache or null to fetch metadata on every use
+     */
+    public void setMetadataCache(MetadataCache cache) {
+        restclient.setMetadataCache(cache);
+    }
+
+    /**
+     * Rate limits requests and retries them when JIRA answers with 429 Too
+     * Many Requests or 503 Service Unavailable.
+     *
+     * @param scheduler Request scheduler or null to send requests directly
+     */
+    public void setRequestScheduler(RequestScheduler scheduler) {
+        restclient.setRequestScheduler(scheduler);
+    }
+
+    /**
+     * Reports every request with its endpoint, status, timings and sizes,
+     * e.g. to a {@link RequestMetrics} collector.
+     *
+     * @param listener Request listener or null to disable reporting
+     */
+    public void setRequestListener(RequestListener listener) {
+        restclient.setRequestListener(listener);
+    }
+
+    /**
+     * Builds the typed values of issue fields on first access instead of
+     * when the issue is read, which saves work when only a few fields of
+     * many issues are used.
+     *
+     * @param lazy true to materialise fields on first access
+     */
+    public void setLazyFields(boolean lazy) {
+        restclient.setLazyFields(lazy);
+    }
+
     public RestClient getRestClient() {
         return restclient;
     }
@@ -559,50 +755,33 @@ public class JiraClient {
         return result;
     }
 
+    /**
+     * Retrieves the change log of an issue, page by page.
+     *
+     * @param issue Issue to read the change log of
+     *
+     * @return the history records, oldest first
+     *
+     * @throws JiraException when the retrieval fails
+     */
     public ArrayList<IssueHistory> getIssueChangeLog(Issue issue) throws JiraException {
-        try {
-            ArrayList<IssueHistory> changes = null;
-            JSONObject response = getNextPortion(issue, 0);
-
-            while (true) {
-                JSONObject object = new JSONObject(response);
-                Object opers = object.opt("changelog");
-                object = new JSONObject(opers);
-                Integer totalObj = object.optInt("total");
-                JSONArray histories = new JSONArray(object.get("histories"));
-
-                if (changes == null) {
-                    changes = new ArrayList<IssueHistory>(totalObj);
-                }
-
-                for (int i = 0; i < histories.length(); i++) {
-                    JSONObject p = histories.getJSONObject(i);
-                    changes.add(new IssueHistory(restclient, p));
-                }
-
-                if (changes.size() >= totalObj) {
-                    break;
-                } else {
-                    response = getNextPortion(issue,changes.size());
-                }
-            } 
-           
-            return changes;
-        } catch (Exception ex) {
-            throw new JiraException(ex.getMessage(), ex);
-        }
+        return changeLogReader.read(issue.getKey() != null ? issue.getKey() : issue.getId());
     }
 
-    private JSONObject getNextPortion(Issue issue, Integer startAt)
-            throws URISyntaxException, RestException, IOException {
-
-        Map<String, String> params = new HashMap<String, String>();
-        if (startAt != null) {
-            params.put("startAt", String.valueOf(startAt));
-        }
+    /**
+     * Streams the change logs of all issues matching a query to a listener,
+     * reading them with the search pages rather than issue by issue.
+     *
+     * @param jql JQL statement
+     * @param listener Listener receiving the history records
+     *
+     * @return counts of the run
+     *
+     * @throws JiraException when the retrieval fails
+     */
+    public ChangeLogReader.Result getChangeLogs(String jql, ChangeLogReader.Listener listener)
+            throws JiraException {
 
-        params.put("expand","changelog.fields");
-        URI uri = restclient.buildURI(Issue.getBaseUri() + "issue/" + issue.id, params);
-        return restclient.getMap(uri);
+        return changeLogReader.readAll(jql, listener);
     }
 }
@@ -0,0 +1,245 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Connection settings for the HTTP client created by {@link JiraClient}.
+ *
+ * Use {@link #builder()} to change the defaults: 40 connections in total,
+ * 20 per host, 30 second connect timeout, 2 minute socket timeout, 1 minute
+ * wait for a pooled connection, keep-alive as announced by the server but
+ * at most 1 minute, and eviction of connections idle for 1 minute.
+ */
+public final class JiraClientConfig {
+
+    /**
+     * Builds a configuration.
+     */
+    public static final class Builder {
+        private int maxTotal = 40;
+        private int maxPerRoute = 20;
+        private long connectTimeout = TimeUnit.SECONDS.toMillis(30);
+        private long socketTimeout = TimeUnit.MINUTES.toMillis(2);
+        private long poolTimeout = TimeUnit.MINUTES.toMillis(1);
+        private long keepAlive = TimeUnit.MINUTES.toMillis(1);
+        private long maxIdle = TimeUnit.MINUTES.toMillis(1);
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum number of open connections.
+         */
+        public Builder maxTotalConnections(int max) {
+            if (max < 1)
+                throw new IllegalArgumentException("max must be at least 1");
+
+            this.maxTotal = max;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of open connections to one host.
+         */
+        public Builder maxConnectionsPerRoute(int max) {
+            if (max < 1)
+                throw new IllegalArgumentException("max must be at least 1");
+
+            this.maxPerRoute = max;
+            return this;
+        }
+
+        /**
+         * Sets how long to wait for a connection to be established. Zero
+         * waits forever.
+         */
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeout = toMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Sets how long to wait for data on an open connection. Zero waits
+         * forever.
+         */
+        public Builder socketTimeout(long timeout, TimeUnit unit) {
+            this.socketTimeout = toMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Sets how long to wait for a free connection from the pool. Zero
+         * waits forever.
+         */
+        public Builder connectionRequestTimeout(long timeout, TimeUnit unit) {
+            this.poolTimeout = toMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Sets the longest time an idle connection is kept for reuse, also
+         * when the server announces a longer keep-alive. Zero keeps
+         * connections as long as the server allows.
+         */
+        public Builder keepAlive(long duration, TimeUnit unit) {
+            this.keepAlive = toMillis(duration, unit);
+            return this;
+        }
+
+        /**
+         * Sets after how long a background thread closes idle pooled
+         * connections. Zero disables eviction.
+         */
+        public Builder evictIdleConnections(long duration, TimeUnit unit) {
+            this.maxIdle = toMillis(duration, unit);
+            return this;
+        }
+
+        public JiraClientConfig build() {
+            return new JiraClientConfig(this);
+        }
+
+        private static long toMillis(long value, TimeUnit unit) {
+            if (value < 0)
+                throw new IllegalArgumentException("value must not be negative");
+
+            return unit.toMillis(value);
+        }
+    }
+
+    private final int maxTotal;
+    private final int maxPerRoute;
+    private final long connectTimeout;
+    private final long socketTimeout;
+    private final long poolTimeout;
+    private final long keepAlive;
+    private final long maxIdle;
+
+    private JiraClientConfig(Builder b) {
+        this.maxTotal = Math.max(b.maxTotal, b.maxPerRoute);
+        this.maxPerRoute = b.maxPerRoute;
+        this.connectTimeout = b.connectTimeout;
+        this.socketTimeout = b.socketTimeout;
+        this.poolTimeout = b.poolTimeout;
+        this.keepAlive = b.keepAlive;
+        this.maxIdle = b.maxIdle;
+    }
+
+    /**
+     * Starts a configuration with the default settings.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the default configuration.
+     */
+    public static JiraClientConfig defaults() {
+        return builder().build();
+    }
+
+    /**
+     * Creates a pooled HTTP client with these settings. Cookies are kept
+     * between requests so session based logins keep working.
+     *
+     * @return a new HTTP client
+     */
+    public CloseableHttpClient createHttpClient() {
+        PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager();
+        connManager.setMaxTotal(maxTotal);
+        connManager.setDefaultMaxPerRoute(maxPerRoute);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(asInt(connectTimeout))
+            .setSocketTimeout(asInt(socketTimeout))
+            .setConnectionRequestTimeout(asInt(poolTimeout))
+            .build();
+
+        HttpClientBuilder builder = HttpClientBuilder.create()
+            .setConnectionManager(connManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy(keepAliveStrategy());
+
+        if (maxIdle > 0)
+            builder.evictExpiredConnections().evictIdleConnections(maxIdle, TimeUnit.MILLISECONDS);
+
+        return builder.build();
+    }
+
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        final long cap = keepAlive;
+
+        return new ConnectionKeepAliveStrategy() {
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long announced = DefaultConnectionKeepAliveStrategy.INSTANCE
+                    .getKeepAliveDuration(response, context);
+
+                if (cap <= 0)
+                    return announced;
+
+                return announced > 0 ? Math.min(announced, cap) : cap;
+            }
+        };
+    }
+
+    private static int asInt(long millis) {
+        return (int) Math.min(millis, Integer.MAX_VALUE);
+    }
+
+    public int getMaxTotalConnections() {
+        return maxTotal;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxPerRoute;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeout;
+    }
+
+    public long getSocketTimeoutMillis() {
+        return socketTimeout;
+    }
+
+    public long getConnectionRequestTimeoutMillis() {
+        return poolTimeout;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAlive;
+    }
+
+    public long getEvictIdleMillis() {
+        return maxIdle;
+    }
+}
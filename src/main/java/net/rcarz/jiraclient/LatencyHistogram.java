@@ -0,0 +1,156 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free histogram of non-negative values such as
+ * latencies in nanoseconds.
+ *
+ * Values are counted in log-linear buckets: each power of two is split
+ * into 32 buckets, so recorded values are kept to within about 3%.
+ * Values above 2^40 (about 18 minutes in nanoseconds) are counted in the
+ * highest bucket. Recording is a few array and atomic increments and never
+ * allocates.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Immutable copy of a histogram at one point in time.
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count > 0 ? (double) sum / count : 0;
+        }
+
+        /**
+         * Gets the value below or at which the given share of the recorded
+         * values fall.
+         *
+         * @param percentile Percentile between 0 and 100, e.g. 99.9
+         *
+         * @return the upper bound of the matching bucket, never above the
+         * largest recorded value, or 0 when nothing was recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            long total = 0;
+            for (long c : counts)
+                total += c;
+
+            if (total == 0)
+                return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+            long seen = 0;
+
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank)
+                    return Math.min(highestEquivalent(i), max);
+            }
+
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.0f p50=%d p99=%d max=%d",
+                count, getMean(), getValueAtPercentile(50), getValueAtPercentile(99), max);
+        }
+    }
+
+    private static final int SUB_BITS = 5;
+    private static final int HALF = 1 << SUB_BITS;
+    private static final int MAX_BIT = 40;
+    private static final long MAX_VALUE = (1L << MAX_BIT) - 1;
+    static final int BUCKETS = 2 * HALF + (MAX_BIT - SUB_BITS - 1) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value. Negative values are counted as 0.
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+
+        counts.incrementAndGet(indexOf(Math.min(value, MAX_VALUE)));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value))
+            m = max.get();
+    }
+
+    /**
+     * Copies the current counts. Values recorded during the copy may or may
+     * not be included.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            copy[i] = counts.get(i);
+
+        return new Snapshot(copy, count.get(), sum.get(), max.get());
+    }
+
+    static int indexOf(long value) {
+        if (value < 2 * HALF)
+            return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return 2 * HALF + (shift - 1) * HALF + (int) ((value >>> shift) - HALF);
+    }
+
+    static long highestEquivalent(int index) {
+        if (index < 2 * HALF)
+            return index;
+
+        int shift = (index - 2 * HALF) / HALF + 1;
+        long sub = (index - 2 * HALF) % HALF + HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+}
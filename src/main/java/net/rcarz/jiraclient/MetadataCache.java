@@ -0,0 +1,283 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONObject;
+
+/**
+ * Caches create and edit metadata by project and issue type, and
+ * transitions by project, issue type and status.
+ *
+ * Creating an issue needs the create metadata of its project and issue type,
+ * updating one needs its edit metadata and transitioning one needs the list
+ * of its transitions. They are often larger than the change being written.
+ * With a cache installed on the {@link RestClient}, {@link Issue#create},
+ * {@link Issue#update()}, {@link Issue#transition()}, the bulk operations and
+ * the allowed value helpers of {@link JiraClient} fetch them once per key and
+ * time to live. Concurrent misses for the same key share one request.
+ *
+ * Expired entries are refetched on the next use. With
+ * {@link #staleWhileRevalidate(Executor)} they are returned immediately
+ * instead while one background request refreshes them. When a write fails
+ * with a field error the entry is dropped, so the next call sees the
+ * current schema.
+ *
+ * Edit metadata is shared by all issues of a project and issue type even
+ * though JIRA may hide fields depending on the workflow status. Likewise
+ * transitions guarded by conditions on the issue may not apply to every
+ * issue in a status. When a transition is missing from the cached list or
+ * JIRA rejects a cached one, the issue's own transitions are fetched and
+ * used for that issue; the entry is only dropped when it is stale for the
+ * transition in question. Cached JSON values are shared between callers
+ * and must not be modified.
+ */
+public class MetadataCache {
+
+    /**
+     * Fetches metadata on a miss.
+     */
+    interface Loader {
+        JSONObject load() throws JiraException;
+    }
+
+    private static final class Entry {
+        final FutureTask<JSONObject> task;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile long expires = Long.MAX_VALUE;
+
+        Entry(FutureTask<JSONObject> task) {
+            this.task = task;
+        }
+    }
+
+    private final long ttlNanos;
+    private volatile Executor revalidator = null;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param ttl How long metadata is used before it is fetched again
+     * @param unit Unit of the time to live
+     */
+    public MetadataCache(long ttl, TimeUnit unit) {
+        if (ttl <= 0)
+            throw new IllegalArgumentException("ttl must be positive");
+
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * Returns expired metadata right away and refreshes it in the
+     * background. A failed refresh keeps the old metadata until the next
+     * attempt.
+     *
+     * @param executor Executor running the refresh requests, or null to
+     * refetch expired metadata in the calling thread
+     *
+     * @return the current cache instance
+     */
+    public MetadataCache staleWhileRevalidate(Executor executor) {
+        this.revalidator = executor;
+        return this;
+    }
+
+    static String createKey(String project, String issueType) {
+        return "create|" + project + "|" + issueType;
+    }
+
+    static String editKey(String project, String issueType) {
+        return "edit|" + project + "|" + issueType;
+    }
+
+    static String transitionKey(String project, String issueType, String statusId) {
+        return "transitions|" + project + "|" + issueType + "|" + statusId;
+    }
+
+    /**
+     * Gets cached metadata or loads it.
+     *
+     * @param key Cache key from {@link #createKey} or {@link #editKey}
+     * @param loader Fetches the metadata
+     *
+     * @return the metadata
+     *
+     * @throws JiraException when loading fails
+     */
+    JSONObject get(final String key, final Loader loader) throws JiraException {
+        for (;;) {
+            Entry entry = entries.get(key);
+
+            if (entry == null) {
+                Entry created = new Entry(task(loader));
+                entry = entries.putIfAbsent(key, created);
+
+                if (entry == null) {
+                    misses.incrementAndGet();
+                    return load(key, created);
+                }
+            }
+
+            if (!entry.task.isDone())
+                return await(key, entry);
+
+            if (System.nanoTime() - entry.expires < 0) {
+                hits.incrementAndGet();
+                return await(key, entry);
+            }
+
+            Executor executor = revalidator;
+            if (executor != null) {
+                staleHits.incrementAndGet();
+                revalidate(key, entry, loader, executor);
+                return await(key, entry);
+            }
+
+            Entry fresh = new Entry(task(loader));
+            if (entries.replace(key, entry, fresh)) {
+                misses.incrementAndGet();
+                return load(key, fresh);
+            }
+        }
+    }
+
+    private static FutureTask<JSONObject> task(final Loader loader) {
+        return new FutureTask<JSONObject>(() -> loader.load());
+    }
+
+    private JSONObject load(String key, Entry entry) throws JiraException {
+        entry.task.run();
+        entry.expires = System.nanoTime() + ttlNanos;
+        return await(key, entry);
+    }
+
+    private JSONObject await(String key, Entry entry) throws JiraException {
+        try {
+            return entry.task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while retrieving issue metadata", ex);
+        } catch (ExecutionException ex) {
+            entries.remove(key, entry);
+            if (ex.getCause() instanceof JiraException)
+                throw (JiraException) ex.getCause();
+            throw new JiraException("Failed to retrieve issue metadata", ex.getCause());
+        }
+    }
+
+    private void revalidate(final String key, final Entry stale, final Loader loader, Executor executor) {
+        if (!stale.refreshing.compareAndSet(false, true))
+            return;
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    Entry fresh = new Entry(task(loader));
+                    fresh.task.run();
+
+                    try {
+                        fresh.task.get();
+                        fresh.expires = System.nanoTime() + ttlNanos;
+                        entries.replace(key, stale, fresh);
+                    } catch (Exception ex) {
+                        stale.refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            stale.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Drops the create and edit metadata and the transitions of a project
+     * and issue type.
+     *
+     * @param project Project key
+     * @param issueType Issue type name
+     */
+    public void invalidate(String project, String issueType) {
+        entries.remove(createKey(project, issueType));
+        entries.remove(editKey(project, issueType));
+
+        String prefix = transitionKey(project, issueType, "");
+        for (String key : entries.keySet()) {
+            if (key.startsWith(prefix))
+                entries.remove(key);
+        }
+    }
+
+    void invalidate(String key) {
+        if (key != null)
+            entries.remove(key);
+    }
+
+    /**
+     * Drops all metadata.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Drops the entry when a write was rejected with 400 Bad Request,
+     * which JIRA answers for unknown fields and invalid values.
+     */
+    void invalidateOnSchemaError(String key, Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof RestException && ((RestException) t).getHttpStatusCode() == 400) {
+                invalidate(key);
+                return;
+            }
+        }
+    }
+
+    /** Number of metadata entries held */
+    public int size() {
+        return entries.size();
+    }
+
+    /** Number of lookups answered with fresh metadata */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /** Number of lookups that fetched metadata */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /** Number of lookups answered with expired metadata */
+    public long getStaleHitCount() {
+        return staleHits.get();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+/**
+ * Receives an event for every request made by a {@link RestClient}, e.g.
+ * to feed a metrics library. {@link RequestMetrics} is a built-in
+ * implementation that keeps latency histograms per endpoint.
+ *
+ * Listeners are called on the requesting thread after the response has
+ * been read, so they must be thread safe and should return quickly.
+ * Exceptions thrown by a listener are ignored.
+ */
+public interface RequestListener {
+
+    /**
+     * How a GET request was answered by the client side caches.
+     */
+    enum CacheResult {
+        /** no cache was involved */
+        NONE,
+        /** served from the response cache without contacting the server */
+        HIT,
+        /** the server answered 304 Not Modified to a conditional request */
+        REVALIDATED
+    }
+
+    /**
+     * Measurements of one request. Times are in nanoseconds.
+     */
+    class Event {
+        /** path below the base URI with ids and keys replaced, e.g. /rest/api/2/issue/{key} */
+        public final String endpoint;
+        public final String method;
+        /** HTTP status, or 0 when no response was received */
+        public int status = 0;
+        /** time spent waiting for the rate limit and between retries */
+        public long queueNanos = 0;
+        /** time from sending the final attempt to receiving its response headers */
+        public long firstByteNanos = 0;
+        /** time from starting the request to having read the response */
+        public long totalNanos = 0;
+        /** request body size, or 0 when unknown */
+        public long requestBytes = 0;
+        /** response body bytes read */
+        public long responseBytes = 0;
+        /** number of retries made by the {@link RequestScheduler} */
+        public int retries = 0;
+        public CacheResult cache = CacheResult.NONE;
+        /** failure of the request, or null on success */
+        public Exception error = null;
+
+        public Event(String endpoint, String method) {
+            this.endpoint = endpoint;
+            this.method = method;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s %d %.1f ms", method, endpoint, status, totalNanos / 1e6);
+        }
+    }
+
+    /**
+     * Called once a request has completed, successfully or not.
+     *
+     * @param event Measurements of the request
+     */
+    void requestCompleted(Event event);
+}
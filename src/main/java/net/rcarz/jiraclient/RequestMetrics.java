@@ -0,0 +1,140 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects request counts, sizes and latency histograms per endpoint, e.g.
+ * <code>jira.setRequestListener(metrics = new RequestMetrics())</code>
+ * followed by <code>metrics.snapshot()</code> to see which endpoints take
+ * the most time.
+ *
+ * Endpoints are keyed by method and template, e.g.
+ * <code>GET /rest/api/2/issue/{key}</code>.
+ */
+public class RequestMetrics implements RequestListener {
+
+    /**
+     * Totals of one endpoint at one point in time.
+     */
+    public static class EndpointSnapshot {
+        public long requests;
+        /** responses with status 400 and above, and failed requests */
+        public long errors;
+        public long retries;
+        public long cacheHits;
+        public long revalidated;
+        public long requestBytes;
+        public long responseBytes;
+        public LatencyHistogram.Snapshot total;
+        public LatencyHistogram.Snapshot firstByte;
+        public LatencyHistogram.Snapshot queue;
+
+        @Override
+        public String toString() {
+            return String.format("%d req %d err %d retries %d cached, %d B out, %d B in, total [%s]",
+                requests, errors, retries, cacheHits + revalidated, requestBytes, responseBytes, total);
+        }
+    }
+
+    /**
+     * Live counters of one endpoint.
+     */
+    private static class Endpoint {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+        final AtomicLong cacheHits = new AtomicLong();
+        final AtomicLong revalidated = new AtomicLong();
+        final AtomicLong requestBytes = new AtomicLong();
+        final AtomicLong responseBytes = new AtomicLong();
+        final LatencyHistogram total = new LatencyHistogram();
+        final LatencyHistogram firstByte = new LatencyHistogram();
+        final LatencyHistogram queue = new LatencyHistogram();
+
+        EndpointSnapshot snapshot() {
+            EndpointSnapshot s = new EndpointSnapshot();
+            s.requests = requests.get();
+            s.errors = errors.get();
+            s.retries = retries.get();
+            s.cacheHits = cacheHits.get();
+            s.revalidated = revalidated.get();
+            s.requestBytes = requestBytes.get();
+            s.responseBytes = responseBytes.get();
+            s.total = total.snapshot();
+            s.firstByte = firstByte.snapshot();
+            s.queue = queue.snapshot();
+            return s;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+
+    @Override
+    public void requestCompleted(Event event) {
+        String key = event.method + " " + event.endpoint;
+        Endpoint e = endpoints.get(key);
+        if (e == null)
+            e = endpoints.computeIfAbsent(key, k -> new Endpoint());
+
+        e.requests.incrementAndGet();
+        if (event.error != null || event.status >= 400)
+            e.errors.incrementAndGet();
+        if (event.retries > 0)
+            e.retries.addAndGet(event.retries);
+        if (event.cache == CacheResult.HIT)
+            e.cacheHits.incrementAndGet();
+        else if (event.cache == CacheResult.REVALIDATED)
+            e.revalidated.incrementAndGet();
+
+        e.requestBytes.addAndGet(event.requestBytes);
+        e.responseBytes.addAndGet(event.responseBytes);
+        e.total.record(event.totalNanos);
+
+        if (event.cache != CacheResult.HIT) {
+            e.firstByte.record(event.firstByteNanos);
+            e.queue.record(event.queueNanos);
+        }
+    }
+
+    /**
+     * Gets the totals of every endpoint seen so far.
+     *
+     * @return endpoint totals sorted by key
+     */
+    public Map<String, EndpointSnapshot> snapshot() {
+        Map<String, EndpointSnapshot> result = new TreeMap<String, EndpointSnapshot>();
+        for (Map.Entry<String, Endpoint> ent : endpoints.entrySet())
+            result.put(ent.getKey(), ent.getValue().snapshot());
+
+        return result;
+    }
+
+    /**
+     * Forgets all endpoints, e.g. after publishing a snapshot.
+     */
+    public void reset() {
+        endpoints.clear();
+    }
+}
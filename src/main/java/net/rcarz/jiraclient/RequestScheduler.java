@@ -0,0 +1,404 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Paces and retries the requests of a {@link RestClient}.
+ *
+ * Requests to each host draw from a token bucket. Idempotent requests (GET,
+ * HEAD, PUT, DELETE and OPTIONS) answered with 429 Too Many Requests or
+ * 503 Service Unavailable are retried after an exponential backoff with full
+ * jitter, and never sooner than the server's Retry-After. Retries draw from
+ * a budget that only refills as first attempts are made, so during an
+ * outage retries cannot multiply the load. With adaptive pacing the bucket
+ * halves its rate on each throttled response and creeps back up to the
+ * configured rate as requests succeed.
+ */
+public class RequestScheduler {
+
+    /**
+     * Builds a scheduler.
+     */
+    public static final class Builder {
+        private double rate = 0;
+        private int burst = 1;
+        private boolean adaptive = false;
+        private int maxRetries = 3;
+        private long baseDelay = 500;
+        private long maxDelay = TimeUnit.SECONDS.toMillis(30);
+        private long maxRetryAfter = TimeUnit.MINUTES.toMillis(2);
+        private double budgetRatio = 0.1;
+        private int budgetMin = 10;
+
+        private Builder() {
+        }
+
+        /**
+         * Limits requests per host. Without a limit requests are only
+         * retried, never delayed up front.
+         *
+         * @param permitsPerSecond Sustained request rate
+         * @param burst Number of requests that may be sent at once
+         */
+        public Builder rateLimit(double permitsPerSecond, int burst) {
+            if (permitsPerSecond <= 0 || burst < 1)
+                throw new IllegalArgumentException("rate and burst must be positive");
+
+            this.rate = permitsPerSecond;
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * Lowers the rate on throttling and recovers it on success. Needs
+         * a rate limit.
+         */
+        public Builder adaptive(boolean adaptive) {
+            this.adaptive = adaptive;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of retries of one request. Zero disables
+         * retries.
+         */
+        public Builder maxRetries(int maxRetries) {
+            if (maxRetries < 0)
+                throw new IllegalArgumentException("maxRetries must not be negative");
+
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Sets the backoff: the first retry waits up to the base delay, each
+         * further one up to twice as long, capped at the maximum.
+         */
+        public Builder backoff(long base, long max, TimeUnit unit) {
+            if (base < 0 || max < base)
+                throw new IllegalArgumentException("need 0 <= base <= max");
+
+            this.baseDelay = unit.toMillis(base);
+            this.maxDelay = unit.toMillis(max);
+            return this;
+        }
+
+        /**
+         * Sets the longest Retry-After to wait for. Responses asking for a
+         * longer wait are returned to the caller as they are.
+         */
+        public Builder maxRetryAfter(long max, TimeUnit unit) {
+            this.maxRetryAfter = unit.toMillis(max);
+            return this;
+        }
+
+        /**
+         * Sets the retry budget: every first attempt earns <code>ratio</code>
+         * retries, and <code>minRetries</code> are available up front and
+         * also cap the savings.
+         */
+        public Builder retryBudget(double ratio, int minRetries) {
+            if (ratio < 0 || minRetries < 0)
+                throw new IllegalArgumentException("budget must not be negative");
+
+            this.budgetRatio = ratio;
+            this.budgetMin = minRetries;
+            return this;
+        }
+
+        public RequestScheduler build() {
+            return new RequestScheduler(this);
+        }
+    }
+
+    /**
+     * Waits between attempts; replaced in tests.
+     */
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    /**
+     * Token bucket for one host.
+     */
+    static final class TokenBucket {
+        private final double maxRate;
+        private final double minRate;
+        private final int burst;
+        private double rate;
+        private double tokens;
+        private long last;
+
+        TokenBucket(double rate, int burst) {
+            this.maxRate = rate;
+            this.minRate = rate / 64;
+            this.rate = rate;
+            this.burst = burst;
+            this.tokens = burst;
+            this.last = System.nanoTime();
+        }
+
+        /**
+         * Takes a token and returns how long to wait before using it.
+         */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - last) * rate / 1e9);
+            last = now;
+            tokens -= 1;
+
+            return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / rate * 1000);
+        }
+
+        synchronized void throttled() {
+            rate = Math.max(minRate, rate / 2);
+        }
+
+        synchronized void succeeded() {
+            rate = Math.min(maxRate, rate + maxRate / 100);
+        }
+
+        synchronized double getRate() {
+            return rate;
+        }
+    }
+
+    private final Builder config;
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<String, TokenBucket>();
+    private double budget;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+    Sleeper sleeper = new Sleeper() {
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+    };
+
+    private RequestScheduler(Builder b) {
+        this.config = b;
+        this.budget = b.budgetMin;
+    }
+
+    /**
+     * Starts a scheduler that retries throttled requests up to three times
+     * with a 500 ms base backoff and a 10% retry budget, without a rate limit.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Executes a request, waiting for the rate limit and retrying it while
+     * the server throttles.
+     *
+     * @param client HTTP client
+     * @param req Request to execute
+     *
+     * @return the final response with its entity unread
+     *
+     * @throws IOException when the request fails or the wait is interrupted
+     */
+    HttpResponse execute(HttpClient client, HttpRequestBase req) throws IOException {
+        return execute(client, req, null);
+    }
+
+    /**
+     * Executes a request like {@link #execute(HttpClient, HttpRequestBase)}
+     * and records the waits, retries and time to response headers.
+     *
+     * @param event Event to fill in, or null
+     */
+    HttpResponse execute(HttpClient client, HttpRequestBase req, RequestListener.Event event)
+        throws IOException {
+
+        TokenBucket bucket = bucketFor(req.getURI());
+        boolean retryable = isRetryable(req);
+
+        requests.incrementAndGet();
+        earn();
+
+        for (int attempt = 0; ; attempt++) {
+            if (bucket != null)
+                pause(bucket.reserve(), event);
+
+            long sent = System.nanoTime();
+            HttpResponse resp = client.execute(req);
+            int status = resp.getStatusLine().getStatusCode();
+
+            if (event != null) {
+                event.firstByteNanos = System.nanoTime() - sent;
+                event.retries = attempt;
+            }
+
+            if (status != 429 && status != 503) {
+                if (bucket != null && config.adaptive)
+                    bucket.succeeded();
+                return resp;
+            }
+
+            throttled.incrementAndGet();
+            if (bucket != null && config.adaptive)
+                bucket.throttled();
+
+            long retryAfter = retryAfterMillis(resp);
+
+            if (!retryable || attempt >= config.maxRetries || retryAfter > config.maxRetryAfter)
+                return resp;
+
+            if (!spend()) {
+                budgetExhausted.incrementAndGet();
+                return resp;
+            }
+
+            EntityUtils.consumeQuietly(resp.getEntity());
+            retries.incrementAndGet();
+            pause(Math.max(retryAfter, backoff(attempt)), event);
+        }
+    }
+
+    private TokenBucket bucketFor(URI uri) {
+        if (config.rate <= 0)
+            return null;
+
+        String host = uri.getScheme() + "://" + uri.getAuthority();
+        return buckets.computeIfAbsent(host, h -> new TokenBucket(config.rate, config.burst));
+    }
+
+    private static boolean isRetryable(HttpRequestBase req) {
+        String method = req.getMethod();
+
+        if (!(method.equals("GET") || method.equals("HEAD") || method.equals("PUT") ||
+              method.equals("DELETE") || method.equals("OPTIONS")))
+            return false;
+
+        if (req instanceof HttpEntityEnclosingRequest) {
+            HttpEntity ent = ((HttpEntityEnclosingRequest) req).getEntity();
+            return ent == null || ent.isRepeatable();
+        }
+
+        return true;
+    }
+
+    private synchronized void earn() {
+        budget = Math.min(Math.max(config.budgetMin, 1), budget + config.budgetRatio);
+    }
+
+    private synchronized boolean spend() {
+        if (budget < 1)
+            return false;
+
+        budget -= 1;
+        return true;
+    }
+
+    /**
+     * Full jitter: a random delay up to base * 2^attempt, capped.
+     */
+    private long backoff(int attempt) {
+        long ceiling = config.baseDelay << Math.min(attempt, 30);
+        if (ceiling <= 0 || ceiling > config.maxDelay)
+            ceiling = config.maxDelay;
+
+        return ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+    }
+
+    /**
+     * Parses Retry-After as seconds or an HTTP date; 0 when absent.
+     */
+    static long retryAfterMillis(HttpResponse resp) {
+        Header header = resp.getFirstHeader("Retry-After");
+        if (header == null)
+            return 0;
+
+        String value = header.getValue().trim();
+
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(value)));
+        } catch (NumberFormatException ex) {
+            Date date = DateUtils.parseDate(value);
+            return date != null ? Math.max(0, date.getTime() - System.currentTimeMillis()) : 0;
+        }
+    }
+
+    private void pause(long millis, RequestListener.Event event) throws IOException {
+        if (millis <= 0)
+            return;
+
+        long start = System.nanoTime();
+
+        try {
+            sleeper.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to send request");
+        } finally {
+            if (event != null)
+                event.queueNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Gets the current request rate for a host, or 0 without a rate limit.
+     */
+    public double getRate(URI uri) {
+        TokenBucket bucket = bucketFor(uri);
+        return bucket != null ? bucket.getRate() : 0;
+    }
+
+    /** Number of requests scheduled, not counting retries */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /** Number of retries sent */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /** Number of 429 and 503 responses received */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    /** Number of retries skipped because the budget was used up */
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.get();
+    }
+}
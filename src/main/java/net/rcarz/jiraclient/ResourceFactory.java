@@ -0,0 +1,45 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import org.json.JSONObject;
+
+/**
+ * Creates a resource instance from a JSON payload.
+ *
+ * @param <T> Resource data type
+ *
+ * @see ResourceRegistry
+ */
+public interface ResourceFactory<T> {
+
+    /**
+     * Creates a resource from a JSON payload.
+     *
+     * @param restclient REST client instance
+     * @param json JSON payload
+     * @param parentId id/key of the parent resource, may be null
+     *
+     * @return a new resource instance
+     *
+     * @throws JiraException when the payload cannot be deserialised
+     */
+    T create(RestClient restclient, JSONObject json, String parentId) throws JiraException;
+}
@@ -0,0 +1,95 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Maps resource types to the factories that build them from JSON.
+ *
+ * The core resources are registered here, the agile and GreenHopper
+ * resources register themselves when their package is first used. Custom
+ * resource types can be added with {@link #register(Class, ResourceFactory)}
+ * and are then understood by {@link Field#getResource(Class, Object, RestClient)}
+ * and friends.
+ */
+public final class ResourceRegistry {
+
+    private static final ConcurrentMap<Class<?>, ResourceFactory<?>> factories =
+        new ConcurrentHashMap<Class<?>, ResourceFactory<?>>();
+
+    static {
+        register(Attachment.class, (rc, json, parentId) -> new Attachment(rc, json));
+        register(ChangeLog.class, (rc, json, parentId) -> new ChangeLog(rc, json));
+        register(ChangeLogEntry.class, (rc, json, parentId) -> new ChangeLogEntry(rc, json));
+        register(ChangeLogItem.class, (rc, json, parentId) -> new ChangeLogItem(rc, json));
+        register(Comment.class, (rc, json, parentId) -> new Comment(rc, json, parentId));
+        register(Component.class, (rc, json, parentId) -> new Component(rc, json));
+        register(CustomFieldOption.class, (rc, json, parentId) -> new CustomFieldOption(rc, json));
+        register(Issue.class, (rc, json, parentId) -> new Issue(rc, json));
+        register(IssueLink.class, (rc, json, parentId) -> new IssueLink(rc, json));
+        register(IssueType.class, (rc, json, parentId) -> new IssueType(rc, json));
+        register(LinkType.class, (rc, json, parentId) -> new LinkType(rc, json));
+        register(Priority.class, (rc, json, parentId) -> new Priority(rc, json));
+        register(Project.class, (rc, json, parentId) -> new Project(rc, json));
+        register(ProjectCategory.class, (rc, json, parentId) -> new ProjectCategory(rc, json));
+        register(RemoteLink.class, (rc, json, parentId) -> new RemoteLink(rc, json));
+        register(Resolution.class, (rc, json, parentId) -> new Resolution(rc, json));
+        register(Status.class, (rc, json, parentId) -> new Status(rc, json));
+        register(Transition.class, (rc, json, parentId) -> new Transition(rc, json));
+        register(User.class, (rc, json, parentId) -> new User(rc, json));
+        register(Visibility.class, (rc, json, parentId) -> new Visibility(rc, json));
+        register(Version.class, (rc, json, parentId) -> new Version(rc, json));
+        register(Votes.class, (rc, json, parentId) -> new Votes(rc, json));
+        register(Watches.class, (rc, json, parentId) -> new Watches(rc, json));
+        register(WorkLog.class, (rc, json, parentId) -> new WorkLog(rc, json));
+        register(Security.class, (rc, json, parentId) -> new Security(rc, json));
+    }
+
+    private ResourceRegistry() { }
+
+    /**
+     * Registers (or replaces) the factory for a resource type.
+     *
+     * @param type Resource data type
+     * @param factory Factory creating instances of type
+     */
+    public static <T> void register(Class<T> type, ResourceFactory<? extends T> factory) {
+        if (type == null)
+            throw new NullPointerException("type may not be null");
+        if (factory == null)
+            throw new NullPointerException("factory may not be null");
+
+        factories.put(type, factory);
+    }
+
+    /**
+     * Looks up the factory for a resource type.
+     *
+     * @param type Resource data type
+     *
+     * @return the factory or null when the type is unknown
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ResourceFactory<T> get(Class<T> type) {
+        return (ResourceFactory<T>) factories.get(type);
+    }
+}
@@ -0,0 +1,303 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.json.JSONTokener;
+
+/**
+ * An in-memory cache for GET responses of slow-changing endpoints.
+ *
+ * Only endpoints registered with {@link #cache(String, long, TimeUnit)} are
+ * cached, each with its own time to live. The cache holds at most a fixed
+ * number of responses and drops the least recently used one when full.
+ * Responses are kept as JSON text and every hit decodes a fresh copy, so a
+ * caller changing its result cannot corrupt the cache for others.
+ *
+ * Endpoints are regular expressions matched against the end of the request
+ * path, e.g. <code>rest/api/[^/]+/priority</code> or
+ * <code>rest/agile/1.0/board</code>.
+ */
+public class ResponseCache {
+
+    private static final String API = "rest/api/[^/]+/";
+
+    public static final String PRIORITIES = API + "priority";
+    public static final String ISSUE_TYPES = API + "issuetype";
+    public static final String PROJECTS = API + "project";
+    public static final String PROJECT = API + "project/[^/]+";
+    public static final String VERSIONS = API + "project/[^/]+/versions";
+    public static final String COMPONENTS = API + "project/[^/]+/components";
+    /** Not cached by {@link #metadata(int)}; see {@link MetadataCache} */
+    public static final String CREATE_META = API + "issue/createmeta";
+
+    private static final class Rule {
+        final String endpoint;
+        final Pattern pattern;
+        final long ttlNanos;
+        final List<Pattern> writes = new ArrayList<Pattern>();
+
+        Rule(String endpoint, long ttlNanos) {
+            this.endpoint = endpoint;
+            this.pattern = compile(endpoint);
+            this.ttlNanos = ttlNanos;
+        }
+    }
+
+    private static final class Entry {
+        final String json;
+        final Rule rule;
+        final long expires;
+
+        Entry(String json, Rule rule, long expires) {
+            this.json = json;
+            this.rule = rule;
+            this.expires = expires;
+        }
+    }
+
+    private final Map<String, Rule> rules = new LinkedHashMap<String, Rule>();
+    private final LinkedHashMap<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates an empty cache without any cached endpoints.
+     *
+     * @param maxEntries Maximum number of responses to keep
+     */
+    public ResponseCache(final int maxEntries) {
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxEntries)
+                    return false;
+
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Creates a cache for the metadata endpoints: priorities and issue types
+     * for an hour; projects, versions and components for fifteen minutes.
+     * Writes to versions, components and projects drop the matching
+     * entries. Create and edit metadata are left to {@link MetadataCache}.
+     *
+     * @param maxEntries Maximum number of responses to keep
+     *
+     * @return a new cache
+     */
+    public static ResponseCache metadata(int maxEntries) {
+        return new ResponseCache(maxEntries)
+            .cache(PRIORITIES, 1, TimeUnit.HOURS)
+            .cache(ISSUE_TYPES, 1, TimeUnit.HOURS)
+            .cache(PROJECTS, 15, TimeUnit.MINUTES)
+            .cache(PROJECT, 15, TimeUnit.MINUTES)
+            .cache(VERSIONS, 15, TimeUnit.MINUTES)
+            .cache(COMPONENTS, 15, TimeUnit.MINUTES)
+            .invalidateOn(VERSIONS, API + "version(/.*)?")
+            .invalidateOn(COMPONENTS, API + "component(/.*)?")
+            .invalidateOn(PROJECTS, API + "project(/.*)?")
+            .invalidateOn(PROJECT, API + "project(/.*)?");
+    }
+
+    private static Pattern compile(String endpoint) {
+        return Pattern.compile("(.*/)?" + endpoint + "/?");
+    }
+
+    /**
+     * Caches responses of an endpoint. Endpoints are tried in the order they
+     * were registered.
+     *
+     * @param endpoint Regular expression for the end of the request path
+     * @param ttl How long a response stays valid
+     * @param unit Unit of the time to live
+     *
+     * @return the current cache instance
+     */
+    public synchronized ResponseCache cache(String endpoint, long ttl, TimeUnit unit) {
+        if (ttl <= 0)
+            throw new IllegalArgumentException("ttl must be positive");
+
+        rules.put(endpoint, new Rule(endpoint, unit.toNanos(ttl)));
+        return this;
+    }
+
+    /**
+     * Drops the responses of an endpoint whenever a successful POST, PUT or
+     * DELETE is sent to a matching path.
+     *
+     * @param endpoint A cached endpoint
+     * @param writeEndpoint Regular expression for the end of the write path
+     *
+     * @return the current cache instance
+     */
+    public synchronized ResponseCache invalidateOn(String endpoint, String writeEndpoint) {
+        Rule rule = rules.get(endpoint);
+        if (rule == null)
+            throw new IllegalArgumentException("Endpoint '" + endpoint + "' is not cached");
+
+        rule.writes.add(compile(writeEndpoint));
+        return this;
+    }
+
+    private Rule findRule(URI uri) {
+        String path = uri.getPath();
+
+        for (Rule rule : rules.values()) {
+            if (rule.pattern.matcher(path).matches())
+                return rule;
+        }
+
+        return null;
+    }
+
+    /**
+     * Tells whether responses from the given URI are cached.
+     */
+    public synchronized boolean isCached(URI uri) {
+        return findRule(uri) != null;
+    }
+
+    /**
+     * Looks up a cached response.
+     *
+     * @param uri Request URI
+     *
+     * @return a copy of the cached JSON value or null on a miss
+     */
+    public synchronized Object get(URI uri) {
+        if (findRule(uri) == null)
+            return null;
+
+        String key = uri.toString();
+        Entry entry = entries.get(key);
+
+        if (entry != null && entry.expires - System.nanoTime() <= 0) {
+            entries.remove(key);
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return new JSONTokener(entry.json).nextValue();
+    }
+
+    /**
+     * Stores a response if its endpoint is cached.
+     *
+     * @param uri Request URI
+     * @param value Decoded JSON response
+     */
+    public synchronized void put(URI uri, Object value) {
+        Rule rule = findRule(uri);
+
+        if (rule == null || value == null)
+            return;
+
+        entries.put(uri.toString(), new Entry(value.toString(), rule, System.nanoTime() + rule.ttlNanos));
+    }
+
+    /**
+     * Drops the responses invalidated by a write to the given URI.
+     *
+     * @param uri URI of a successful POST, PUT or DELETE
+     */
+    public synchronized void written(URI uri) {
+        String path = uri.getPath();
+
+        for (Rule rule : rules.values()) {
+            for (Pattern write : rule.writes) {
+                if (write.matcher(path).matches()) {
+                    invalidate(rule.endpoint);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops all cached responses of an endpoint.
+     *
+     * @param endpoint A cached endpoint, e.g. {@link #VERSIONS}
+     */
+    public synchronized void invalidate(String endpoint) {
+        Iterator<Entry> it = entries.values().iterator();
+
+        while (it.hasNext()) {
+            if (it.next().rule.endpoint.equals(endpoint))
+                it.remove();
+        }
+    }
+
+    /**
+     * Drops every cached response.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of responses served from the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups of cached endpoints that went to the server.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of responses dropped to make room for new ones.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Gets the number of responses currently held.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -19,11 +19,13 @@
 
 package net.rcarz.jiraclient;
 
+import org.apache.http.Consts;
 import org.apache.http.Header;
-import org.apache.http.HeaderElement;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
+import org.apache.http.HttpStatus;
+import org.apache.http.ParseException;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpDelete;
@@ -33,24 +35,30 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.entity.mime.MultipartEntity;
-import org.apache.http.entity.mime.content.ByteArrayBody;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.entity.mime.content.FileBody;
-import org.apache.http.entity.mime.content.InputStreamBody;
 import org.apache.http.util.EntityUtils;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
-import java.io.BufferedReader;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A simple REST client that speaks JSON.
@@ -60,6 +68,12 @@ public class RestClient {
     private HttpClient httpClient = null;
     private ICredentials creds = null;
     private URI uri = null;
+    private volatile ResponseCache responseCache = null;
+    private volatile ConditionalCache conditionalCache = null;
+    private volatile RequestScheduler scheduler = null;
+    private volatile MetadataCache metadataCache = null;
+    private volatile RequestListener requestListener = null;
+    private volatile boolean lazyFields = false;
 
     /**
      * Creates a REST client instance with a URI.
@@ -121,79 +135,462 @@ public class RestClient {
     
     /**
      * Executes a HTTP-request.
+     *
+     * The response body is decoded straight from the entity stream using the
+     * charset declared in the Content-Type header (UTF-8 when absent).
      * 
      * @param req
      * Request to be executed.
-     * @return Result string or null, if no result was provided.
+     * @return Decoded JSON value (JSONObject, JSONArray, ...) or null, if no result was provided.
      * @throws RestException In case an HTTP status code >= 300 was provided.
      * @throws IOException If the request failed.
      */
-    private String httpRequest(HttpRequestBase req) throws RestException, IOException 
-    {
-    	req.addHeader("Accept", "application/json");
+    private Object httpRequest(HttpRequestBase req) throws RestException, IOException {
+        RequestListener listener = requestListener;
+
+        if (listener == null)
+            return httpRequest(req, null);
+
+        RequestListener.Event event = startEvent(req);
+        long start = System.nanoTime();
+
+        try {
+            return httpRequest(req, event);
+        } catch (RestException ex) {
+            event.error = ex;
+            throw ex;
+        } catch (IOException ex) {
+            event.error = ex;
+            throw ex;
+        } catch (RuntimeException ex) {
+            event.error = ex;
+            throw ex;
+        } finally {
+            completed(listener, event, start);
+        }
+    }
+
+    private Object httpRequest(HttpRequestBase req, RequestListener.Event event)
+        throws RestException, IOException {
+
+        ResponseCache cache = responseCache;
+        boolean isGet = HttpGet.METHOD_NAME.equals(req.getMethod());
+
+        if (cache != null && isGet) {
+            Object cached = cache.get(req.getURI());
+            if (cached != null) {
+                if (event != null)
+                    event.cache = RequestListener.CacheResult.HIT;
+                return cached;
+            }
+        }
+
+        ConditionalCache validators = isGet ? conditionalCache : null;
+        ConditionalCache.Entry stored = validators != null ? validators.get(req.getURI()) : null;
+
+        req.addHeader("Accept", "application/json");
+
+        if (stored != null) {
+            if (stored.etag != null)
+                req.addHeader(HttpHeaders.IF_NONE_MATCH, stored.etag);
+            if (stored.lastModified != null)
+                req.addHeader(HttpHeaders.IF_MODIFIED_SINCE, stored.lastModified);
+        }
 
         if (creds != null)
             creds.authenticate(req);
 
-        HttpResponse resp = httpClient.execute(req);
+        HttpResponse resp = execute(req, event);
         HttpEntity ent = resp.getEntity();
-        StringBuilder result = new StringBuilder();
 
-        if (ent != null) {
-            String encoding = null;
-            if (ent.getContentEncoding() != null) {
-            	encoding = ent.getContentEncoding().getValue();
+        if (event != null) {
+            event.status = resp.getStatusLine().getStatusCode();
+            if (ent != null)
+                ent = new CountingEntity(ent, event);
+        }
+
+        try {
+            StatusLine sl = resp.getStatusLine();
+
+            if (stored != null && sl.getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                validators.recordNotModified();
+
+                if (event != null)
+                    event.cache = RequestListener.CacheResult.REVALIDATED;
+
+                if (cache != null)
+                    cache.put(req.getURI(), stored.value);
+
+                return stored.value;
+            }
+
+            if (sl.getStatusCode() >= 300) {
+                String result = ent != null ? EntityUtils.toString(ent, getCharset(ent)) : "";
+                throw new RestException(sl.getReasonPhrase(), sl.getStatusCode(), result, resp.getAllHeaders());
+            }
+
+            Object result = ent != null ? readJson(ent) : null;
+
+            if (validators != null) {
+                if (stored != null)
+                    validators.recordModified();
+
+                validators.put(req.getURI(), headerValue(resp, HttpHeaders.ETAG),
+                        headerValue(resp, HttpHeaders.LAST_MODIFIED), result);
             }
-            
-            if (encoding == null) {
-    	        Header contentTypeHeader = resp.getFirstHeader("Content-Type");
-    	        HeaderElement[] contentTypeElements = contentTypeHeader.getElements();
-    	        for (HeaderElement he : contentTypeElements) {
-    	        	NameValuePair nvp = he.getParameterByName("charset");
-    	        	if (nvp != null) {
-    	        		encoding = nvp.getValue();
-    	        	}
-    	        }
+
+            if (cache != null) {
+                if (isGet)
+                    cache.put(req.getURI(), result);
+                else
+                    cache.written(req.getURI());
+            }
+
+            return result;
+        } finally {
+            EntityUtils.consumeQuietly(ent);
+        }
+    }
+
+    private HttpResponse execute(HttpRequestBase req, RequestListener.Event event) throws IOException {
+        RequestScheduler s = scheduler;
+
+        if (s != null)
+            return s.execute(httpClient, req, event);
+
+        long sent = event != null ? System.nanoTime() : 0;
+        HttpResponse resp = httpClient.execute(req);
+
+        if (event != null)
+            event.firstByteNanos = System.nanoTime() - sent;
+
+        return resp;
+    }
+
+    private RequestListener.Event startEvent(HttpRequestBase req) {
+        RequestListener.Event event = new RequestListener.Event(endpointTemplate(req.getURI()), req.getMethod());
+
+        if (req instanceof HttpEntityEnclosingRequestBase) {
+            HttpEntity body = ((HttpEntityEnclosingRequestBase) req).getEntity();
+            if (body != null && body.getContentLength() > 0)
+                event.requestBytes = body.getContentLength();
+        }
+
+        return event;
+    }
+
+    private static void completed(RequestListener listener, RequestListener.Event event, long start) {
+        event.totalNanos = System.nanoTime() - start;
+
+        try {
+            listener.requestCompleted(event);
+        } catch (RuntimeException ex) {
+            /* metrics must never fail a request */
+        }
+    }
+
+    /**
+     * Builds the endpoint template of a request URI: the path below the
+     * base URI with numeric ids replaced by <code>{id}</code>, issue and
+     * project keys by <code>{key}</code> and attachment file names by
+     * <code>{filename}</code>, so metrics can be grouped per endpoint.
+     *
+     * @param target Request URI
+     *
+     * @return the endpoint template, e.g. /rest/api/2/issue/{key}/comment/{id}
+     */
+    String endpointTemplate(URI target) {
+        String path = target.getRawPath();
+        String base = uri.getRawPath();
+
+        if (path == null)
+            return "/";
+
+        if (base != null && base.length() > 1 && path.startsWith(base))
+            path = path.substring(base.endsWith("/") ? base.length() - 1 : base.length());
+
+        StringBuilder sb = new StringBuilder(path.length());
+        String previous = "";
+        int start = 1;
+
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0)
+                end = path.length();
+
+            String segment = path.substring(start, end);
+
+            if (previous.equals("{id}") && sb.indexOf("/secure/attachment/") == 0)
+                segment = "{filename}";
+            else if (isNumber(segment) && !previous.equals("api"))
+                segment = "{id}";
+            else if (isKey(segment))
+                segment = "{key}";
+
+            sb.append('/').append(segment);
+            previous = segment;
+            start = end + 1;
+        }
+
+        return sb.length() > 0 ? sb.toString() : "/";
+    }
+
+    private static boolean isNumber(String segment) {
+        if (segment.isEmpty())
+            return false;
+
+        for (int i = 0; i < segment.length(); i++) {
+            if (segment.charAt(i) < '0' || segment.charAt(i) > '9')
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Issue keys like ABC-123 and project keys like ABC.
+     */
+    private static boolean isKey(String segment) {
+        if (segment.isEmpty() || segment.charAt(0) < 'A' || segment.charAt(0) > 'Z')
+            return false;
+
+        int dash = segment.lastIndexOf('-');
+        String project = dash > 0 ? segment.substring(0, dash) : segment;
+
+        if (dash > 0 && !isNumber(segment.substring(dash + 1)))
+            return false;
+
+        for (int i = 0; i < project.length(); i++) {
+            char c = project.charAt(i);
+            if (!(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9') && c != '_')
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Counts the response bytes read for a {@link RequestListener.Event},
+     * optionally completing the event when the content stream is closed.
+     */
+    private static final class CountingEntity extends HttpEntityWrapper {
+        private final RequestListener.Event event;
+        private final Runnable onClose;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        CountingEntity(HttpEntity wrapped, RequestListener.Event event) {
+            this(wrapped, event, null);
+        }
+
+        CountingEntity(HttpEntity wrapped, RequestListener.Event event, Runnable onClose) {
+            super(wrapped);
+            this.event = event;
+            this.onClose = onClose;
+        }
+
+        private void closed() {
+            if (onClose != null && closed.compareAndSet(false, true))
+                onClose.run();
+        }
+
+        @Override
+        public boolean isStreaming() {
+            /* makes EntityUtils.consume() close the stream */
+            return onClose != null || super.isStreaming();
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            InputStream content = super.getContent();
+            if (content == null) {
+                closed();
+                return null;
+            }
+
+            return new FilterInputStream(content) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0)
+                        event.responseBytes++;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buf, int off, int len) throws IOException {
+                    int n = super.read(buf, off, len);
+                    if (n > 0)
+                        event.responseBytes += n;
+                    return n;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    long skipped = super.skip(n);
+                    event.responseBytes += skipped;
+                    return skipped;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        closed();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            InputStream in = getContent();
+            try {
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) >= 0)
+                    out.write(buf, 0, n);
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    private static String headerValue(HttpResponse resp, String name) {
+        Header header = resp.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    /**
+     * Executes an HTTP GET and returns the response without reading its
+     * body, for callers that stream binary content. The caller must consume
+     * the entity or abort the request to release the connection. A
+     * {@link RequestListener} hears about the request once the body stream
+     * is closed, with the bytes that were read.
+     *
+     * @param req GET request, possibly with extra headers such as Range
+     *
+     * @return the response with an unread entity
+     *
+     * @throws RestException when an HTTP-level error occurs
+     * @throws IOException when the request fails
+     */
+    public HttpResponse getStream(HttpGet req) throws RestException, IOException {
+        final RequestListener listener = requestListener;
+        final RequestListener.Event event = listener != null ? startEvent(req) : null;
+        final long start = System.nanoTime();
+        boolean deferred = false;
+
+        if (creds != null)
+            creds.authenticate(req);
+
+        try {
+            HttpResponse resp = execute(req, event);
+            StatusLine sl = resp.getStatusLine();
+            HttpEntity ent = resp.getEntity();
+
+            if (event != null)
+                event.status = sl.getStatusCode();
+
+            if (sl.getStatusCode() >= 300) {
+                if (event != null && ent != null)
+                    ent = new CountingEntity(ent, event);
+
+                try {
+                    String result = ent != null ? EntityUtils.toString(ent, getCharset(ent)) : "";
+                    throw new RestException(sl.getReasonPhrase(), sl.getStatusCode(), result, resp.getAllHeaders());
+                } finally {
+                    EntityUtils.consumeQuietly(ent);
+                }
             }
-            
-            InputStreamReader isr =  encoding != null ?
-                new InputStreamReader(ent.getContent(), encoding) :
-                new InputStreamReader(ent.getContent());
-            BufferedReader br = new BufferedReader(isr);
-            String line = "";
-
-            while ((line = br.readLine()) != null) {
-                result.append(line);
+
+            if (event != null && ent != null) {
+                resp.setEntity(new CountingEntity(ent, event, () -> completed(listener, event, start)));
+                deferred = true;
             }
 
-            isr.close();
-            br.close();
-            isr=null;
-            br=null;
+            return resp;
+        } catch (RestException ex) {
+            if (event != null)
+                event.error = ex;
+            throw ex;
+        } catch (IOException ex) {
+            if (event != null)
+                event.error = ex;
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (event != null)
+                event.error = ex;
+            throw ex;
+        } finally {
+            if (event != null && !deferred)
+                completed(listener, event, start);
+        }
+    }
+
+    /**
+     * Parses the entity content without buffering it into a string first.
+     *
+     * @param ent Response entity
+     *
+     * @return the decoded JSON value or null when the body is empty
+     *
+     * @throws IOException when reading the content fails
+     */
+    private static Object readJson(HttpEntity ent) throws IOException {
+        InputStream content = ent.getContent();
+
+        if (content == null)
+            return null;
+
+        Reader reader = new InputStreamReader(content, getCharset(ent));
+
+        try {
+            JSONTokener tokener = new JSONTokener(reader);
+
+            if (tokener.nextClean() == 0)
+                return null;
+
+            tokener.back();
+            return tokener.nextValue();
+        } finally {
+            reader.close();
         }
-        EntityUtils.consumeQuietly(ent);
+    }
+
+    private static Charset getCharset(HttpEntity ent) {
+        Charset charset = null;
 
-        StatusLine sl = resp.getStatusLine();
+        try {
+            ContentType ct = ContentType.get(ent);
+            if (ct != null)
+                charset = ct.getCharset();
+        } catch (ParseException ex) {
+            /* malformed header, fall back to the JSON default */
+        } catch (UnsupportedCharsetException ex) {
+            /* unknown charset, fall back to the JSON default */
+        }
 
-        if (sl.getStatusCode() >= 300)
-            throw new RestException(sl.getReasonPhrase(), sl.getStatusCode(), result.toString(), resp.getAllHeaders());
-        
-        return result.length() == 0 ? null : result.toString();
+        return charset != null ? charset : Consts.UTF_8;
     }
 
     private JSONObject requestMap(HttpRequestBase req) throws RestException, IOException {
-        String result = httpRequest(req);
+        Object result = httpRequest(req);
 
-        return result != null ? new JSONObject(result) : null;
+        if (result != null && !(result instanceof JSONObject))
+            throw new JSONException("A JSONObject text must begin with '{'");
+
+        return (JSONObject) result;
     }
     
     private JSONArray requestArray(HttpRequestBase req) throws RestException, IOException {
-        String result = httpRequest(req);
+        Object result = httpRequest(req);
+
+        if (result != null && !(result instanceof JSONArray))
+            throw new JSONException("A JSONArray text must start with '['");
 
-        return result != null ? new JSONArray(result) : null;
+        return (JSONArray) result;
     }
-    
-   
 
     private JSONObject request(HttpEntityEnclosingRequestBase req, String payload)
         throws RestException, IOException {
@@ -220,9 +617,9 @@ public class RestClient {
         if (file != null) {
             File fileUpload = file;
             req.setHeader("X-Atlassian-Token", "nocheck");
-            MultipartEntity ent = new MultipartEntity();
-            ent.addPart("file", new FileBody(fileUpload));
-            req.setEntity(ent);
+            req.setEntity(MultipartEntityBuilder.create()
+                .addPart("file", new FileBody(fileUpload))
+                .build());
         }
         return requestMap(req);
     }
@@ -231,29 +628,39 @@ public class RestClient {
         throws RestException, IOException {
         if (attachments != null) {
             req.setHeader("X-Atlassian-Token", "nocheck");
-            MultipartEntity ent = new MultipartEntity();
+            MultipartEntityBuilder builder = MultipartEntityBuilder.create();
             for(Issue.NewAttachment attachment : attachments) {
-                String filename = attachment.getFilename();
-                Object content = attachment.getContent();
-                if (content instanceof byte[]) {
-                    ent.addPart("file", new ByteArrayBody((byte[]) content, filename));
-                } else if (content instanceof InputStream) {
-                    ent.addPart("file", new InputStreamBody((InputStream) content, filename));
-                } else if (content instanceof File) {
-                    ent.addPart("file", new FileBody((File) content, filename));
-                } else if (content == null) {
-                    throw new IllegalArgumentException("Missing content for the file " + filename);
-                } else {
-                    throw new IllegalArgumentException(
-                        "Expected file type byte[], java.io.InputStream or java.io.File but provided " +
-                            content.getClass().getName() + " for the file " + filename);
-                }
+                if (attachment.getContent() == null)
+                    throw new IllegalArgumentException("Missing content for the file " + attachment.getFilename());
+                builder.addPart("file", attachment.toBody());
             }
-            req.setEntity(ent);
+            req.setEntity(builder.build());
         }
         return requestMap(req);
     }
 
+    /**
+     * Executes an HTTP POST with a prepared entity, e.g. a multipart upload.
+     * The response may be any JSON value.
+     *
+     * @param path Path to be appended to the URI supplied in the construtor
+     * @param entity Request body
+     *
+     * @return the decoded JSON value or null when there's no content returned
+     *
+     * @throws RestException when an HTTP-level error occurs
+     * @throws IOException when an error reading the response occurs
+     * @throws URISyntaxException when an error occurred appending the path to the URI
+     */
+    public Object postEntity(String path, HttpEntity entity)
+        throws RestException, IOException, URISyntaxException {
+
+        HttpPost req = new HttpPost(buildURI(path));
+        req.setHeader("X-Atlassian-Token", "nocheck");
+        req.setEntity(entity);
+        return httpRequest(req);
+    }
+
     private JSONObject request(HttpEntityEnclosingRequestBase req, JSONObject payload)
         throws RestException, IOException {
 
@@ -519,6 +926,109 @@ public class RestClient {
         return put(buildURI(path), payload);
     }
     
+    /**
+     * Sets the cache consulted for GET requests.
+     *
+     * @param cache Response cache or null to disable caching
+     */
+    public void setResponseCache(ResponseCache cache) {
+        this.responseCache = cache;
+    }
+
+    /**
+     * Gets the cache consulted for GET requests, or null when disabled.
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Sets the cache used to revalidate GET responses with If-None-Match and
+     * If-Modified-Since.
+     *
+     * @param cache Conditional cache or null to disable revalidation
+     */
+    public void setConditionalCache(ConditionalCache cache) {
+        this.conditionalCache = cache;
+    }
+
+    /**
+     * Gets the conditional request cache, or null when disabled.
+     */
+    public ConditionalCache getConditionalCache() {
+        return conditionalCache;
+    }
+
+    /**
+     * Sets the cache for create and edit metadata.
+     *
+     * @param cache Metadata cache or null to fetch metadata on every use
+     */
+    public void setMetadataCache(MetadataCache cache) {
+        this.metadataCache = cache;
+    }
+
+    /**
+     * Gets the metadata cache, or null when none is set.
+     */
+    public MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Sets the scheduler that rate limits requests and retries them when
+     * the server throttles.
+     *
+     * @param scheduler Request scheduler or null to send requests directly
+     */
+    public void setRequestScheduler(RequestScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Gets the request scheduler, or null when none is set.
+     */
+    public RequestScheduler getRequestScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Sets the listener told about every request, e.g. a
+     * {@link RequestMetrics} collector.
+     *
+     * @param listener Request listener or null to disable reporting
+     */
+    public void setRequestListener(RequestListener listener) {
+        this.requestListener = listener;
+    }
+
+    /**
+     * Gets the request listener, or null when none is set.
+     */
+    public RequestListener getRequestListener() {
+        return requestListener;
+    }
+
+    /**
+     * Enables or disables lazy field materialisation for issues built by
+     * this client. In lazy mode an issue keeps the raw JSON fields and only
+     * builds the typed value (users, comments, worklogs, ...) the first time
+     * its getter is called. Disabled by default.
+     *
+     * @param lazy true to materialise fields on first access
+     */
+    public void setLazyFields(boolean lazy) {
+        this.lazyFields = lazy;
+    }
+
+    /**
+     * Whether issues built by this client materialise their fields on
+     * first access.
+     */
+    public boolean isLazyFields() {
+        return lazyFields;
+    }
+
     /**
      * Exposes the http client.
      *
@@ -19,8 +19,9 @@
 
 package net.rcarz.jiraclient;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 import java.util.HashMap;
 import org.json.JSONArray;
@@ -31,6 +32,9 @@ import org.json.JSONObject;
  */
 public class Version extends Resource {
 
+    private static final DateTimeFormatter RELEASE_DATE_FORMATTER =
+        DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
     /**
      * Used to chain fields to a create action.
      */
@@ -102,8 +106,8 @@ public class Version extends Resource {
          * @return <code>this</code>
          */
         public FluentCreate releaseDate(Date releaseDate) {
-            DateFormat df = new SimpleDateFormat("MM/dd/yyyy");
-            req.put("releaseDate", df.format(releaseDate));
+            req.put("releaseDate", RELEASE_DATE_FORMATTER.format(
+                Instant.ofEpochMilli(releaseDate.getTime()).atZone(ZoneId.systemDefault())));
             return this;
         }
 
@@ -0,0 +1,162 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A fixed pool of worker threads fed by a single producer. The producer
+ * blocks once twice as many tasks as there are workers are queued or
+ * running, so items such as issue pages are only fetched as fast as the
+ * workers keep up.
+ */
+final class WorkerPool {
+
+    /**
+     * Submits the work of a run to the pool.
+     */
+    interface Producer {
+        void produce(WorkerPool pool) throws JiraException, InterruptedException;
+    }
+
+    private final Semaphore slots;
+    private final ExecutorService executor;
+
+    private WorkerPool(int parallelism) {
+        this.slots = new Semaphore(parallelism * 2);
+        this.executor = Executors.newFixedThreadPool(parallelism);
+    }
+
+    /**
+     * Runs a producer against a new pool and waits until every task it
+     * submitted is done. Tasks report their own failures; the run only
+     * fails when the producer does or the caller is interrupted.
+     *
+     * @param parallelism Number of worker threads
+     * @param activity What the run does, e.g. "updating issues"
+     * @param producer Submits the tasks
+     *
+     * @throws JiraException when the producer fails or the run is interrupted
+     */
+    static void run(int parallelism, String activity, Producer producer) throws JiraException {
+        WorkerPool pool = new WorkerPool(parallelism);
+
+        try {
+            producer.produce(pool);
+
+            pool.executor.shutdown();
+            pool.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while " + activity, ex);
+        } catch (RuntimeException ex) {
+            if (ex.getCause() instanceof JiraException)
+                throw (JiraException) ex.getCause();
+            throw ex;
+        } finally {
+            pool.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs up to <code>parallelism</code> copies of a worker that drains a
+     * shared queue, one on the calling thread and the rest on a caller's
+     * executor. Copies the executor has not started once the caller's copy
+     * is done are skipped, so a saturated or shared executor slows the work
+     * down but cannot stall it.
+     *
+     * @param executor Executor for the additional copies
+     * @param parallelism Maximum number of copies running at once
+     * @param worker Worker taking items until none are left
+     *
+     * @throws ExecutionException when a copy fails; the others are cancelled
+     * @throws InterruptedException when interrupted while waiting
+     */
+    static void share(ExecutorService executor, int parallelism, final Callable<Void> worker)
+            throws ExecutionException, InterruptedException {
+
+        List<AtomicBoolean> claims = new ArrayList<AtomicBoolean>();
+        List<Future<Void>> copies = new ArrayList<Future<Void>>();
+
+        try {
+            for (int i = 1; i < parallelism; i++) {
+                final AtomicBoolean claim = new AtomicBoolean();
+                claims.add(claim);
+                copies.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        return claim.compareAndSet(false, true) ? worker.call() : null;
+                    }
+                }));
+            }
+
+            try {
+                worker.call();
+            } catch (Exception ex) {
+                throw new ExecutionException(ex);
+            }
+
+            for (int i = 0; i < copies.size(); i++) {
+                if (claims.get(i).compareAndSet(false, true))
+                    copies.get(i).cancel(false);
+                else
+                    copies.get(i).get();
+            }
+        } catch (ExecutionException | InterruptedException | RuntimeException ex) {
+            for (Future<Void> copy : copies)
+                copy.cancel(true);
+            throw ex;
+        }
+    }
+
+    /**
+     * Runs a task on a worker, waiting for a free slot first.
+     *
+     * @param task Work to run
+     *
+     * @throws InterruptedException when interrupted while waiting
+     */
+    void execute(final Runnable task) throws InterruptedException {
+        slots.acquire();
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        slots.release();
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            slots.release();
+            throw ex;
+        }
+    }
+}
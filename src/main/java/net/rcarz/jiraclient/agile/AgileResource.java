@@ -21,6 +21,8 @@ package net.rcarz.jiraclient.agile;
 
 import net.rcarz.jiraclient.Field;
 import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.ResourceFactory;
+import net.rcarz.jiraclient.ResourceRegistry;
 import net.rcarz.jiraclient.RestClient;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -43,6 +45,22 @@ public abstract class AgileResource {
 
     public static final String RESOURCE_URI = "/rest/agile/1.0/";
 
+    static {
+        ResourceRegistry.register(Board.class, (rc, json, parentId) -> new Board(rc, json));
+        ResourceRegistry.register(Comment.class, (rc, json, parentId) -> new Comment(rc, json));
+        ResourceRegistry.register(Epic.class, (rc, json, parentId) -> new Epic(rc, json));
+        ResourceRegistry.register(Issue.class, (rc, json, parentId) -> new Issue(rc, json));
+        ResourceRegistry.register(IssueType.class, (rc, json, parentId) -> new IssueType(rc, json));
+        ResourceRegistry.register(Priority.class, (rc, json, parentId) -> new Priority(rc, json));
+        ResourceRegistry.register(Project.class, (rc, json, parentId) -> new Project(rc, json));
+        ResourceRegistry.register(Resolution.class, (rc, json, parentId) -> new Resolution(rc, json));
+        ResourceRegistry.register(Sprint.class, (rc, json, parentId) -> new Sprint(rc, json));
+        ResourceRegistry.register(Status.class, (rc, json, parentId) -> new Status(rc, json));
+        ResourceRegistry.register(TimeTracking.class, (rc, json, parentId) -> new TimeTracking(rc, json));
+        ResourceRegistry.register(User.class, (rc, json, parentId) -> new User(rc, json));
+        ResourceRegistry.register(Worklog.class, (rc, json, parentId) -> new Worklog(rc, json));
+    }
+
     private RestClient restclient = null;
     private long id = 0;
     private String name;
@@ -79,18 +97,48 @@ public abstract class AgileResource {
             throw new JiraException("JSON payload is malformed");
         }
 
-        T result = null;
+        ResourceFactory<T> factory = ResourceRegistry.get(type);
+
+        if (factory == null) {
+            factory = reflectiveFactory(type);
+            ResourceRegistry.register(type, factory);
+        }
+
+        try {
+            return factory.create(restclient, (JSONObject) r, null);
+        } catch (JiraException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new JiraException("Failed to deserialize object.", e);
+        }
+    }
+
+    /**
+     * Builds a factory for a resource type that was not registered up front,
+     * so the constructor is looked up only once.
+     *
+     * @param type Resource data type
+     * @return a factory invoking the (RestClient, JSONObject) constructor
+     * @throws JiraException when the type has no such constructor
+     */
+    private static <T extends AgileResource> ResourceFactory<T> reflectiveFactory(Class<T> type)
+            throws JiraException {
+        final Constructor<T> constructor;
+
+        try {
+            constructor = type.getDeclaredConstructor(RestClient.class, JSONObject.class);
+            constructor.setAccessible(true);
+        } catch (Exception e) {
+            throw new JiraException("Failed to deserialize object.", e);
+        }
 
-        if (r != null) {
+        return (rc, json, parentId) -> {
             try {
-                Constructor<T> constructor = type.getDeclaredConstructor(RestClient.class, JSONObject.class);
-                result = constructor.newInstance(restclient, r);
+                return constructor.newInstance(rc, json);
             } catch (Exception e) {
                 throw new JiraException("Failed to deserialize object.", e);
             }
-        }
-
-        return result;
+        };
     }
 
     /**
@@ -128,12 +176,12 @@ public abstract class AgileResource {
     }
 
     /**
-     * Retrieves all boards visible to the session user.
+     * Retrieves all items of a paged collection listed under "values".
      *
      * @param restclient REST client instance
      * @param type       The type of the object to deserialize.
      * @param url        The URL to call.
-     * @return a list of boards
+     * @return a list of all items, read page by page
      * @throws JiraException when the retrieval fails
      */
     static <T extends AgileResource> List<T> list(
@@ -142,31 +190,34 @@ public abstract class AgileResource {
     }
 
     /**
-     * Retrieves all boards visible to the session user.
+     * Retrieves all items of a paged collection.
      *
      * @param restclient REST client instance
      * @param type       The type of the object to deserialize.
      * @param url        The URL to call.
      * @param listName   The name of the list of items in the JSON response.
-     * @return a list of boards
+     * @return a list of all items, read page by page
      * @throws JiraException when the retrieval fails
      */
     static <T extends AgileResource> List<T> list(
             RestClient restclient, Class<T> type, String url, String listName) throws JiraException {
 
-        JSONObject result;
-        try {
-            result = restclient.getMap(url);
-        } catch (Exception ex) {
-            throw new JiraException("Failed to retrieve a list of " + type.getSimpleName() + " : " + url, ex);
-        }
+        return iterate(restclient, type, url, listName).toList();
+    }
 
-        return getResourceArray(
-                type,
-                result,
-                restclient,
-                listName
-        );
+    /**
+     * Starts a paged collection.
+     *
+     * @param restclient REST client instance
+     * @param type       The type of the object to deserialize.
+     * @param url        The URL to call.
+     * @param listName   The name of the list of items in the JSON response.
+     * @return a collection that fetches its pages when iterated
+     */
+    static <T extends AgileResource> AgileResultSet<T> iterate(
+            RestClient restclient, Class<T> type, String url, String listName) {
+
+        return new AgileResultSet<T>(restclient, type, url, listName);
     }
 
     /**
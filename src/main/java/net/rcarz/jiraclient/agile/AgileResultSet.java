@@ -0,0 +1,343 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient.agile;
+
+import net.rcarz.jiraclient.Field;
+import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.RestClient;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A paged Agile collection, e.g. the issues of a sprint.
+ *
+ * Pages are requested as the iterator advances, following the
+ * <code>isLast</code> flag or the <code>total</code> reported by the
+ * server, so collections larger than the server's page size (usually 50)
+ * are read completely. Each call to {@link #iterator()} starts again from
+ * the first page.
+ *
+ * @param <T> The type of Agile resource in the collection.
+ */
+public final class AgileResultSet<T extends AgileResource> implements Iterable<T> {
+
+    /**
+     * One page of the collection.
+     */
+    private static final class Page<T> {
+        List<T> values;
+        int startAt;
+        int maxResults;
+        int total = -1;
+        boolean last;
+    }
+
+    private final RestClient restclient;
+    private final Class<T> type;
+    private final String url;
+    private final String listName;
+    private int pageSize = 0;
+    private String jql = null;
+    private String fields = null;
+
+    AgileResultSet(RestClient restclient, Class<T> type, String url, String listName) {
+        this.restclient = restclient;
+        this.type = type;
+        this.url = url;
+        this.listName = listName;
+    }
+
+    /**
+     * Sets the number of items to ask for per page. The server may return
+     * fewer. Defaults to the server's page size.
+     */
+    public AgileResultSet<T> pageSize(int pageSize) {
+        if (pageSize < 1)
+            throw new IllegalArgumentException("pageSize must be at least 1");
+
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Filters issue collections with JQL, e.g. <code>status = Done</code>.
+     */
+    public AgileResultSet<T> jql(String jql) {
+        this.jql = jql;
+        return this;
+    }
+
+    /**
+     * Limits the fields returned for issue collections, e.g.
+     * <code>summary,status</code>.
+     */
+    public AgileResultSet<T> fields(String fields) {
+        this.fields = fields;
+        return this;
+    }
+
+    /**
+     * All items, fetching one page at a time as the iterator advances.
+     * Failures are thrown as a RuntimeException caused by a
+     * {@link JiraException}.
+     *
+     * @return All items of the collection.
+     */
+    public Iterator<T> iterator() {
+        return new PageIterator(null, 0);
+    }
+
+    /**
+     * All items, fetching up to <code>pagesAhead</code> pages concurrently
+     * on the given executor while the caller consumes the current one.
+     * Items are returned in order. Concurrent fetching needs the total
+     * from the first page; collections that only report
+     * <code>isLast</code> are read one page at a time. The executor is
+     * owned by the caller.
+     *
+     * @param executor Executor used to fetch the following pages
+     * @param pagesAhead Maximum number of pages requested ahead of the
+     * consumer
+     *
+     * @return All items of the collection.
+     */
+    public Iterator<T> iterator(ExecutorService executor, int pagesAhead) {
+        if (executor == null)
+            throw new NullPointerException("executor may not be null");
+        if (pagesAhead < 1)
+            throw new IllegalArgumentException("pagesAhead must be at least 1");
+
+        return new PageIterator(executor, pagesAhead);
+    }
+
+    /**
+     * Reads all items into a list.
+     *
+     * @return All items of the collection.
+     *
+     * @throws JiraException when the retrieval fails
+     */
+    public List<T> toList() throws JiraException {
+        return toList(iterator());
+    }
+
+    /**
+     * Reads all items into a list, fetching pages concurrently.
+     *
+     * @param executor Executor used to fetch the following pages
+     * @param pagesAhead Maximum number of pages requested at once
+     *
+     * @return All items of the collection.
+     *
+     * @throws JiraException when the retrieval fails
+     */
+    public List<T> toList(ExecutorService executor, int pagesAhead) throws JiraException {
+        return toList(iterator(executor, pagesAhead));
+    }
+
+    private List<T> toList(Iterator<T> it) throws JiraException {
+        List<T> result = new ArrayList<T>();
+
+        try {
+            while (it.hasNext())
+                result.add(it.next());
+        } catch (RuntimeException ex) {
+            if (ex.getCause() instanceof JiraException)
+                throw (JiraException) ex.getCause();
+            throw ex;
+        }
+
+        return result;
+    }
+
+    private Page<T> fetch(int startAt) throws JiraException {
+        Map<String, String> params = new HashMap<String, String>();
+
+        if (startAt > 0)
+            params.put("startAt", String.valueOf(startAt));
+        if (pageSize > 0)
+            params.put("maxResults", String.valueOf(pageSize));
+        if (jql != null)
+            params.put("jql", jql);
+        if (fields != null)
+            params.put("fields", fields);
+
+        JSONObject result;
+        try {
+            result = restclient.getMap(url, params);
+        } catch (Exception ex) {
+            throw new JiraException("Failed to retrieve a list of " + type.getSimpleName() + " : " + url, ex);
+        }
+
+        Page<T> page = new Page<T>();
+        page.values = AgileResource.getResourceArray(type, result, restclient, listName);
+        page.startAt = result.has("startAt") ? Field.getInteger(result.opt("startAt")) : startAt;
+        page.maxResults = Field.getInteger(result.opt("maxResults"));
+
+        if (result.has("total"))
+            page.total = Field.getInteger(result.opt("total"));
+
+        int end = page.startAt + page.values.size();
+
+        if (page.values.isEmpty())
+            page.last = true;
+        else if (result.has("isLast"))
+            page.last = result.optBoolean("isLast", true);
+        else if (page.total >= 0)
+            page.last = end >= page.total;
+        else
+            page.last = page.maxResults <= 0 || page.values.size() < page.maxResults;
+
+        return page;
+    }
+
+    /**
+     * Walks the pages in order, either fetching each one when it is
+     * reached or keeping a window of pages in flight on an executor.
+     */
+    private final class PageIterator implements Iterator<T> {
+        private final ExecutorService executor;
+        private final int pagesAhead;
+        private final LinkedList<Future<Page<T>>> pending = new LinkedList<Future<Page<T>>>();
+        private Iterator<T> current = null;
+        private Page<T> lastPage = null;
+        private int nextStartAt = 0;
+        private int total = -1;
+        private int step = 0;
+
+        PageIterator(ExecutorService executor, int pagesAhead) {
+            this.executor = executor;
+            this.pagesAhead = pagesAhead;
+        }
+
+        public boolean hasNext() {
+            while (current == null || !current.hasNext()) {
+                Page<T> page = nextPage();
+                if (page == null)
+                    return false;
+
+                current = page.values.iterator();
+            }
+
+            return true;
+        }
+
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            return current.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("Method remove() not support for class " +
+                                                    this.getClass().getName());
+        }
+
+        private Page<T> nextPage() {
+            Page<T> page;
+
+            if (lastPage == null) {
+                page = fetchNow(0);
+
+                if (executor != null && !page.last && page.total >= 0) {
+                    total = page.total;
+                    step = page.maxResults > 0 ? page.maxResults : page.values.size();
+                    nextStartAt = page.startAt + page.values.size();
+                    fillPipeline();
+                }
+            } else if (lastPage.last) {
+                return null;
+            } else if (total >= 0) {
+                if (pending.isEmpty())
+                    return null;
+
+                page = await(pending.removeFirst());
+                fillPipeline();
+
+                if (page.values.isEmpty()) {
+                    /* the collection shrank while we were paging */
+                    cancelPending();
+                    page.last = true;
+                }
+            } else {
+                page = fetchNow(lastPage.startAt + lastPage.values.size());
+            }
+
+            lastPage = page;
+            return page;
+        }
+
+        private Page<T> fetchNow(int startAt) {
+            try {
+                return fetch(startAt);
+            } catch (JiraException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        private void fillPipeline() {
+            while (pending.size() < pagesAhead && nextStartAt < total) {
+                final int startAt = nextStartAt;
+                pending.add(executor.submit(new Callable<Page<T>>() {
+                    public Page<T> call() throws JiraException {
+                        return fetch(startAt);
+                    }
+                }));
+                nextStartAt += step;
+            }
+        }
+
+        private Page<T> await(Future<Page<T>> page) {
+            try {
+                return page.get();
+            } catch (InterruptedException ex) {
+                cancelPending();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(new JiraException("Interrupted while retrieving " +
+                    type.getSimpleName(), ex));
+            } catch (ExecutionException ex) {
+                cancelPending();
+                Throwable cause = ex.getCause();
+                if (cause instanceof JiraException)
+                    throw new RuntimeException(cause);
+                throw new RuntimeException(new JiraException("Failed to retrieve a list of " +
+                    type.getSimpleName() + " : " + url, cause));
+            }
+        }
+
+        private void cancelPending() {
+            for (Future<Page<T>> f : pending)
+                f.cancel(true);
+            pending.clear();
+        }
+    }
+}
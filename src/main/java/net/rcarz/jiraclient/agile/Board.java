@@ -69,6 +69,16 @@ public class Board extends AgileResource {
         return AgileResource.list(restclient, Board.class, RESOURCE_URI + "board");
     }
 
+    /**
+     * Pages through all boards visible to the session user.
+     *
+     * @param restclient REST client instance
+     * @return the boards, fetched page by page when iterated
+     */
+    public static AgileResultSet<Board> iterateAll(RestClient restclient) {
+        return AgileResource.iterate(restclient, Board.class, RESOURCE_URI + "board", "values");
+    }
+
     @Override
     protected void deserialize(JSONObject json) throws JiraException {
         super.deserialize(json);
@@ -95,7 +105,15 @@ public class Board extends AgileResource {
      * @throws JiraException when the retrieval fails
      */
     public List<Issue> getBacklog() throws JiraException {
-        return AgileResource.list(getRestclient(), Issue.class, RESOURCE_URI + "board/" + getId() + "/backlog", "issues");
+        return iterateBacklog().toList();
+    }
+
+    /**
+     * @return The issues in the Board backlog, fetched page by page when
+     * iterated and optionally filtered with JQL.
+     */
+    public AgileResultSet<Issue> iterateBacklog() {
+        return AgileResource.iterate(getRestclient(), Issue.class, RESOURCE_URI + "board/" + getId() + "/backlog", "issues");
     }
 
     /**
@@ -103,7 +121,15 @@ public class Board extends AgileResource {
      * @throws JiraException when the retrieval fails
      */
     public List<Issue> getIssuesWithoutEpic() throws JiraException {
-        return AgileResource.list(getRestclient(), Issue.class, RESOURCE_URI + "board/" + getId() + "/epic/none/issue", "issues");
+        return iterateIssuesWithoutEpic().toList();
+    }
+
+    /**
+     * @return The issues without epic in the Board, fetched page by page
+     * when iterated and optionally filtered with JQL.
+     */
+    public AgileResultSet<Issue> iterateIssuesWithoutEpic() {
+        return AgileResource.iterate(getRestclient(), Issue.class, RESOURCE_URI + "board/" + getId() + "/epic/none/issue", "issues");
     }
 
     /**
@@ -111,7 +137,15 @@ public class Board extends AgileResource {
      * @throws JiraException when the retrieval fails
      */
     public List<Epic> getEpics() throws JiraException {
-        return AgileResource.list(getRestclient(), Epic.class, RESOURCE_URI + "board/" + getId() + "/epic");
+        return iterateEpics().toList();
+    }
+
+    /**
+     * @return The epics associated to the Board, fetched page by page when
+     * iterated.
+     */
+    public AgileResultSet<Epic> iterateEpics() {
+        return AgileResource.iterate(getRestclient(), Epic.class, RESOURCE_URI + "board/" + getId() + "/epic", "values");
     }
 }
 
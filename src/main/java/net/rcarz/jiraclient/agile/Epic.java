@@ -78,7 +78,15 @@ public class Epic extends AgileResource {
      * @throws JiraException when the retrieval fails
      */
     public List<Issue> getIssues() throws JiraException {
-        return AgileResource.list(getRestclient(), Issue.class, RESOURCE_URI + "epic/" + getId() + "/issue", "issues");
+        return iterateIssues().toList();
+    }
+
+    /**
+     * @return The issues in the Epic, fetched page by page when iterated
+     * and optionally filtered with JQL.
+     */
+    public AgileResultSet<Issue> iterateIssues() {
+        return AgileResource.iterate(getRestclient(), Issue.class, RESOURCE_URI + "epic/" + getId() + "/issue", "issues");
     }
 
     /**
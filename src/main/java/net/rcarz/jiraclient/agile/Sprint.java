@@ -72,7 +72,18 @@ public class Sprint extends AgileResource {
      * @throws JiraException when the retrieval fails
      */
     public static List<Sprint> getAll(RestClient restclient, long boardId) throws JiraException {
-        return AgileResource.list(restclient, Sprint.class, RESOURCE_URI + "board/" + boardId + "/sprint");
+        return iterateAll(restclient, boardId).toList();
+    }
+
+    /**
+     * Pages through the sprints related to the specified board.
+     *
+     * @param restclient REST client instance
+     * @param boardId    The Internal JIRA board ID.
+     * @return The sprints, fetched page by page when iterated.
+     */
+    public static AgileResultSet<Sprint> iterateAll(RestClient restclient, long boardId) {
+        return AgileResource.iterate(restclient, Sprint.class, RESOURCE_URI + "board/" + boardId + "/sprint", "values");
     }
 
     /**
@@ -80,7 +91,15 @@ public class Sprint extends AgileResource {
      * @throws JiraException when the retrieval fails
      */
     public List<Issue> getIssues() throws JiraException {
-        return AgileResource.list(getRestclient(), Issue.class, RESOURCE_URI + "sprint/" + getId() + "/issue", "issues");
+        return iterateIssues().toList();
+    }
+
+    /**
+     * @return The issues in the Sprint, fetched page by page when iterated
+     * and optionally filtered with JQL.
+     */
+    public AgileResultSet<Issue> iterateIssues() {
+        return AgileResource.iterate(getRestclient(), Issue.class, RESOURCE_URI + "sprint/" + getId() + "/issue", "issues");
     }
 
     @Override
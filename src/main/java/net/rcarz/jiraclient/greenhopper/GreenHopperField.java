@@ -19,6 +19,9 @@
 
 package net.rcarz.jiraclient.greenhopper;
 
+import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.ResourceFactory;
+import net.rcarz.jiraclient.ResourceRegistry;
 import net.rcarz.jiraclient.RestClient;
 
 import java.util.ArrayList;
@@ -26,6 +29,7 @@ import java.util.List;
 
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -38,6 +42,19 @@ public final class GreenHopperField {
 
     public static final String NO_DATE = "None";
 
+    /* Joda formatters are immutable and thread-safe */
+    private static final DateTimeFormatter DATE_TIME_FORMATTER =
+        DateTimeFormat.forPattern(DATE_TIME_FORMAT);
+
+    static {
+        ResourceRegistry.register(Epic.class, (rc, json, parentId) -> new Epic(rc, json));
+        ResourceRegistry.register(Marker.class, (rc, json, parentId) -> new Marker(rc, json));
+        ResourceRegistry.register(RapidView.class, (rc, json, parentId) -> new RapidView(rc, json));
+        ResourceRegistry.register(RapidViewProject.class, (rc, json, parentId) -> new RapidViewProject(rc, json));
+        ResourceRegistry.register(Sprint.class, (rc, json, parentId) -> new Sprint(rc, json));
+        ResourceRegistry.register(SprintIssue.class, (rc, json, parentId) -> new SprintIssue(rc, json));
+    }
+
     private GreenHopperField() { }
 
     /**
@@ -51,7 +68,7 @@ public final class GreenHopperField {
         if(dt == null || ((String)dt).equals(NO_DATE)){
             return null;
         }
-        return DateTime.parse((String)dt, DateTimeFormat.forPattern(DATE_TIME_FORMAT));
+        return DateTime.parse((String)dt, DATE_TIME_FORMATTER);
     }
 
     /**
@@ -135,18 +152,15 @@ public final class GreenHopperField {
         T result = null;
 
         if (r instanceof JSONObject) {
-            if (type == Epic.class)
-                result = (T)new Epic(restclient, (JSONObject)r);
-            else if (type == Marker.class)
-                result = (T)new Marker(restclient, (JSONObject)r);
-            else if (type == RapidView.class)
-                result = (T)new RapidView(restclient, (JSONObject)r);
-            else if (type == RapidViewProject.class)
-                result = (T)new RapidViewProject(restclient, (JSONObject)r);
-            else if (type == Sprint.class)
-                result = (T)new Sprint(restclient, (JSONObject)r);
-            else if (type == SprintIssue.class)
-                result = (T)new SprintIssue(restclient, (JSONObject)r);
+            ResourceFactory<T> factory = ResourceRegistry.get(type);
+
+            if (factory != null) {
+                try {
+                    result = factory.create(restclient, (JSONObject) r, null);
+                } catch (JiraException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
         }
 
         return result;
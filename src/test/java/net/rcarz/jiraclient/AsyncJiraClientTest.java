@@ -0,0 +1,80 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AsyncJiraClientTest {
+
+    @Test
+    public void testGetIssueCompletesWithIssue() throws Exception {
+        StubHttpClient http = new StubHttpClient();
+        http.enqueue(StubHttpClient.json(200, Utils.getTestIssue().toString()));
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+
+        Issue issue = jira.async().getIssue("FILTA-43").get(5, TimeUnit.SECONDS);
+
+        assertEquals("FILTA-43", issue.getKey());
+    }
+
+    @Test
+    public void testFailureCompletesExceptionally() throws Exception {
+        StubHttpClient http = new StubHttpClient();
+        http.enqueue(StubHttpClient.json(404, "{\"errorMessages\":[\"nope\"]}"));
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+
+        CompletableFuture<Issue> future = jira.async().getIssue("NOPE-1");
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof JiraException);
+        }
+    }
+
+    @Test
+    public void testCustomExecutorRunsCalls() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            JiraClient jira = new JiraClient(new StubHttpClient(), "http://jira.example.com", null);
+            AsyncJiraClient async = jira.async(executor);
+
+            String name = async.supply(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+
+            assertTrue(name.startsWith("pool-"));
+            assertSame(jira, async.getJiraClient());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDefaultExecutorIsBounded() {
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) AsyncJiraClient.getDefaultExecutor();
+
+        assertEquals(JiraClientConfig.defaults().getMaxConnectionsPerRoute(), pool.getMaximumPoolSize());
+        assertTrue(pool.allowsCoreThreadTimeOut());
+    }
+
+    @Test
+    public void testRejectedCallCompletesExceptionally() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        JiraClient jira = new JiraClient(new StubHttpClient(), "http://jira.example.com", null);
+
+        CompletableFuture<String> future = jira.async(executor).supply(() -> "never");
+
+        assertTrue(future.isCompletedExceptionally());
+    }
+}
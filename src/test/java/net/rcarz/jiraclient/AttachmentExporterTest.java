@@ -0,0 +1,174 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.http.Header;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AttachmentExporterTest {
+
+    /** Serves content(id) for /secure/attachment/{id}/..., honouring ranges. */
+    static class ContentHttpClient extends StubHttpClient {
+        @Override
+        protected CloseableHttpResponse respond(HttpRequest req) {
+            String path = ((HttpUriRequest) req).getURI().getPath();
+            if (path.contains("/broken/"))
+                return json(500, "{}");
+
+            byte[] data = content(path.split("/")[3]);
+            Header range = req.getFirstHeader("Range");
+            int from = range != null ? Integer.parseInt(range.getValue().replaceAll("bytes=(\\d+)-", "$1")) : 0;
+
+            CloseableHttpResponse resp = response(from > 0 ? 206 : 200, null, null, null);
+            resp.setEntity(new ByteArrayEntity(Arrays.copyOfRange(data, from, data.length)));
+            return resp;
+        }
+    }
+
+    static byte[] content(String id) {
+        byte[] data = new byte[1000 + Integer.parseInt(id) * 100];
+        Arrays.fill(data, (byte) Integer.parseInt(id));
+        return data;
+    }
+
+    private final ContentHttpClient http = new ContentHttpClient();
+    private JiraClient jira;
+    private Path target;
+
+    @Before
+    public void setUp() throws Exception {
+        jira = new JiraClient(http, "http://jira.example.com", null);
+        target = Files.createTempDirectory("export");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        List<File> files = new ArrayList<File>();
+        collect(target.toFile(), files);
+        for (int i = files.size() - 1; i >= 0; i--)
+            files.get(i).delete();
+    }
+
+    private static void collect(File f, List<File> out) {
+        out.add(f);
+        File[] children = f.listFiles();
+        if (children != null)
+            for (File c : children) collect(c, out);
+    }
+
+    private Issue issue(String key, String... ids) {
+        JSONArray attachments = new JSONArray();
+        for (String id : ids) {
+            String dir = id.equals("9") ? "broken" : "attachment";
+            attachments.put(new JSONObject()
+                .put("id", id)
+                .put("filename", "file" + id + ".bin")
+                .put("size", content(id).length)
+                .put("content", "http://jira.example.com/secure/" + dir + "/" + id + "/file" + id + ".bin"));
+        }
+
+        return new Issue(jira.getRestClient(), new JSONObject()
+            .put("id", key)
+            .put("key", key)
+            .put("fields", new JSONObject().put("attachment", attachments)));
+    }
+
+    private List<Issue> issues() {
+        return Arrays.asList(issue("TEST-1", "1", "2"), issue("TEST-2", "3"), issue("TEST-3", "1"));
+    }
+
+    @Test
+    public void testExportDownloadsEachAttachmentOnce() throws Exception {
+        AttachmentExporter.Report report = new AttachmentExporter(jira, target)
+            .parallelism(2)
+            .export(issues().iterator());
+
+        assertEquals(3, report.getIssueCount());
+        assertEquals(3, report.getAttachmentCount());
+        assertEquals(3, report.getDownloadedCount());
+        assertEquals(1100 + 1200 + 1300, report.getBytes());
+        assertArrayEquals(content("3"), Files.readAllBytes(target.resolve("TEST-2").resolve("3_file3.bin")));
+    }
+
+    @Test
+    public void testSecondRunSkipsAndResumes() throws Exception {
+        new AttachmentExporter(jira, target).export(issues().iterator());
+        Path partial = target.resolve("TEST-1").resolve("2_file2.bin");
+        Files.write(partial, Arrays.copyOf(content("2"), 100));
+        http.requests.clear();
+
+        AttachmentExporter.Report report = new AttachmentExporter(jira, target).export(issues().iterator());
+
+        assertEquals(2, report.getSkippedCount());
+        assertEquals(1, report.getResumedCount());
+        assertEquals(1100, report.getBytes());
+        assertEquals(1, http.requests.size());
+        assertArrayEquals(content("2"), Files.readAllBytes(partial));
+    }
+
+    @Test
+    public void testFailuresAreReportedPerAttachment() throws Exception {
+        AttachmentExporter.Report report = new AttachmentExporter(jira, target)
+            .export(Arrays.asList(issue("TEST-1", "1", "9")).iterator());
+
+        assertEquals(1, report.getDownloadedCount());
+        assertEquals(1, report.getFailures().size());
+        assertEquals(true, report.getFailures().containsKey("9"));
+    }
+
+    @Test
+    public void testListenerFailureIsReportedPerAttachment() throws Exception {
+        AttachmentExporter.Report report = new AttachmentExporter(jira, target)
+            .parallelism(2)
+            .listener((issue, attachment, outcome, file, error) -> {
+                if (attachment.getId().equals("2"))
+                    throw new IllegalStateException("listener broke");
+            })
+            .export(issues().iterator());
+
+        assertEquals(3, report.getDownloadedCount());
+        assertEquals(1, report.getFailures().size());
+        assertEquals("listener broke", report.getFailures().get("2").getCause().getMessage());
+    }
+
+    @Test
+    public void testRuntimeFailureIsReportedPerAttachment() throws Exception {
+        Issue issue = new Issue(jira.getRestClient(), new JSONObject()
+            .put("id", "TEST-4")
+            .put("key", "TEST-4")
+            .put("fields", new JSONObject().put("attachment", new JSONArray().put(new JSONObject()
+                .put("id", "5")
+                .put("filename", "file5.bin")
+                .put("size", 10)
+                .put("content", "http://[broken")))));
+
+        AttachmentExporter.Report report = new AttachmentExporter(jira, target)
+            .export(Arrays.asList(issue("TEST-1", "1"), issue).iterator());
+
+        assertEquals(1, report.getDownloadedCount());
+        assertEquals(true, report.getFailures().get("5").getCause() instanceof RuntimeException);
+    }
+
+    @Test
+    public void testSanitize() {
+        assertEquals("a_b_c", AttachmentExporter.sanitize("a/b\\c"));
+        assertEquals("_..", AttachmentExporter.sanitize(".."));
+    }
+}
@@ -0,0 +1,307 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.content.StringBody;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class AttachmentTest {
+
+    private static final byte[] DATA = new byte[200000];
+
+    static {
+        for (int i = 0; i < DATA.length; i++)
+            DATA[i] = (byte) (i * 31);
+    }
+
+    /**
+     * Serves DATA, honouring "bytes=N-" ranges unless told to ignore them;
+     * a range at or past the end is answered with 416.
+     */
+    static class ContentHttpClient extends StubHttpClient {
+        private final boolean ranges;
+
+        ContentHttpClient(boolean ranges) {
+            this.ranges = ranges;
+        }
+
+        @Override
+        protected CloseableHttpResponse respond(HttpRequest req) {
+            Header range = req.getFirstHeader("Range");
+            int from = 0;
+
+            if (range != null && ranges)
+                from = Integer.parseInt(range.getValue().replaceAll("bytes=(\\d+)-", "$1"));
+
+            if (from >= DATA.length) {
+                CloseableHttpResponse resp = response(416, null, null, null);
+                resp.setHeader("Content-Range", "bytes */" + DATA.length);
+                return resp;
+            }
+
+            CloseableHttpResponse resp = response(from > 0 ? 206 : 200, null, null, null);
+            resp.setEntity(new ByteArrayEntity(Arrays.copyOfRange(DATA, from, DATA.length)));
+            return resp;
+        }
+    }
+
+    private static Attachment attachment(StubHttpClient http) {
+        RestClient restclient = new RestClient(http, URI.create("http://jira.example.com"));
+        return new Attachment(restclient, new JSONObject()
+            .put("id", "10")
+            .put("filename", "data.bin")
+            .put("size", DATA.length)
+            .put("content", "http://jira.example.com/secure/attachment/10/data.bin"));
+    }
+
+    @Test
+    public void testDownloadToByteArray() throws Exception {
+        assertArrayEquals(DATA, attachment(new ContentHttpClient(true)).download());
+    }
+
+    @Test
+    public void testDownloadToStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = attachment(new ContentHttpClient(true)).download(out);
+
+        assertEquals(DATA.length, written);
+        assertArrayEquals(DATA, out.toByteArray());
+    }
+
+    @Test
+    public void testDownloadToFileResumesPartialFile() throws Exception {
+        ContentHttpClient http = new ContentHttpClient(true);
+        Path file = Files.createTempFile("attachment", ".bin");
+        try {
+            Files.write(file, Arrays.copyOf(DATA, 12345));
+
+            long written = attachment(http).download(file, true);
+
+            assertEquals(DATA.length - 12345, written);
+            assertEquals("bytes=12345-", http.requests.get(0).getFirstHeader("Range").getValue());
+            assertArrayEquals(DATA, Files.readAllBytes(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testDownloadToFileRestartsWhenRangeIgnored() throws Exception {
+        Path file = Files.createTempFile("attachment", ".bin");
+        try {
+            Files.write(file, Arrays.copyOf(DATA, 500));
+
+            long written = attachment(new ContentHttpClient(false)).download(file, true);
+
+            assertEquals(DATA.length, written);
+            assertArrayEquals(DATA, Files.readAllBytes(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testDownloadToFileReplacesContent() throws Exception {
+        ContentHttpClient http = new ContentHttpClient(true);
+        Path file = Files.createTempFile("attachment", ".bin");
+        try {
+            Files.write(file, new byte[DATA.length + 100]);
+
+            attachment(http).download(file);
+
+            assertNull(http.requests.get(0).getFirstHeader("Range"));
+            assertArrayEquals(DATA, Files.readAllBytes(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testResumingCompleteFileIsDone() throws Exception {
+        ContentHttpClient http = new ContentHttpClient(true);
+        RestClient restclient = new RestClient(http, URI.create("http://jira.example.com"));
+        Attachment unsized = new Attachment(restclient, new JSONObject()
+            .put("id", "10")
+            .put("content", "http://jira.example.com/secure/attachment/10/data.bin"));
+        Path file = Files.createTempFile("attachment", ".bin");
+        try {
+            Files.write(file, DATA);
+
+            assertEquals(0, unsized.download(file, true));
+            assertEquals(1, http.requests.size());
+            assertArrayEquals(DATA, Files.readAllBytes(file));
+
+            InputStream in = unsized.openStream(DATA.length);
+            try {
+                assertEquals(-1, in.read());
+            } finally {
+                in.close();
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = JiraException.class)
+    public void testUnsatisfiableRangeIsReported() throws Exception {
+        attachment(new ContentHttpClient(true)).openStream(DATA.length + 1);
+    }
+
+    @Test
+    public void testOpenStreamAtOffsetSkipsWhenRangeIgnored() throws Exception {
+        InputStream in = attachment(new ContentHttpClient(false)).openStream(100);
+        try {
+            assertEquals(DATA[100], (byte) in.read());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test(expected = JiraException.class)
+    public void testHttpErrorIsReported() throws Exception {
+        StubHttpClient http = new StubHttpClient();
+        http.enqueue(StubHttpClient.json(404, "{}"));
+
+        attachment(http).download();
+    }
+
+    /**
+     * Writes out each upload body and answers with one attachment per file
+     * part; bad* files fail with 500 and busy* files with 503.
+     */
+    static class UploadHttpClient extends StubHttpClient {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        @Override
+        protected CloseableHttpResponse respond(HttpRequest req) throws IOException {
+            attempts.incrementAndGet();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            ((HttpEntityEnclosingRequest) req).getEntity().writeTo(body);
+
+            JSONArray created = new JSONArray();
+            Matcher m = Pattern.compile("filename=\"([^\"]+)\"").matcher(body.toString("ISO-8859-1"));
+            while (m.find()) {
+                if (m.group(1).startsWith("bad"))
+                    return json(500, "{}");
+                if (m.group(1).startsWith("busy"))
+                    return json(503, "{}");
+                created.put(new JSONObject().put("id", String.valueOf(created.length())).put("filename", m.group(1)));
+            }
+
+            return json(200, created.toString());
+        }
+    }
+
+    @Test
+    public void testUploadReportsProgressAndPerFileResults() throws Exception {
+        UploadHttpClient http = new UploadHttpClient();
+        Issue issue = new Issue(new RestClient(http, URI.create("http://jira.example.com")), Utils.getTestIssue());
+        final Map<String, Long> progress = new ConcurrentHashMap<String, Long>();
+
+        Path file = Files.createTempFile("upload", ".bin");
+        try {
+            Files.write(file, DATA);
+
+            List<AttachmentUpload.Result> results = issue.uploadAttachments()
+                .add(new Issue.NewAttachment("a.bin", file),
+                     new Issue.NewAttachment("b.txt", new ByteArrayInputStream(new byte[10])),
+                     new Issue.NewAttachment("bad.txt", new byte[3]),
+                     new Issue.NewAttachment("busy.txt", new byte[3]))
+                .parallelism(2)
+                .retries(2)
+                .listener((f, sent, total) -> progress.put(f.getFilename(), sent))
+                .execute();
+
+            assertEquals(4, results.size());
+            assertEquals("a.bin", results.get(0).getAttachment().getFileName());
+            assertTrue(results.get(1).isSuccess());
+            assertFalse(results.get(2).isSuccess());
+            assertFalse(results.get(3).isSuccess());
+            assertEquals(DATA.length, (long) progress.get("a.bin"));
+            assertEquals(10L, (long) progress.get("b.txt"));
+            /* the 500 may have created the attachment and is not retried */
+            assertEquals(2 + 1 + 3, http.attempts.get());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testProgressBodyKeepsContentType() throws Exception {
+        ContentType type = ContentType.create("text/plain", StandardCharsets.UTF_8);
+        AttachmentUpload.ProgressBody body = new AttachmentUpload.ProgressBody(
+            new Issue.NewAttachment("a.txt", new byte[1]), new StringBody("gr\u00fc\u00dfe", type), null);
+
+        assertEquals("text/plain", body.getMimeType());
+        assertEquals("UTF-8", body.getCharset());
+        assertEquals(StandardCharsets.UTF_8, body.getContentType().getCharset());
+    }
+
+    @Test
+    public void testUploadProgressIsThrottled() throws Exception {
+        UploadHttpClient http = new UploadHttpClient();
+        Issue issue = new Issue(new RestClient(http, URI.create("http://jira.example.com")), Utils.getTestIssue());
+        final List<Long> calls = Collections.synchronizedList(new ArrayList<Long>());
+        int size = 16 * AttachmentUpload.PROGRESS_INTERVAL + 10;
+
+        issue.uploadAttachments()
+            .add(new Issue.NewAttachment("big.bin", new ByteArrayInputStream(new byte[size])))
+            .listener((f, sent, total) -> calls.add(sent))
+            .execute();
+
+        assertEquals(1 + 16 + 1, calls.size());
+        assertEquals(0L, (long) calls.get(0));
+        assertEquals(size, (long) calls.get(calls.size() - 1));
+    }
+
+    @Test
+    public void testAddAttachmentsSendsOneRequest() throws Exception {
+        UploadHttpClient http = new UploadHttpClient();
+        Issue issue = new Issue(new RestClient(http, URI.create("http://jira.example.com")), Utils.getTestIssue());
+
+        issue.addAttachments(new Issue.NewAttachment("a.txt", new byte[1]),
+            new Issue.NewAttachment("b.txt", new byte[2]));
+
+        assertEquals(1, http.requests.size());
+        assertEquals("nocheck", http.requests.get(0).getFirstHeader("X-Atlassian-Token").getValue());
+    }
+
+    @Test(expected = JiraException.class)
+    public void testAddAttachmentsFailsOnError() throws Exception {
+        UploadHttpClient http = new UploadHttpClient();
+        Issue issue = new Issue(new RestClient(http, URI.create("http://jira.example.com")), Utils.getTestIssue());
+
+        issue.addAttachments(new Issue.NewAttachment("bad.txt", new byte[1]));
+    }
+}
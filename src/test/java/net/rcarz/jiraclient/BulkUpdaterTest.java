@@ -0,0 +1,143 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class BulkUpdaterTest {
+
+    private static final String EDITMETA = "{\"fields\":{"
+        + "\"summary\":{\"required\":true,\"name\":\"Summary\",\"schema\":{\"type\":\"string\"}},"
+        + "\"labels\":{\"required\":false,\"name\":\"Labels\",\"schema\":{\"type\":\"array\",\"items\":\"string\"}}}}";
+
+    static class EditHttpClient extends StubHttpClient {
+        final AtomicInteger editmeta = new AtomicInteger();
+        final List<String> bodies = new ArrayList<String>();
+        volatile boolean rejectWithFieldError = false;
+
+        @Override
+        protected CloseableHttpResponse respond(HttpRequest req) throws java.io.IOException {
+            String path = ((HttpUriRequest) req).getURI().getPath();
+
+            if (path.endsWith("/editmeta")) {
+                editmeta.incrementAndGet();
+                return json(200, EDITMETA);
+            }
+
+            synchronized (bodies) {
+                bodies.add(EntityUtils.toString(((HttpEntityEnclosingRequestBase) req).getEntity()));
+            }
+
+            if (path.endsWith("TEST-3") && rejectWithFieldError)
+                return json(400, "{\"errorMessages\":[],\"errors\":{\"labels\":\"bad\"}}");
+            if (path.endsWith("TEST-3"))
+                return json(403, "{\"errorMessages\":[\"not allowed\"],\"errors\":{}}");
+
+            return response(204, null, null, null);
+        }
+    }
+
+    private static Issue issue(JiraClient jira, String key, String project, String typeId) {
+        return new Issue(jira.getRestClient(), new JSONObject()
+            .put("id", key)
+            .put("key", key)
+            .put("fields", new JSONObject()
+                .put("project", new JSONObject().put("id", project).put("key", project))
+                .put("issuetype", new JSONObject().put("id", typeId).put("name", "Type" + typeId))));
+    }
+
+    @Test
+    public void testReusesEditMetadataPerProjectAndType() throws Exception {
+        EditHttpClient http = new EditHttpClient();
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+        List<Issue> issues = new ArrayList<Issue>();
+        for (int i = 1; i <= 4; i++)
+            issues.add(issue(jira, "TEST-" + i, "TEST", "1"));
+        issues.add(issue(jira, "OTHER-1", "OTHER", "1"));
+
+        final AtomicInteger notified = new AtomicInteger();
+        BulkUpdater.Report report = new BulkUpdater(jira)
+            .parallelism(3)
+            .fieldAdd(Field.LABELS, "bulk")
+            .listener(new BulkUpdater.Listener() {
+                public void updated(Issue issue, JiraException error, BulkUpdater.Report progress) {
+                    notified.incrementAndGet();
+                }
+            })
+            .execute(issues.iterator());
+
+        assertEquals(2, http.editmeta.get());
+        assertEquals(2, report.getMetadataRequestCount());
+        assertEquals(5, report.getIssueCount());
+        assertEquals(4, report.getUpdatedCount());
+        assertEquals(1, report.getFailures().size());
+        assertTrue(report.getFailures().containsKey("TEST-3"));
+        assertEquals(5, notified.get());
+        assertEquals(5, http.bodies.size());
+
+        JSONObject sent = new JSONObject(http.bodies.get(0));
+        assertEquals("bulk", sent.getJSONObject("update").getJSONArray("labels")
+            .getJSONObject(0).getString("add"));
+    }
+
+    @Test
+    public void testUsesInstalledMetadataCache() throws Exception {
+        EditHttpClient http = new EditHttpClient();
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+        MetadataCache cache = new MetadataCache(1, TimeUnit.HOURS);
+        jira.setMetadataCache(cache);
+
+        List<Issue> issues = new ArrayList<Issue>();
+        issues.add(issue(jira, "TEST-1", "TEST", "1"));
+        issues.add(issue(jira, "TEST-2", "TEST", "1"));
+
+        BulkUpdater updater = new BulkUpdater(jira).fieldAdd(Field.LABELS, "bulk");
+        assertEquals(1, updater.execute(issues.iterator()).getMetadataRequestCount());
+        assertEquals(0, updater.execute(issues.iterator()).getMetadataRequestCount());
+        assertEquals(1, http.editmeta.get());
+        assertEquals(1, cache.size());
+
+        /* a field error drops the shared entry */
+        issues.add(issue(jira, "TEST-3", "TEST", "1"));
+        http.rejectWithFieldError = true;
+        updater.parallelism(1).execute(issues.subList(2, 3).iterator());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testPerIssueEdit() throws Exception {
+        EditHttpClient http = new EditHttpClient();
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+        List<Issue> issues = new ArrayList<Issue>();
+        issues.add(issue(jira, "TEST-1", "TEST", "1"));
+
+        new BulkUpdater(jira)
+            .edit(new BulkUpdater.Edit() {
+                public void apply(Issue issue, Issue.FluentUpdate update) {
+                    update.field(Field.SUMMARY, "renamed " + issue.getKey());
+                }
+            })
+            .execute(issues.iterator());
+
+        JSONObject sent = new JSONObject(http.bodies.get(0));
+        assertEquals("renamed TEST-1", sent.getJSONObject("fields").getString("summary"));
+    }
+
+    @Test(expected = JiraException.class)
+    public void testRequiresAnEdit() throws Exception {
+        JiraClient jira = new JiraClient(new StubHttpClient(), "http://jira.example.com", null);
+        new BulkUpdater(jira).execute(new ArrayList<Issue>().iterator());
+    }
+}
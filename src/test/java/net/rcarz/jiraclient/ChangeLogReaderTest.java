@@ -0,0 +1,217 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class ChangeLogReaderTest {
+
+    /**
+     * Serves 250 issues, each with two changes except TEST-7 with 150.
+     * The changelog resource pages by 100; search embeds at most 100
+     * changes per issue, the first ones unless embedLatest is set.
+     */
+    private static class ChangeLogHttpClient extends StubHttpClient {
+        final List<String> paths = new ArrayList<String>();
+        boolean hasChangeLogResource = true;
+        boolean embedLatest = false;
+
+        @Override
+        protected synchronized CloseableHttpResponse respond(HttpRequest req) throws IOException {
+            URI uri = URI.create(req.getRequestLine().getUri());
+            String path = uri.getPath();
+            int startAt = 0;
+            int max = 50;
+
+            paths.add(path.substring(path.indexOf("/rest/")) + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : ""));
+
+            for (NameValuePair p : URLEncodedUtils.parse(uri, "UTF-8")) {
+                if (p.getName().equals("startAt"))
+                    startAt = Integer.parseInt(p.getValue());
+                if (p.getName().equals("maxResults"))
+                    max = Integer.parseInt(p.getValue());
+            }
+
+            if (path.endsWith("/search")) {
+                JSONArray issues = new JSONArray();
+                for (int n = startAt + 1; n <= Math.min(250, startAt + max); n++) {
+                    int total = changes(n);
+                    int first = embedLatest ? Math.max(0, total - 100) : 0;
+                    issues.put(new JSONObject()
+                        .put("key", "TEST-" + n)
+                        .put("changelog", new JSONObject()
+                            .put("startAt", first)
+                            .put("maxResults", Math.min(100, total))
+                            .put("total", total)
+                            .put("histories", histories(n, first, Math.min(first + 100, total)))));
+                }
+                return json(200, new JSONObject().put("startAt", startAt).put("total", 250)
+                    .put("issues", issues).toString());
+            }
+
+            if (path.endsWith("/changelog")) {
+                if (!hasChangeLogResource)
+                    return json(404, "{\"errorMessages\":[\"Not found\"]}");
+
+                int n = issueNumber(path.substring(0, path.length() - "/changelog".length()));
+                int total = changes(n);
+                int end = Math.min(total, startAt + Math.min(max, 100));
+                return json(200, new JSONObject()
+                    .put("startAt", startAt)
+                    .put("maxResults", 100)
+                    .put("total", total)
+                    .put("isLast", end >= total)
+                    .put("values", histories(n, startAt, end)).toString());
+            }
+
+            if (path.contains("/issue/TEST-")) {
+                int n = issueNumber(path);
+                return json(200, new JSONObject()
+                    .put("key", "TEST-" + n)
+                    .put("changelog", new JSONObject()
+                        .put("startAt", 0)
+                        .put("total", changes(n))
+                        .put("histories", histories(n, 0, changes(n)))).toString());
+            }
+
+            return json(404, "{\"errorMessages\":[\"Not found\"]}");
+        }
+
+        private static int issueNumber(String path) {
+            return Integer.parseInt(path.substring(path.lastIndexOf('-') + 1));
+        }
+
+        static int changes(int n) {
+            return n == 7 ? 150 : 2;
+        }
+
+        private static JSONArray histories(int n, int from, int to) {
+            JSONArray result = new JSONArray();
+            for (int i = from; i < to; i++)
+                result.put(new JSONObject()
+                    .put("id", n + "." + i)
+                    .put("author", new JSONObject().put("name", "user" + (i % 3)))
+                    .put("created", "2016-05-19T10:00:00.000+0000")
+                    .put("items", new JSONArray().put(new JSONObject()
+                        .put("field", "status")
+                        .put("fromString", "Open")
+                        .put("toString", "Step " + i))));
+            return result;
+        }
+    }
+
+    private final ChangeLogHttpClient http = new ChangeLogHttpClient();
+
+    private JiraClient jira() throws JiraException {
+        return new JiraClient(http, "http://jira.example.com", null);
+    }
+
+    @Test
+    public void testReadsChangeLogResourceInPages() throws Exception {
+        Issue issue = new Issue(jira().getRestClient(), new JSONObject().put("id", "10007").put("key", "TEST-7"));
+
+        List<IssueHistory> histories = jira().getIssueChangeLog(issue);
+
+        assertEquals(150, histories.size());
+        assertEquals("7.149", histories.get(149).getId());
+        assertEquals("Step 0", histories.get(0).getChanges().get(0).getToStr());
+        assertEquals(2, http.paths.size());
+        assertEquals("/rest/api/latest/issue/TEST-7/changelog?startAt=100&maxResults=100",
+            http.paths.get(1).replace("maxResults=100&startAt=100", "startAt=100&maxResults=100"));
+    }
+
+    @Test
+    public void testFallsBackToExpandedIssue() throws Exception {
+        http.hasChangeLogResource = false;
+        ChangeLogReader reader = new ChangeLogReader(jira().getRestClient());
+
+        assertEquals(150, reader.read("TEST-7").size());
+        assertEquals(2, reader.read("TEST-8").size());
+
+        assertEquals(3, http.paths.size());
+        assertTrue(http.paths.get(0).contains("/changelog"));
+        assertTrue(http.paths.get(2).contains("expand=changelog"));
+    }
+
+    @Test
+    public void testReadsChangeLogsWithSearchPages() throws Exception {
+        final List<String> seen = new ArrayList<String>();
+
+        ChangeLogReader.Result result = jira().getChangeLogs("project = TEST", new ChangeLogReader.Listener() {
+            public void history(String issueKey, IssueHistory history) {
+                seen.add(issueKey + "/" + history.getId());
+            }
+        });
+
+        assertEquals(250, result.issues);
+        assertEquals(249 * 2 + 150, result.histories);
+        assertEquals(seen.size(), result.histories);
+        assertEquals(3, result.searchPages);
+        assertEquals(1, result.extraPages);
+        assertEquals(4, http.paths.size());
+        assertTrue(http.paths.get(0).contains("expand=changelog"));
+        assertEquals("TEST-7/7.100", seen.get(6 * 2 + 100));
+        assertEquals("TEST-8/8.0", seen.get(6 * 2 + 150));
+    }
+
+    @Test
+    public void testFetchesOnlyEntriesMissingFromSearch() throws Exception {
+        http.embedLatest = true;
+        final List<String> seen = new ArrayList<String>();
+
+        ChangeLogReader.Result result = jira().getChangeLogs("project = TEST", new ChangeLogReader.Listener() {
+            public void history(String issueKey, IssueHistory history) {
+                if (issueKey.equals("TEST-7"))
+                    seen.add(history.getId());
+            }
+        });
+
+        assertEquals(249 * 2 + 150, result.histories);
+        assertEquals(1, result.extraPages);
+        assertEquals(150, seen.size());
+        for (int i = 0; i < 150; i++)
+            assertEquals("7." + i, seen.get(i));
+
+        String extra = http.paths.get(1);
+        assertTrue(extra, extra.contains("/issue/TEST-7/changelog"));
+        assertTrue(extra, extra.contains("maxResults=50"));
+        assertTrue(extra, !extra.contains("startAt=") || extra.contains("startAt=0"));
+    }
+
+    @Test
+    public void testClientRemembersMissingChangeLogResource() throws Exception {
+        http.hasChangeLogResource = false;
+        JiraClient jira = jira();
+        Issue issue = new Issue(jira.getRestClient(), new JSONObject().put("id", "10008").put("key", "TEST-8"));
+
+        assertEquals(2, jira.getIssueChangeLog(issue).size());
+        assertEquals(2, jira.getIssueChangeLog(issue).size());
+
+        assertEquals(3, http.paths.size());
+        assertTrue(http.paths.get(0).contains("/changelog"));
+        assertTrue(http.paths.get(2).contains("expand=changelog"));
+    }
+
+    @Test
+    public void testMissingIssueFails() throws Exception {
+        try {
+            new ChangeLogReader(jira().getRestClient()).read("NOPE");
+            fail("expected JiraException");
+        } catch (JiraException ex) {
+            assertEquals("Failed to retrieve change log of NOPE", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package net.rcarz.jiraclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * A JIRA stand-in on a local port serving a synthetic, deterministic data
+ * set, for load tests without a real server.
+ *
+ * Issue <i>n</i> (1 to {@link #issues(int)}) is <code>LOAD-n</code>; every
+ * {@link #attachmentEvery(int)}th issue has one attachment whose size and
+ * bytes depend only on <i>n</i>. Searches ignore the JQL and page over all
+ * issues. Each response can be delayed and a share of them answered with
+ * 503 and <code>Retry-After: 0</code>.
+ *
+ * Served: <code>search</code>, <code>issue/{key}</code> (GET and PUT),
+ * <code>issue/{key}/editmeta</code>, <code>issue/{key}/transitions</code>
+ * (GET and POST) under <code>/rest/api/{version}/</code>, attachment
+ * contents with ranges, <code>/rest/agile/1.0/board</code>,
+ * <code>board/{id}</code> and <code>board/{id}/sprint</code>, and
+ * <code>/rest/greenhopper/1.0/rapidview</code>, <code>rapidview/{id}</code>
+ * and <code>sprintquery/{id}</code>.
+ */
+public class FakeJiraServer implements AutoCloseable {
+
+    private static final Pattern API = Pattern.compile(".*/rest/api/[^/]+/(.*)");
+    private static final Pattern AGILE = Pattern.compile(".*/rest/agile/1\\.0/(.*)");
+    private static final Pattern GREENHOPPER = Pattern.compile(".*/rest/greenhopper/1\\.0/(.*)");
+    private static final Pattern ATTACHMENT = Pattern.compile(".*/secure/attachment/(\\d+)/.*");
+    private static final Pattern ISSUE = Pattern.compile("issue/LOAD-(\\d+)(/editmeta|/transitions)?");
+    private static final long BASE_TIME = 1704067200000L;
+    private static final int MAX_PAGE = 100;
+
+    private int issues = 1000;
+    private int boards = 20;
+    private int attachmentEvery = 10;
+    private long latencyMillis = 0;
+    private long jitterMillis = 0;
+    private double errorRate = 0;
+    private int threads = 32;
+
+    private HttpServer server;
+    private ExecutorService pool;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    /** Sets the number of issues. Defaults to 1000. */
+    public FakeJiraServer issues(int issues) {
+        this.issues = issues;
+        return this;
+    }
+
+    /** Sets the number of agile boards and rapid views. Defaults to 20. */
+    public FakeJiraServer boards(int boards) {
+        this.boards = boards;
+        return this;
+    }
+
+    /** Gives every n-th issue an attachment. Defaults to 10. */
+    public FakeJiraServer attachmentEvery(int n) {
+        this.attachmentEvery = n;
+        return this;
+    }
+
+    /** Delays each response by a fixed time plus a random jitter. */
+    public FakeJiraServer latency(long millis, long jitter, TimeUnit unit) {
+        this.latencyMillis = unit.toMillis(millis);
+        this.jitterMillis = unit.toMillis(jitter);
+        return this;
+    }
+
+    /**
+     * Answers the given share of requests with 503, spread evenly over the
+     * request sequence so runs are repeatable.
+     */
+    public FakeJiraServer errorRate(double rate) {
+        this.errorRate = rate;
+        return this;
+    }
+
+    /** Sets the number of server threads. Defaults to 32. */
+    public FakeJiraServer threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Starts serving on a free local port.
+     *
+     * @return the current server instance
+     */
+    public FakeJiraServer start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128);
+        pool = Executors.newFixedThreadPool(threads);
+        server.setExecutor(pool);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    serve(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        return this;
+    }
+
+    /** Gets the base URI to give to {@link JiraClient}. */
+    public String getUri() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /** Number of response body bytes sent */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public int getIssueCount() {
+        return issues;
+    }
+
+    @Override
+    public void close() {
+        if (server != null)
+            server.stop(0);
+        if (pool != null)
+            pool.shutdownNow();
+    }
+
+    private void serve(HttpExchange ex) throws IOException {
+        long n = requests.incrementAndGet();
+        drain(ex.getRequestBody());
+        pause();
+
+        if ((long) (n * errorRate) > (long) ((n - 1) * errorRate)) {
+            errors.incrementAndGet();
+            ex.getResponseHeaders().set("Retry-After", "0");
+            send(ex, 503, "{\"errorMessages\":[\"Service unavailable\"]}");
+            return;
+        }
+
+        String path = ex.getRequestURI().getPath();
+        String method = ex.getRequestMethod();
+        Map<String, String> query = query(ex.getRequestURI());
+        Matcher m;
+
+        if ((m = ATTACHMENT.matcher(path)).matches()) {
+            attachment(ex, Integer.parseInt(m.group(1)));
+        } else if ((m = API.matcher(path)).matches()) {
+            api(ex, method, m.group(1), query);
+        } else if ((m = AGILE.matcher(path)).matches()) {
+            agile(ex, m.group(1), query);
+        } else if ((m = GREENHOPPER.matcher(path)).matches()) {
+            greenhopper(ex, m.group(1));
+        } else {
+            notFound(ex);
+        }
+    }
+
+    private void api(HttpExchange ex, String method, String rest, Map<String, String> query)
+        throws IOException {
+
+        if (rest.equals("search")) {
+            int startAt = intParam(query, "startAt", 0);
+            int max = Math.min(intParam(query, "maxResults", 50), MAX_PAGE);
+            JSONArray page = new JSONArray();
+
+            for (int n = startAt + 1; n <= Math.min(issues, startAt + max); n++)
+                page.put(issue(n));
+
+            send(ex, 200, new JSONObject()
+                .put("startAt", startAt)
+                .put("maxResults", max)
+                .put("total", issues)
+                .put("issues", page).toString());
+            return;
+        }
+
+        Matcher m = ISSUE.matcher(rest);
+        if (!m.matches() || Integer.parseInt(m.group(1)) > issues || Integer.parseInt(m.group(1)) < 1) {
+            notFound(ex);
+            return;
+        }
+
+        int n = Integer.parseInt(m.group(1));
+        String sub = m.group(2);
+
+        if (sub == null && method.equals("GET"))
+            send(ex, 200, issue(n).toString());
+        else if (sub == null && method.equals("PUT"))
+            send(ex, 204, null);
+        else if ("/editmeta".equals(sub))
+            send(ex, 200, new JSONObject().put("fields", editmeta()).toString());
+        else if ("/transitions".equals(sub) && method.equals("GET"))
+            send(ex, 200, transitions(n).toString());
+        else if ("/transitions".equals(sub))
+            send(ex, 204, null);
+        else
+            notFound(ex);
+    }
+
+    private void agile(HttpExchange ex, String rest, Map<String, String> query) throws IOException {
+        String[] parts = rest.split("/");
+
+        if (parts.length == 1 && parts[0].equals("board")) {
+            int startAt = intParam(query, "startAt", 0);
+            int max = Math.min(intParam(query, "maxResults", 50), MAX_PAGE);
+            JSONArray values = new JSONArray();
+
+            for (int id = startAt + 1; id <= Math.min(boards, startAt + max); id++)
+                values.put(board(id));
+
+            send(ex, 200, new JSONObject()
+                .put("startAt", startAt)
+                .put("maxResults", max)
+                .put("total", boards)
+                .put("isLast", startAt + max >= boards)
+                .put("values", values).toString());
+        } else if (parts.length == 2 && parts[0].equals("board")) {
+            send(ex, 200, board(Integer.parseInt(parts[1])).toString());
+        } else if (parts.length == 3 && parts[0].equals("board") && parts[2].equals("sprint")) {
+            int board = Integer.parseInt(parts[1]);
+            JSONArray values = new JSONArray();
+
+            for (int s = 1; s <= 3; s++) {
+                values.put(new JSONObject()
+                    .put("id", board * 100 + s)
+                    .put("self", getUri() + "/rest/agile/1.0/sprint/" + (board * 100 + s))
+                    .put("state", s == 3 ? "active" : "closed")
+                    .put("name", "Sprint " + s)
+                    .put("originBoardId", board));
+            }
+
+            send(ex, 200, new JSONObject()
+                .put("startAt", 0)
+                .put("maxResults", 50)
+                .put("isLast", true)
+                .put("values", values).toString());
+        } else {
+            notFound(ex);
+        }
+    }
+
+    private void greenhopper(HttpExchange ex, String rest) throws IOException {
+        String[] parts = rest.split("/");
+
+        if (parts.length == 1 && parts[0].equals("rapidview")) {
+            JSONArray views = new JSONArray();
+            for (int id = 1; id <= boards; id++)
+                views.put(rapidView(id));
+            send(ex, 200, new JSONObject().put("views", views).toString());
+        } else if (parts.length == 2 && parts[0].equals("rapidview")) {
+            send(ex, 200, rapidView(Integer.parseInt(parts[1])).toString());
+        } else if (parts.length == 2 && parts[0].equals("sprintquery")) {
+            int view = Integer.parseInt(parts[1]);
+            JSONArray sprints = new JSONArray();
+            for (int s = 1; s <= 3; s++) {
+                sprints.put(new JSONObject()
+                    .put("id", view * 100 + s)
+                    .put("name", "Sprint " + s)
+                    .put("closed", s < 3));
+            }
+            send(ex, 200, new JSONObject().put("sprints", sprints).toString());
+        } else {
+            notFound(ex);
+        }
+    }
+
+    private void attachment(HttpExchange ex, int n) throws IOException {
+        byte[] data = attachmentContent(n);
+        String range = ex.getRequestHeaders().getFirst("Range");
+        int from = 0;
+
+        if (range != null && range.matches("bytes=\\d+-"))
+            from = Math.min(data.length, Integer.parseInt(range.substring(6, range.length() - 1)));
+
+        ex.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        ex.sendResponseHeaders(from > 0 ? 206 : 200, data.length - from);
+
+        OutputStream out = ex.getResponseBody();
+        out.write(data, from, data.length - from);
+        out.close();
+        bytesSent.addAndGet(data.length - from);
+    }
+
+    /**
+     * Builds issue n as a search or issue response contains it.
+     */
+    JSONObject issue(int n) {
+        String key = "LOAD-" + n;
+        String[] statuses = {"Open", "In Progress", "Done"};
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String time = df.format(new Date(BASE_TIME + TimeUnit.MINUTES.toMillis(n)));
+
+        JSONObject fields = new JSONObject()
+            .put("summary", "Synthetic issue " + n)
+            .put("description", "Generated issue number " + n + " for load tests.")
+            .put("project", new JSONObject().put("id", "1").put("key", "LOAD").put("name", "Load"))
+            .put("issuetype", new JSONObject().put("id", "1").put("name", "Task"))
+            .put("status", new JSONObject()
+                .put("id", String.valueOf(n % 3 + 1))
+                .put("name", statuses[n % 3]))
+            .put("labels", new JSONArray().put("load").put("group" + n % 7))
+            .put("created", time)
+            .put("updated", time)
+            .put("assignee", new JSONObject().put("name", "user" + n % 5).put("displayName", "User " + n % 5));
+
+        JSONArray attachments = new JSONArray();
+        if (attachmentEvery > 0 && n % attachmentEvery == 0) {
+            attachments.put(new JSONObject()
+                .put("id", String.valueOf(n))
+                .put("filename", "file" + n + ".bin")
+                .put("size", attachmentContent(n).length)
+                .put("mimeType", "application/octet-stream")
+                .put("content", getUri() + "/secure/attachment/" + n + "/file" + n + ".bin"));
+        }
+        fields.put("attachment", attachments);
+
+        return new JSONObject()
+            .put("id", String.valueOf(10000 + n))
+            .put("key", key)
+            .put("self", getUri() + "/rest/api/latest/issue/" + (10000 + n))
+            .put("fields", fields);
+    }
+
+    static byte[] attachmentContent(int n) {
+        byte[] data = new byte[4096 * (n % 8 + 1)];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte) (n + i);
+        return data;
+    }
+
+    private static JSONObject editmeta() {
+        return new JSONObject()
+            .put("summary", meta("Summary", new JSONObject().put("type", "string").put("system", "summary")))
+            .put("description", meta("Description", new JSONObject().put("type", "string").put("system", "description")))
+            .put("labels", meta("Labels", new JSONObject().put("type", "array").put("items", "string").put("system", "labels")));
+    }
+
+    private static JSONObject meta(String name, JSONObject schema) {
+        return new JSONObject().put("required", false).put("name", name).put("schema", schema);
+    }
+
+    private static JSONObject transitions(int n) {
+        return new JSONObject().put("transitions", new JSONArray()
+            .put(new JSONObject()
+                .put("id", "11")
+                .put("name", "Start")
+                .put("to", new JSONObject().put("id", "2").put("name", "In Progress"))
+                .put("fields", new JSONObject()))
+            .put(new JSONObject()
+                .put("id", "21")
+                .put("name", "Done")
+                .put("to", new JSONObject().put("id", "3").put("name", "Done"))
+                .put("fields", new JSONObject())));
+    }
+
+    private JSONObject board(int id) {
+        return new JSONObject()
+            .put("id", id)
+            .put("self", getUri() + "/rest/agile/1.0/board/" + id)
+            .put("name", "Board " + id)
+            .put("type", id % 2 == 0 ? "kanban" : "scrum");
+    }
+
+    private static JSONObject rapidView(int id) {
+        return new JSONObject()
+            .put("id", id)
+            .put("name", "Board " + id)
+            .put("canEdit", true)
+            .put("sprintSupportEnabled", id % 2 != 0);
+    }
+
+    private void pause() {
+        long delay = latencyMillis;
+        if (jitterMillis > 0)
+            delay += ThreadLocalRandom.current().nextLong(jitterMillis + 1);
+
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void notFound(HttpExchange ex) throws IOException {
+        send(ex, 404, "{\"errorMessages\":[\"Not found\"]}");
+    }
+
+    private void send(HttpExchange ex, int status, String body) throws IOException {
+        if (body == null) {
+            ex.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        ex.sendResponseHeaders(status, bytes.length);
+
+        OutputStream out = ex.getResponseBody();
+        out.write(bytes);
+        out.close();
+        bytesSent.addAndGet(bytes.length);
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buf = new byte[8192];
+        while (in.read(buf) >= 0) {
+        }
+    }
+
+    private static Map<String, String> query(URI uri) throws IOException {
+        Map<String, String> params = new HashMap<String, String>();
+        String raw = uri.getRawQuery();
+
+        if (raw == null)
+            return params;
+
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0)
+                params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                    URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+        }
+
+        return params;
+    }
+
+    private static int intParam(Map<String, String> query, String name, int def) {
+        String value = query.get(name);
+        return value != null ? Integer.parseInt(value) : def;
+    }
+}
@@ -0,0 +1,141 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class FieldTest {
+
+    @Test
+    public void testGetDateTimeOffsetStyles() {
+        Date expected = new DateTime(2013, 9, 29, 20, 16, 19, 854, DateTimeZone.forOffsetHours(1)).toDate();
+
+        assertEquals(expected, Field.getDateTime("2013-09-29T20:16:19.854+0100"));
+        assertEquals(expected, Field.getDateTime("2013-09-29T20:16:19.854+01:00"));
+        assertEquals(expected, Field.getDateTime("2013-09-29T20:16:19.854+01"));
+        assertEquals(expected, Field.getDateTime("2013-09-29T19:16:19.854Z"));
+    }
+
+    @Test
+    public void testGetDateTimeNegativeAndHalfHourOffsets() {
+        assertEquals(new DateTime(2012, 2, 29, 23, 59, 59, 1, DateTimeZone.forOffsetHoursMinutes(-3, -30)).toDate(),
+            Field.getDateTime("2012-02-29T23:59:59.001-0330"));
+        assertEquals(new DateTime(1999, 12, 31, 0, 0, 0, 0, DateTimeZone.forOffsetHoursMinutes(5, 45)).toDate(),
+            Field.getDateTime("1999-12-31T00:00:00.000+05:45"));
+    }
+
+    @Test
+    public void testGetDateTimeRejectsGarbage() {
+        assertNull(Field.getDateTime(null));
+        assertNull(Field.getDateTime(42));
+        assertNull(Field.getDateTime("not a date"));
+        assertNull(Field.getDateTime("2013-09-29T20:16:19.854"));
+        assertNull(Field.getDateTime("2013-09-29T25:16:19.854+0100"));
+        assertNull(Field.getDateTime("2013-09-29T20:16:19.854#0100"));
+    }
+
+    @Test
+    public void testGetDateIsLocalMidnight() {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(2013, Calendar.DECEMBER, 1);
+
+        assertEquals(cal.getTime(), Field.getDate("2013-12-01"));
+        assertEquals(cal.getTime(), Field.getDate("2013-12-01T10:00:00.000+0000"));
+        assertNull(Field.getDate("12/01/2013"));
+    }
+
+    @Test
+    public void testToJsonDateFields() throws JiraException {
+        JSONObject editmeta = new JSONObject();
+        editmeta.put("duedate", fieldMeta("date"));
+        editmeta.put("customfield_1", fieldMeta("datetime"));
+
+        assertEquals("2013-12-01", Field.toJson("duedate", "2013-12-01", editmeta));
+
+        Date when = Field.getDateTime("2013-09-29T20:16:19.854+0100");
+        String formatted = (String) Field.toJson("customfield_1", new Timestamp(when.getTime()), editmeta);
+        assertEquals(when, Field.getDateTime(formatted));
+    }
+
+    @Test
+    public void testGetResourceUsesRegistry() {
+        JSONObject json = new JSONObject().put("id", "10000").put("body", "hello");
+
+        Comment comment = Field.getResource(Comment.class, json, null, "TEST-1");
+        assertEquals("10000", comment.getId());
+        assertEquals("hello", comment.getBody());
+
+        assertNull(Field.getResource(User.class, "not an object", null));
+        assertNull(Field.getResource(UnknownResource.class, json, null));
+    }
+
+    @Test
+    public void testGetResourceArrayWithCustomFactory() {
+        ResourceRegistry.register(CustomResource.class,
+            (restclient, json, parentId) -> new CustomResource(restclient, json));
+
+        JSONArray array = new JSONArray()
+            .put(new JSONObject().put("id", "1"))
+            .put(new JSONObject().put("id", "2"));
+        List<CustomResource> results = Field.getResourceArray(CustomResource.class, array, null);
+
+        assertEquals(2, results.size());
+        assertEquals("2", results.get(1).getId());
+        assertTrue(ResourceRegistry.get(CustomResource.class) != null);
+    }
+
+    @Test
+    public void testRegisteredFactoryBuildsIssue() throws JiraException {
+        JSONObject json = new JSONObject()
+            .put("id", "10001")
+            .put("key", "TEST-1")
+            .put("fields", new JSONObject().put("summary", "registry"));
+
+        Issue issue = ResourceRegistry.get(Issue.class).create(null, json, null);
+
+        assertEquals("10001", issue.getId());
+        assertEquals("TEST-1", issue.getKey());
+        assertEquals("registry", issue.getSummary());
+    }
+
+    @Test
+    public void testUnregisteredTypeIsSkipped() {
+        JSONArray array = new JSONArray().put(new JSONObject().put("id", "1"));
+
+        assertNull(ResourceRegistry.get(UnknownResource.class));
+        assertTrue(Field.getResourceArray(UnknownResource.class, array, null).isEmpty());
+    }
+
+    static class CustomResource extends Resource {
+        CustomResource(RestClient restclient, JSONObject json) {
+            super(restclient);
+            id = Field.getString(json.opt("id"));
+        }
+    }
+
+    static class UnknownResource extends Resource {
+        UnknownResource() {
+            super(null);
+        }
+    }
+
+    private static JSONObject fieldMeta(String type) {
+        JSONObject meta = new JSONObject();
+        meta.put("required", false);
+        meta.put("name", type);
+        meta.put("schema", new JSONObject().put("type", type));
+        return meta;
+    }
+}
@@ -0,0 +1,122 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class IssueBulkCreateTest {
+
+    private static final String CREATEMETA = "{\"projects\":[{\"id\":\"1\",\"key\":\"TEST\","
+        + "\"issuetypes\":[{\"id\":\"1\",\"name\":\"Bug\",\"fields\":{"
+        + "\"project\":{\"required\":true,\"name\":\"f\",\"schema\":{\"type\":\"project\"}},"
+        + "\"issuetype\":{\"required\":true,\"name\":\"f\",\"schema\":{\"type\":\"issuetype\"}},"
+        + "\"summary\":{\"required\":true,\"name\":\"f\",\"schema\":{\"type\":\"string\"}}}}]}]}";
+
+    @Test
+    public void testChunksAndPerItemErrors() throws Exception {
+        StubHttpClient http = new StubHttpClient();
+        http.enqueue(StubHttpClient.json(200, CREATEMETA));
+        http.enqueue(StubHttpClient.json(201, "{\"issues\":["
+            + "{\"id\":\"101\",\"key\":\"TEST-101\"}],"
+            + "\"errors\":[{\"status\":400,\"failedElementNumber\":1,"
+            + "\"elementErrors\":{\"errorMessages\":[],\"errors\":{\"summary\":\"too long\"}}}]}"));
+        http.enqueue(StubHttpClient.json(201, "{\"issues\":[{\"id\":\"103\",\"key\":\"TEST-103\"}],\"errors\":[]}"));
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+
+        Issue.FluentBulkCreate bulk = jira.createIssues("TEST", "Bug").chunkSize(2).fetch(false);
+        for (int i = 0; i < 3; i++)
+            bulk.add().field(Field.SUMMARY, "issue " + i);
+
+        List<Issue.BulkCreateItem> result = bulk.execute();
+
+        assertEquals(3, http.requests.size());
+        assertEquals(3, result.size());
+        assertEquals("TEST-101", result.get(0).key);
+        assertEquals("TEST-101", result.get(0).issue.getKey());
+        assertFalse(result.get(1).isSuccess());
+        assertEquals("summary: too long", result.get(1).error);
+        assertNull(result.get(1).key);
+        assertEquals(2, result.get(2).index);
+        assertEquals("TEST-103", result.get(2).key);
+
+        String body = EntityUtils.toString(((HttpEntityEnclosingRequestBase) http.requests.get(1)).getEntity());
+        JSONObject sent = new JSONObject(body);
+        assertEquals(2, sent.getJSONArray("issueUpdates").length());
+        assertEquals("issue 0", sent.getJSONArray("issueUpdates").getJSONObject(0)
+            .getJSONObject("fields").getString("summary"));
+    }
+
+    @Test
+    public void testAllItemsFailingIsReportedPerItem() throws Exception {
+        StubHttpClient http = new StubHttpClient();
+        http.enqueue(StubHttpClient.json(200, CREATEMETA));
+        http.enqueue(StubHttpClient.json(400, "{\"issues\":[],\"errors\":[{\"status\":400,"
+            + "\"failedElementNumber\":0,\"elementErrors\":{\"errorMessages\":[\"nope\"]}}]}"));
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+
+        Issue.FluentBulkCreate bulk = jira.createIssues("TEST", "Bug").fetch(false);
+        bulk.add().field(Field.SUMMARY, "issue");
+
+        List<Issue.BulkCreateItem> result = bulk.execute();
+
+        assertEquals(1, result.size());
+        assertEquals("nope", result.get(0).error);
+    }
+
+    @Test
+    public void testFailedChunkKeepsEarlierResults() throws Exception {
+        StubHttpClient http = new StubHttpClient();
+        http.enqueue(StubHttpClient.json(200, CREATEMETA));
+        http.enqueue(StubHttpClient.json(201, "{\"issues\":[{\"id\":\"1\",\"key\":\"TEST-1\"},"
+            + "{\"id\":\"2\",\"key\":\"TEST-2\"}],\"errors\":[]}"));
+        http.enqueue(StubHttpClient.json(500, "{\"errorMessages\":[\"boom\"]}"));
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+
+        Issue.FluentBulkCreate bulk = jira.createIssues("TEST", "Bug").chunkSize(2).fetch(false);
+        for (int i = 0; i < 5; i++)
+            bulk.add().field(Field.SUMMARY, "issue " + i);
+
+        List<Issue.BulkCreateItem> result = bulk.execute();
+
+        assertEquals("the third chunk is not sent", 3, http.requests.size());
+        assertEquals(5, result.size());
+        assertEquals("TEST-1", result.get(0).key);
+        assertEquals("TEST-2", result.get(1).key);
+        assertFalse(result.get(2).isSuccess());
+        assertTrue(result.get(2).error, result.get(2).error.startsWith("Failed to create issues"));
+        assertTrue(result.get(3).error.contains("500"));
+        assertEquals(4, result.get(4).index);
+        assertTrue(result.get(4).error, result.get(4).error.startsWith("Not sent"));
+        assertNull(result.get(4).key);
+    }
+
+    @Test
+    public void testCreatedIssuesAreFetchedWithOneSearch() throws Exception {
+        StubHttpClient http = new StubHttpClient();
+        http.enqueue(StubHttpClient.json(200, CREATEMETA));
+        http.enqueue(StubHttpClient.json(201, "{\"issues\":[{\"id\":\"1\",\"key\":\"TEST-1\"},"
+            + "{\"id\":\"2\",\"key\":\"TEST-2\"}],\"errors\":[]}"));
+        http.enqueue(StubHttpClient.json(200, "{\"startAt\":0,\"maxResults\":2,\"total\":2,\"issues\":["
+            + "{\"id\":\"1\",\"key\":\"TEST-1\",\"fields\":{\"summary\":\"one\"}},"
+            + "{\"id\":\"2\",\"key\":\"TEST-2\",\"fields\":{\"summary\":\"two\"}}]}"));
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+
+        Issue.FluentBulkCreate bulk = jira.createIssues("TEST", "Bug").includedFields("summary");
+        bulk.add().field(Field.SUMMARY, "one");
+        bulk.add().field(Field.SUMMARY, "two");
+
+        List<Issue.BulkCreateItem> result = bulk.execute();
+
+        assertEquals(3, http.requests.size());
+        assertTrue(http.requests.get(2).getRequestLine().getUri().contains("/search"));
+        assertEquals("two", result.get(1).issue.getSummary());
+    }
+}
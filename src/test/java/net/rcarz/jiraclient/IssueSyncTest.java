@@ -0,0 +1,202 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIBuilder;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class IssueSyncTest {
+
+    /** Serves the issues queued for the next query and records the JQL. */
+    static class FeedHttpClient extends StubHttpClient {
+        final List<String> queries = new ArrayList<String>();
+        JSONArray next = new JSONArray();
+
+        @Override
+        protected CloseableHttpResponse respond(HttpRequest req) {
+            int startAt = 0;
+            for (NameValuePair p : new URIBuilder(((HttpUriRequest) req).getURI()).getQueryParams()) {
+                if (p.getName().equals("jql")) queries.add(p.getValue());
+                if (p.getName().equals("startAt")) startAt = Integer.parseInt(p.getValue());
+            }
+
+            JSONArray issues = startAt == 0 ? next : new JSONArray();
+            return json(200, new JSONObject().put("startAt", startAt).put("maxResults", 50)
+                .put("total", next.length()).put("issues", issues).toString());
+        }
+    }
+
+    /**
+     * Serves a list of issues like JIRA would for the sync's queries, three
+     * per page, and edits one of them after the first page.
+     */
+    static class EditingHttpClient extends StubHttpClient {
+        static final Pattern SINCE = Pattern.compile("updated >= \"([^\"]+)\"");
+        final List<String> queries = new ArrayList<String>();
+        final List<JSONObject> issues = new ArrayList<JSONObject>();
+        JSONObject edit = null;
+
+        @Override
+        protected CloseableHttpResponse respond(HttpRequest req) {
+            String jql = null;
+            int startAt = 0;
+            for (NameValuePair p : new URIBuilder(((HttpUriRequest) req).getURI()).getQueryParams()) {
+                if (p.getName().equals("jql")) jql = p.getValue();
+                if (p.getName().equals("startAt")) startAt = Integer.parseInt(p.getValue());
+            }
+            queries.add(jql);
+
+            Matcher m = SINCE.matcher(jql);
+            String since = m.find() ? m.group(1).replace('/', '-').replace(' ', 'T') : "";
+            List<JSONObject> matching = new ArrayList<JSONObject>();
+            for (JSONObject i : issues) {
+                if (i.getJSONObject("fields").getString("updated").compareTo(since) >= 0)
+                    matching.add(i);
+            }
+            Collections.sort(matching, (a, b) -> a.getJSONObject("fields").getString("updated")
+                .compareTo(b.getJSONObject("fields").getString("updated")));
+
+            JSONArray page = new JSONArray();
+            for (int i = startAt; i < Math.min(startAt + 3, matching.size()); i++)
+                page.put(matching.get(i));
+
+            if (edit != null) {
+                issues.remove(edit);
+                issues.add(issue(edit.getString("key"), "2024-03-01T09:00:00.000+0000",
+                    "2024-03-01T11:00:00.000+0000"));
+                edit = null;
+            }
+
+            return json(200, new JSONObject().put("startAt", startAt).put("maxResults", 3)
+                .put("total", matching.size()).put("issues", page).toString());
+        }
+    }
+
+    static JSONObject issue(String key, String created, String updated) {
+        return new JSONObject().put("id", key).put("key", key).put("fields", new JSONObject()
+            .put("created", created).put("updated", updated));
+    }
+
+    static class Recorder implements IssueSync.Listener {
+        final List<String> events = new ArrayList<String>();
+
+        public void issueChanged(IssueSync.ChangeType type, Issue issue) {
+            events.add(type + " " + issue.getKey());
+        }
+    }
+
+    @Test
+    public void testIncrementalRunsDedupeAndClassify() throws Exception {
+        FeedHttpClient http = new FeedHttpClient();
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+        Recorder recorder = new Recorder();
+        IssueSync sync = new IssueSync(jira, "project = TEST")
+            .timeZone(TimeZone.getTimeZone("UTC"))
+            .listener(recorder);
+
+        http.next = new JSONArray()
+            .put(issue("TEST-1", "2024-03-01T09:00:00.000+0000", "2024-03-01T10:00:00.000+0000"))
+            .put(issue("TEST-2", "2024-03-01T09:30:00.000+0000", "2024-03-01T10:00:30.000+0000"));
+        IssueSync.Result first = sync.run();
+
+        assertEquals(2, first.created);
+        assertEquals("project = TEST", http.queries.get(0).replaceAll("[()]", "").replace(" ORDER BY updated ASC, key ASC", ""));
+
+        http.next = new JSONArray()
+            .put(issue("TEST-2", "2024-03-01T09:30:00.000+0000", "2024-03-01T10:00:30.000+0000"))
+            .put(issue("TEST-1", "2024-03-01T09:00:00.000+0000", "2024-03-01T10:05:00.000+0000"))
+            .put(issue("TEST-3", "2024-03-01T10:06:00.000+0000", "2024-03-01T10:06:00.000+0000"));
+        IssueSync.Result second = sync.run();
+
+        assertTrue(http.queries.get(http.queries.size() - 1).contains("updated >= \"2024/03/01 09:58\""));
+        assertEquals(1, second.duplicates);
+        assertEquals(1, second.updated);
+        assertEquals(1, second.created);
+        assertEquals("[CREATED TEST-1, CREATED TEST-2, UPDATED TEST-1, CREATED TEST-3]",
+            recorder.events.toString());
+    }
+
+    @Test
+    public void testWindowMatchesMinuteFlooredQuery() throws Exception {
+        FeedHttpClient http = new FeedHttpClient();
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+        Recorder recorder = new Recorder();
+        IssueSync sync = new IssueSync(jira, null)
+            .timeZone(TimeZone.getTimeZone("UTC"))
+            .listener(recorder);
+
+        /* the next query starts at 10:00, before 10:02:40 minus the overlap */
+        http.next = new JSONArray()
+            .put(issue("TEST-1", "2024-03-01T09:00:00.000+0000", "2024-03-01T10:00:20.500+0000"))
+            .put(issue("TEST-2", "2024-03-01T09:00:00.000+0000", "2024-03-01T10:02:40.250+0000"));
+        sync.run();
+
+        assertTrue(sync.getCheckpoint().getRecent().containsKey("TEST-1"));
+
+        IssueSync.Result second = sync.run();
+
+        assertTrue(http.queries.get(http.queries.size() - 1).contains("updated >= \"2024/03/01 10:00\""));
+        assertEquals(2, second.duplicates);
+        assertEquals(0, second.updated);
+        assertEquals("[CREATED TEST-1, CREATED TEST-2]", recorder.events.toString());
+    }
+
+    @Test
+    public void testIssueEditedBetweenPagesSkipsNothing() throws Exception {
+        EditingHttpClient http = new EditingHttpClient();
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+        Recorder recorder = new Recorder();
+        IssueSync sync = new IssueSync(jira, null)
+            .timeZone(TimeZone.getTimeZone("UTC"))
+            .listener(recorder);
+
+        for (int i = 1; i <= 7; i++)
+            http.issues.add(issue("TEST-" + i, "2024-03-01T09:00:00.000+0000",
+                "2024-03-01T10:0" + i + ":00.000+0000"));
+
+        /* moving TEST-1 to the end shifts every later issue up by one */
+        http.edit = http.issues.get(0);
+        IssueSync.Result result = sync.run();
+
+        assertEquals(8, result.created);
+        assertEquals("[CREATED TEST-1, CREATED TEST-2, CREATED TEST-3, CREATED TEST-4, CREATED TEST-5,"
+            + " CREATED TEST-6, CREATED TEST-7, CREATED TEST-1]", recorder.events.toString());
+        assertTrue(http.queries.get(1).contains("updated >= \"2024/03/01 10:03\""));
+        assertEquals(Instant.parse("2024-03-01T11:00:00Z").toEpochMilli(), sync.getCheckpoint().getUpdated());
+    }
+
+    @Test
+    public void testCheckpointRoundTrip() throws Exception {
+        FeedHttpClient http = new FeedHttpClient();
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+        IssueSync sync = new IssueSync(jira, null);
+
+        http.next = new JSONArray()
+            .put(issue("TEST-1", "2024-03-01T09:00:00.000+0000", "2024-03-01T09:00:00.000+0000"))
+            .put(issue("TEST-2", "2024-03-01T09:00:00.000+0000", "2024-03-01T10:00:00.000+0000"));
+        sync.run();
+
+        IssueSync.Checkpoint restored = IssueSync.Checkpoint.fromJson(
+            new JSONObject(sync.getCheckpoint().toJson().toString()));
+
+        assertEquals(sync.getCheckpoint().getUpdated(), restored.getUpdated());
+        assertTrue(restored.getRecent().containsKey("TEST-2"));
+        assertFalse(restored.getRecent().containsKey("TEST-1"));
+    }
+}
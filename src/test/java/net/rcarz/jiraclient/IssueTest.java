@@ -227,4 +227,52 @@ public class IssueTest {
         Issue issue = new Issue(restClient, Utils.getTestIssue());
         Assert.assertTrue(issue.delete(true));
     }
+
+    private static RestClient lazyRestClient() {
+        RestClient restclient = new RestClient(null, URI.create("http://jira.example.com"));
+        restclient.setLazyFields(true);
+        return restclient;
+    }
+
+    @Test
+    public void testLazyFieldsMatchEager() {
+        Issue eager = new Issue(null, Utils.getTestIssue());
+        Issue lazy = new Issue(lazyRestClient(), Utils.getTestIssue());
+
+        assertEquals(eager.getKey(), lazy.getKey());
+        assertEquals(eager.getSummary(), lazy.getSummary());
+        assertEquals(eager.getStatus().getName(), lazy.getStatus().getName());
+        assertEquals(eager.getReporter().getName(), lazy.getReporter().getName());
+        assertEquals(eager.getCreatedDate(), lazy.getCreatedDate());
+        assertEquals(eager.getTimeTracking().getTimeSpentSeconds(),
+                lazy.getTimeTracking().getTimeSpentSeconds());
+        assertEquals(eager.getLabels(), lazy.getLabels());
+    }
+
+    @Test
+    public void testLazyFieldsAreMemoised() {
+        Issue issue = new Issue(lazyRestClient(), Utils.getTestIssue());
+
+        assertTrue(issue.getReporter() == issue.getReporter());
+        assertTrue(issue.getStatus() == issue.getStatus());
+    }
+
+    @Test
+    public void testLazyFieldsArePerClient() {
+        RestClient lazyClient = lazyRestClient();
+        RestClient eagerClient = new RestClient(null, URI.create("http://jira.example.com"));
+
+        JSONObject eagerJson = Utils.getTestIssue();
+        JSONObject lazyJson = Utils.getTestIssue();
+        Issue eager = new Issue(eagerClient, eagerJson);
+        Issue lazy = new Issue(lazyClient, lazyJson);
+
+        /* only the lazy issue still reads the raw fields */
+        eagerJson.getJSONObject("fields").put("summary", "changed");
+        lazyJson.getJSONObject("fields").put("summary", "changed");
+
+        assertFalse(eagerClient.isLazyFields());
+        assertEquals("Maintain Company Details", eager.getSummary());
+        assertEquals("changed", lazy.getSummary());
+    }
 }
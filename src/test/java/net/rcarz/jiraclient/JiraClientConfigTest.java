@@ -0,0 +1,60 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.Test;
+
+public class JiraClientConfigTest {
+
+    @Test
+    public void testDefaults() {
+        JiraClientConfig config = JiraClientConfig.defaults();
+
+        assertEquals(40, config.getMaxTotalConnections());
+        assertEquals(20, config.getMaxConnectionsPerRoute());
+        assertEquals(30000, config.getConnectTimeoutMillis());
+    }
+
+    @Test
+    public void testHttpClientUsesTimeouts() throws Exception {
+        JiraClientConfig config = JiraClientConfig.builder()
+            .maxTotalConnections(10)
+            .maxConnectionsPerRoute(50)
+            .connectTimeout(2, TimeUnit.SECONDS)
+            .socketTimeout(3, TimeUnit.SECONDS)
+            .connectionRequestTimeout(4, TimeUnit.SECONDS)
+            .keepAlive(0, TimeUnit.SECONDS)
+            .evictIdleConnections(0, TimeUnit.SECONDS)
+            .build();
+
+        assertEquals(50, config.getMaxTotalConnections());
+
+        CloseableHttpClient client = config.createHttpClient();
+        try {
+            RequestConfig rc = ((Configurable) client).getConfig();
+            assertEquals(2000, rc.getConnectTimeout());
+            assertEquals(3000, rc.getSocketTimeout());
+            assertEquals(4000, rc.getConnectionRequestTimeout());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNegativeTimeout() {
+        JiraClientConfig.builder().socketTimeout(-1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testJiraClientWithConfig() throws Exception {
+        JiraClient jira = new JiraClient("http://jira.example.com", null,
+            JiraClientConfig.builder().maxConnectionsPerRoute(8).build());
+
+        jira.close();
+    }
+}
@@ -0,0 +1,263 @@
+package net.rcarz.jiraclient;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Runs {@link JiraClient} workloads against a {@link FakeJiraServer} and
+ * reports latency percentiles, request rate and transfer rate.
+ *
+ * Latency is measured in the client from sending a request to receiving the
+ * response headers, including retries made by a {@link RequestScheduler}.
+ * Run {@link #main(String[])} for a standalone load test.
+ */
+public class LoadDriver implements AutoCloseable {
+
+    /**
+     * Workloads the driver can run.
+     */
+    public enum Workload {
+        /** page through all issues with all fields */
+        SEARCH_EXPORT,
+        /** set the summary of all issues with {@link BulkUpdater} */
+        BULK_UPDATE,
+        /** download all attachments with {@link AttachmentExporter} */
+        ATTACHMENT_DOWNLOAD
+    }
+
+    /**
+     * Results of one workload run.
+     */
+    public static class Report {
+        public Workload workload;
+        public long requests;
+        public long errors;
+        public long bytes;
+        public long elapsedNanos;
+        public long p50Nanos;
+        public long p99Nanos;
+        public long maxNanos;
+
+        public double getRequestsPerSecond() {
+            return elapsedNanos > 0 ? requests * 1e9 / elapsedNanos : 0;
+        }
+
+        public double getBytesPerSecond() {
+            return elapsedNanos > 0 ? bytes * 1e9 / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s %7d req %5d err  p50 %8.2f ms  p99 %8.2f ms  max %8.2f ms  " +
+                "%9.1f req/s  %10.1f KiB/s",
+                workload, requests, errors, p50Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6,
+                getRequestsPerSecond(), getBytesPerSecond() / 1024);
+        }
+    }
+
+    /**
+     * Records the time to response headers of every request.
+     */
+    static class TimedHttpClient extends CloseableHttpClient {
+        private final CloseableHttpClient delegate;
+        private long[] samples = new long[1024];
+        private int count = 0;
+
+        TimedHttpClient(CloseableHttpClient delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request,
+                                                  HttpContext context) throws IOException {
+            long start = System.nanoTime();
+            CloseableHttpResponse resp = delegate.execute(target, request, context);
+            record(System.nanoTime() - start);
+            return resp;
+        }
+
+        private synchronized void record(long nanos) {
+            if (count == samples.length)
+                samples = Arrays.copyOf(samples, count * 2);
+            samples[count++] = nanos;
+        }
+
+        synchronized long[] drain() {
+            long[] result = Arrays.copyOf(samples, count);
+            count = 0;
+            return result;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public HttpParams getParams() {
+            return delegate.getParams();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public ClientConnectionManager getConnectionManager() {
+            return delegate.getConnectionManager();
+        }
+    }
+
+    private final FakeJiraServer server;
+    private final TimedHttpClient http;
+    private final JiraClient jira;
+    private int parallelism = 8;
+
+    /**
+     * Creates a driver for a running server.
+     *
+     * @param server Server to load
+     * @param config Connection settings of the client
+     */
+    public LoadDriver(FakeJiraServer server, JiraClientConfig config) throws JiraException {
+        this.server = server;
+        this.http = new TimedHttpClient(config.createHttpClient());
+        this.jira = new JiraClient(http, server.getUri(), null);
+    }
+
+    /** Sets the concurrency of the bulk workloads. Defaults to 8. */
+    public LoadDriver parallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public JiraClient getJiraClient() {
+        return jira;
+    }
+
+    /**
+     * Runs a workload once.
+     *
+     * @param workload Workload to run
+     *
+     * @return latency and throughput of the run
+     */
+    public Report run(Workload workload) throws Exception {
+        http.drain();
+        long errorsBefore = server.getErrorCount();
+        long bytesBefore = server.getBytesSent();
+        long start = System.nanoTime();
+
+        switch (workload) {
+            case SEARCH_EXPORT:
+                Iterator<Issue> it = jira.searchIssues("project = LOAD", "*all", 100).iterator();
+                while (it.hasNext())
+                    it.next().getSummary();
+                break;
+            case BULK_UPDATE:
+                BulkUpdater.Report updated = new BulkUpdater(jira)
+                    .parallelism(parallelism)
+                    .field(Field.SUMMARY, "Updated by load test")
+                    .execute("project = LOAD");
+                if (!updated.getFailures().isEmpty())
+                    throw updated.getFailures().values().iterator().next();
+                break;
+            case ATTACHMENT_DOWNLOAD:
+                Path target = Files.createTempDirectory("load");
+                try {
+                    AttachmentExporter.Report exported = new AttachmentExporter(jira, target)
+                        .parallelism(parallelism)
+                        .export("project = LOAD");
+                    if (!exported.getFailures().isEmpty())
+                        throw exported.getFailures().values().iterator().next();
+                } finally {
+                    delete(target.toFile());
+                }
+                break;
+        }
+
+        Report report = new Report();
+        report.workload = workload;
+        report.elapsedNanos = System.nanoTime() - start;
+
+        long[] samples = http.drain();
+        Arrays.sort(samples);
+        report.requests = samples.length;
+        report.errors = server.getErrorCount() - errorsBefore;
+        report.bytes = server.getBytesSent() - bytesBefore;
+        report.p50Nanos = percentile(samples, 0.50);
+        report.p99Nanos = percentile(samples, 0.99);
+        report.maxNanos = samples.length > 0 ? samples[samples.length - 1] : 0;
+        return report;
+    }
+
+    @Override
+    public void close() throws IOException {
+        http.close();
+    }
+
+    static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return 0;
+
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null)
+            for (File c : children) delete(c);
+        f.delete();
+    }
+
+    /**
+     * Runs every workload against a local server.
+     *
+     * Arguments: number of issues (1000), parallelism (8), latency in
+     * milliseconds (5), error rate (0.0).
+     */
+    public static void main(String[] args) throws Exception {
+        int issues = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        long latency = args.length > 2 ? Long.parseLong(args[2]) : 5;
+        double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+
+        FakeJiraServer server = new FakeJiraServer()
+            .issues(issues)
+            .latency(latency, latency, TimeUnit.MILLISECONDS)
+            .errorRate(errorRate)
+            .start();
+
+        try {
+            LoadDriver driver = new LoadDriver(server, JiraClientConfig.builder()
+                .maxConnectionsPerRoute(parallelism * 2)
+                .build()).parallelism(parallelism);
+
+            if (errorRate > 0)
+                driver.getJiraClient().setRequestScheduler(RequestScheduler.builder()
+                    .maxRetries(10)
+                    .backoff(10, 500, TimeUnit.MILLISECONDS)
+                    .retryBudget(0.5, 100)
+                    .build());
+
+            for (Workload w : Workload.values())
+                System.out.println(driver.run(w));
+
+            driver.close();
+        } finally {
+            server.close();
+        }
+    }
+}
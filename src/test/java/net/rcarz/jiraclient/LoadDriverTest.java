@@ -0,0 +1,87 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.rcarz.jiraclient.agile.AgileClient;
+import net.rcarz.jiraclient.agile.Board;
+import net.rcarz.jiraclient.greenhopper.GreenHopperClient;
+import org.junit.Test;
+
+public class LoadDriverTest {
+
+    @Test
+    public void testWorkloadsAgainstFakeServer() throws Exception {
+        FakeJiraServer server = new FakeJiraServer().issues(250).attachmentEvery(25).start();
+        LoadDriver driver = new LoadDriver(server, JiraClientConfig.defaults()).parallelism(4);
+
+        try {
+            LoadDriver.Report search = driver.run(LoadDriver.Workload.SEARCH_EXPORT);
+            assertTrue(search.requests >= 3);
+            assertTrue(search.bytes > 0);
+            assertTrue(search.p99Nanos >= search.p50Nanos);
+
+            LoadDriver.Report update = driver.run(LoadDriver.Workload.BULK_UPDATE);
+            assertTrue(update.requests >= 1 + 250);
+            assertEquals(0, update.errors);
+
+            LoadDriver.Report download = driver.run(LoadDriver.Workload.ATTACHMENT_DOWNLOAD);
+            long expected = 0;
+            for (int n = 25; n <= 250; n += 25)
+                expected += FakeJiraServer.attachmentContent(n).length;
+            assertTrue(download.bytes > expected);
+        } finally {
+            driver.close();
+            server.close();
+        }
+    }
+
+    @Test
+    public void testRetriesInjectedErrors() throws Exception {
+        FakeJiraServer server = new FakeJiraServer().issues(300).errorRate(0.5).start();
+        LoadDriver driver = new LoadDriver(server, JiraClientConfig.defaults());
+        driver.getJiraClient().setRequestScheduler(RequestScheduler.builder()
+            .maxRetries(20)
+            .backoff(0, 0, TimeUnit.MILLISECONDS)
+            .retryBudget(1, 100)
+            .build());
+
+        try {
+            LoadDriver.Report search = driver.run(LoadDriver.Workload.SEARCH_EXPORT);
+            assertTrue(search.errors > 0);
+            assertTrue(search.requests >= 3 + search.errors);
+        } finally {
+            driver.close();
+            server.close();
+        }
+    }
+
+    @Test
+    public void testAgileAndGreenHopperEndpoints() throws Exception {
+        FakeJiraServer server = new FakeJiraServer().boards(5).start();
+
+        try {
+            JiraClient jira = new JiraClient(server.getUri());
+            List<Board> boards = new AgileClient(jira).getBoards();
+            assertEquals(5, boards.size());
+            assertEquals(3, boards.get(0).getSprints().size());
+            assertEquals(5, new GreenHopperClient(jira).getRapidViews().size());
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testPercentile() {
+        long[] sorted = new long[100];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = i + 1;
+
+        assertEquals(50, LoadDriver.percentile(sorted, 0.50));
+        assertEquals(99, LoadDriver.percentile(sorted, 0.99));
+        assertEquals(0, LoadDriver.percentile(new long[0], 0.5));
+    }
+}
@@ -0,0 +1,113 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class MetadataCacheTest {
+
+    private static final String CREATEMETA = "{\"projects\":[{\"id\":\"1\",\"key\":\"TEST\","
+        + "\"issuetypes\":[{\"id\":\"1\",\"name\":\"Bug\",\"fields\":{"
+        + "\"project\":{\"required\":true,\"name\":\"f\",\"schema\":{\"type\":\"project\"}},"
+        + "\"issuetype\":{\"required\":true,\"name\":\"f\",\"schema\":{\"type\":\"issuetype\"}},"
+        + "\"summary\":{\"required\":true,\"name\":\"f\",\"schema\":{\"type\":\"string\"}}}}]}]}";
+
+    private static final Executor DIRECT = new Executor() {
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static MetadataCache.Loader counting(final AtomicInteger loads) {
+        return new MetadataCache.Loader() {
+            public JSONObject load() {
+                return new JSONObject().put("version", loads.incrementAndGet());
+            }
+        };
+    }
+
+    @Test
+    public void testLoadsOncePerKey() throws Exception {
+        MetadataCache cache = new MetadataCache(1, TimeUnit.HOURS);
+        AtomicInteger loads = new AtomicInteger();
+
+        JSONObject first = cache.get("k", counting(loads));
+        assertSame(first, cache.get("k", counting(loads)));
+        cache.get("other", counting(loads));
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testExpiredEntryIsRefetched() throws Exception {
+        MetadataCache cache = new MetadataCache(1, TimeUnit.NANOSECONDS);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("k", counting(loads));
+        Thread.sleep(1);
+
+        assertEquals(2, cache.get("k", counting(loads)).getInt("version"));
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+        MetadataCache cache = new MetadataCache(1, TimeUnit.NANOSECONDS).staleWhileRevalidate(DIRECT);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("k", counting(loads));
+        Thread.sleep(1);
+
+        assertEquals(1, cache.get("k", counting(loads)).getInt("version"));
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getStaleHitCount());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() throws Exception {
+        MetadataCache cache = new MetadataCache(1, TimeUnit.HOURS);
+
+        try {
+            cache.get("k", new MetadataCache.Loader() {
+                public JSONObject load() throws JiraException {
+                    throw new JiraException("boom");
+                }
+            });
+            fail("expected JiraException");
+        } catch (JiraException ex) {
+            assertEquals("boom", ex.getMessage());
+        }
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCreateSharesMetadataAndDropsItOnFieldError() throws Exception {
+        StubHttpClient http = new StubHttpClient();
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+        MetadataCache cache = new MetadataCache(15, TimeUnit.MINUTES);
+        jira.setMetadataCache(cache);
+
+        http.enqueue(StubHttpClient.json(200, CREATEMETA));
+        http.enqueue(StubHttpClient.json(400, "{\"errorMessages\":[],\"errors\":{\"summary\":\"bad\"}}"));
+
+        Issue.getCreateMetadata(jira.getRestClient(), "TEST", "Bug");
+        Issue.FluentCreate create = jira.createIssue("TEST", "Bug").field(Field.SUMMARY, "x");
+        assertEquals(1, http.requests.size());
+
+        try {
+            create.execute();
+            fail("expected JiraException");
+        } catch (JiraException ex) {
+            assertEquals(0, cache.size());
+        }
+    }
+}
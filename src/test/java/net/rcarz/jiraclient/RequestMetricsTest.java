@@ -0,0 +1,235 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestMetricsTest {
+
+    private final StubHttpClient http = new StubHttpClient();
+    private final List<RequestListener.Event> events =
+        Collections.synchronizedList(new ArrayList<RequestListener.Event>());
+    private RestClient restclient;
+
+    @Before
+    public void setUp() {
+        restclient = new RestClient(http, URI.create("http://jira.example.com/jira"));
+        restclient.setRequestListener(new RequestListener() {
+            public void requestCompleted(Event event) {
+                events.add(event);
+            }
+        });
+    }
+
+    @Test
+    public void testEndpointTemplate() {
+        assertEquals("/rest/api/2/issue/{key}/comment/{id}", template("/jira/rest/api/2/issue/TEST-12/comment/10001"));
+        assertEquals("/rest/api/latest/project/{key}/versions", template("/jira/rest/api/latest/project/TEST/versions"));
+        assertEquals("/rest/agile/1.0/board/{id}/sprint", template("/jira/rest/agile/1.0/board/7/sprint"));
+        assertEquals("/rest/api/2/search", template("/jira/rest/api/2/search"));
+        assertEquals("/secure/attachment/{id}/{filename}", template("/jira/secure/attachment/10200/report%20v2.pdf"));
+        assertEquals("/", template("/jira"));
+    }
+
+    private String template(String path) {
+        return restclient.endpointTemplate(URI.create("http://jira.example.com" + path));
+    }
+
+    @Test
+    public void testReportsStatusSizesAndTimes() throws Exception {
+        String body = "{\"id\":\"1\",\"key\":\"TEST-1\"}";
+        http.enqueue(StubHttpClient.json(200, body));
+
+        restclient.put("/rest/api/2/issue/TEST-1", new JSONObject().put("fields", new JSONObject()));
+
+        assertEquals(1, events.size());
+        RequestListener.Event e = events.get(0);
+        assertEquals("PUT", e.method);
+        assertEquals("/rest/api/2/issue/{key}", e.endpoint);
+        assertEquals(200, e.status);
+        assertEquals("{\"fields\":{}}".length(), e.requestBytes);
+        assertEquals(body.length(), e.responseBytes);
+        assertEquals(0, e.retries);
+        assertEquals(RequestListener.CacheResult.NONE, e.cache);
+        assertTrue(e.totalNanos >= e.firstByteNanos);
+        assertNull(e.error);
+    }
+
+    @Test
+    public void testReportsErrors() throws Exception {
+        http.enqueue(StubHttpClient.json(404, "{\"errorMessages\":[\"gone\"]}"));
+
+        try {
+            restclient.getMap("/rest/api/2/issue/TEST-1");
+            fail("expected RestException");
+        } catch (RestException ex) {
+            assertEquals(404, events.get(0).status);
+            assertTrue(events.get(0).responseBytes > 0);
+            assertSame(ex, events.get(0).error);
+        }
+    }
+
+    @Test
+    public void testStreamIsReportedWhenClosed() throws Exception {
+        String body = "0123456789abcdef";
+        http.enqueue(StubHttpClient.json(200, body)).enqueue(StubHttpClient.json(200, body));
+
+        HttpResponse resp = restclient.getStream(new HttpGet("http://jira.example.com/jira/secure/attachment/1/a.bin"));
+        InputStream in = resp.getEntity().getContent();
+        assertTrue(events.isEmpty());
+
+        assertEquals(4, in.read(new byte[4]));
+        in.close();
+        in.close();
+
+        assertEquals(1, events.size());
+        assertEquals(4, events.get(0).responseBytes);
+        assertEquals("/secure/attachment/{id}/{filename}", events.get(0).endpoint);
+
+        resp = restclient.getStream(new HttpGet("http://jira.example.com/jira/secure/attachment/1/a.bin"));
+        assertEquals(body, EntityUtils.toString(resp.getEntity()));
+
+        assertEquals(2, events.size());
+        assertEquals(body.length(), events.get(1).responseBytes);
+        assertNull(events.get(1).error);
+    }
+
+    @Test
+    public void testReportsCacheHitsAndRevalidation() throws Exception {
+        restclient.setResponseCache(new ResponseCache(16).cache(ResponseCache.PROJECT, 1, TimeUnit.HOURS));
+        http.enqueue(StubHttpClient.json(200, "{\"key\":\"TEST\"}"));
+
+        restclient.getMap("/rest/api/2/project/TEST");
+        restclient.getMap("/rest/api/2/project/TEST");
+
+        assertEquals(1, http.requests.size());
+        assertEquals(RequestListener.CacheResult.NONE, events.get(0).cache);
+        assertEquals(RequestListener.CacheResult.HIT, events.get(1).cache);
+
+        restclient.setResponseCache(null);
+        restclient.setConditionalCache(new ConditionalCache(16));
+        CloseableHttpResponse tagged = StubHttpClient.json(200, "{\"key\":\"TEST-1\"}");
+        tagged.setHeader("ETag", "\"v1\"");
+        http.enqueue(tagged).enqueue(StubHttpClient.json(304, ""));
+
+        restclient.getMap("/rest/api/2/issue/TEST-1");
+        restclient.getMap("/rest/api/2/issue/TEST-1");
+
+        assertEquals(304, events.get(3).status);
+        assertEquals(RequestListener.CacheResult.REVALIDATED, events.get(3).cache);
+    }
+
+    @Test
+    public void testReportsRetriesAndQueueWait() throws Exception {
+        RequestScheduler scheduler = RequestScheduler.builder()
+            .backoff(0, 0, TimeUnit.MILLISECONDS)
+            .build();
+        scheduler.sleeper = new RequestScheduler.Sleeper() {
+            public void sleep(long millis) throws InterruptedException {
+                Thread.sleep(1);
+            }
+        };
+        restclient.setRequestScheduler(scheduler);
+
+        CloseableHttpResponse throttled = StubHttpClient.json(429, "{}");
+        throttled.setHeader("Retry-After", "1");
+        http.enqueue(throttled).enqueue(StubHttpClient.json(200, "{}"));
+
+        restclient.getMap("/rest/api/2/issue/TEST-1");
+
+        assertEquals(1, events.get(0).retries);
+        assertEquals(200, events.get(0).status);
+        assertTrue(events.get(0).queueNanos >= TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testListenerFailureDoesNotFailRequest() throws Exception {
+        restclient.setRequestListener(new RequestListener() {
+            public void requestCompleted(Event event) {
+                throw new IllegalStateException("broken listener");
+            }
+        });
+        http.enqueue(StubHttpClient.json(200, "{\"id\":\"1\"}"));
+
+        assertEquals("1", restclient.getMap("/rest/api/2/issue/1").getString("id"));
+    }
+
+    @Test
+    public void testMetricsGroupByEndpoint() throws Exception {
+        RequestMetrics metrics = new RequestMetrics();
+        restclient.setRequestListener(metrics);
+
+        for (int i = 1; i <= 3; i++)
+            http.enqueue(StubHttpClient.json(200, "{}"));
+        http.enqueue(StubHttpClient.json(500, "{}"));
+
+        restclient.getMap("/rest/api/2/issue/TEST-1");
+        restclient.getMap("/rest/api/2/issue/TEST-2");
+        restclient.getMap("/rest/api/2/search");
+        try {
+            restclient.getMap("/rest/api/2/search");
+        } catch (RestException ex) {
+            /* counted as error */
+        }
+
+        Map<String, RequestMetrics.EndpointSnapshot> snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals(2, snapshot.get("GET /rest/api/2/issue/{key}").requests);
+        assertEquals(2, snapshot.get("GET /rest/api/2/issue/{key}").total.getCount());
+        assertEquals(1, snapshot.get("GET /rest/api/2/search").errors);
+
+        metrics.reset();
+        assertTrue(metrics.snapshot().isEmpty());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100000; v++)
+            histogram.record(v * 1000);
+
+        LatencyHistogram.Snapshot s = histogram.snapshot();
+        assertEquals(100000, s.getCount());
+        assertEquals(100000000L, s.getMax());
+        assertEquals(50000500.0, s.getMean(), 1);
+        assertEquals(50000000, s.getValueAtPercentile(50), 50000000 * 0.035);
+        assertEquals(99000000, s.getValueAtPercentile(99), 99000000 * 0.035);
+        assertEquals(100000000L, s.getValueAtPercentile(100));
+        assertEquals(0, new LatencyHistogram().snapshot().getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        for (long v = 0; v < 100000; v++) {
+            int index = LatencyHistogram.indexOf(v);
+            assertTrue(LatencyHistogram.highestEquivalent(index) >= v);
+            assertTrue(index == 0 || LatencyHistogram.highestEquivalent(index - 1) < v);
+        }
+
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.indexOf((1L << 40) - 1));
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5);
+        assertEquals(Long.MAX_VALUE, histogram.snapshot().getMax());
+        assertEquals(0, histogram.snapshot().getValueAtPercentile(50));
+    }
+}
@@ -0,0 +1,157 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestSchedulerTest {
+
+    private final StubHttpClient http = new StubHttpClient();
+    private final List<Long> sleeps = Collections.synchronizedList(new ArrayList<Long>());
+    private JiraClient jira;
+
+    @Before
+    public void setUp() throws Exception {
+        jira = new JiraClient(http, "http://jira.example.com", null);
+    }
+
+    private RequestScheduler install(RequestScheduler.Builder builder) {
+        RequestScheduler scheduler = builder.build();
+        scheduler.sleeper = new RequestScheduler.Sleeper() {
+            public void sleep(long millis) {
+                sleeps.add(millis);
+            }
+        };
+        jira.setRequestScheduler(scheduler);
+        return scheduler;
+    }
+
+    private static CloseableHttpResponse throttled(int status, String retryAfter) {
+        CloseableHttpResponse resp = StubHttpClient.json(status, "{\"errorMessages\":[\"slow down\"]}");
+        if (retryAfter != null)
+            resp.setHeader("Retry-After", retryAfter);
+        return resp;
+    }
+
+    @Test
+    public void testRetriesGetAfterRetryAfter() throws Exception {
+        RequestScheduler scheduler = install(RequestScheduler.builder()
+            .backoff(0, 0, TimeUnit.MILLISECONDS));
+        http.enqueue(throttled(429, "2"))
+            .enqueue(throttled(503, null))
+            .enqueue(StubHttpClient.json(200, "{\"id\":\"1\"}"));
+
+        JSONObject result = jira.getRestClient().getMap("/rest/api/2/issue/TEST-1");
+
+        assertEquals("1", result.getString("id"));
+        assertEquals(3, http.requests.size());
+        assertEquals(2, scheduler.getRetryCount());
+        assertEquals(2, scheduler.getThrottledCount());
+        assertEquals(Long.valueOf(2000), sleeps.get(0));
+    }
+
+    @Test
+    public void testPostIsNotRetried() throws Exception {
+        install(RequestScheduler.builder());
+        http.enqueue(throttled(429, "1"));
+
+        try {
+            jira.getRestClient().post("/rest/api/2/issue", new JSONObject());
+            fail("expected RestException");
+        } catch (RestException ex) {
+            assertEquals(429, ex.getHttpStatusCode());
+        }
+
+        assertEquals(1, http.requests.size());
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxRetriesAndLongRetryAfter() throws Exception {
+        RequestScheduler scheduler = install(RequestScheduler.builder()
+            .maxRetries(1)
+            .maxRetryAfter(10, TimeUnit.SECONDS)
+            .backoff(0, 0, TimeUnit.MILLISECONDS));
+        http.enqueue(throttled(429, "1")).enqueue(throttled(429, "1"));
+
+        try {
+            jira.getRestClient().getMap("/rest/api/2/project");
+            fail("expected RestException");
+        } catch (RestException ex) {
+            assertEquals(429, ex.getHttpStatusCode());
+        }
+
+        assertEquals(2, http.requests.size());
+
+        http.enqueue(throttled(429, "3600"));
+        try {
+            jira.getRestClient().getMap("/rest/api/2/project");
+            fail("expected RestException");
+        } catch (RestException ex) {
+            assertEquals(429, ex.getHttpStatusCode());
+        }
+
+        assertEquals(3, http.requests.size());
+        assertEquals(1, scheduler.getRetryCount());
+    }
+
+    @Test
+    public void testRetryBudgetIsShared() throws Exception {
+        RequestScheduler scheduler = install(RequestScheduler.builder()
+            .retryBudget(0, 1)
+            .backoff(0, 0, TimeUnit.MILLISECONDS));
+        http.enqueue(throttled(503, null))
+            .enqueue(StubHttpClient.json(200, "{}"))
+            .enqueue(throttled(503, null));
+
+        jira.getRestClient().getMap("/rest/api/2/project/TEST");
+
+        try {
+            jira.getRestClient().getMap("/rest/api/2/project/TEST");
+            fail("expected RestException");
+        } catch (RestException ex) {
+            assertEquals(503, ex.getHttpStatusCode());
+        }
+
+        assertEquals(1, scheduler.getBudgetExhaustedCount());
+    }
+
+    @Test
+    public void testRateLimitDelaysBeyondBurst() throws Exception {
+        RequestScheduler scheduler = install(RequestScheduler.builder()
+            .rateLimit(1, 2)
+            .adaptive(true)
+            .backoff(0, 0, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < 3; i++)
+            http.enqueue(StubHttpClient.json(200, "{}"));
+        http.enqueue(throttled(429, null)).enqueue(StubHttpClient.json(200, "{}"));
+
+        for (int i = 0; i < 3; i++)
+            jira.getRestClient().getMap("/rest/api/2/serverInfo");
+
+        assertEquals(1, sleeps.size());
+        assertTrue(sleeps.get(0) > 900);
+
+        URI host = URI.create("http://jira.example.com/");
+        jira.getRestClient().getMap("/rest/api/2/serverInfo");
+        assertTrue(scheduler.getRate(host) < 1);
+    }
+
+    @Test
+    public void testRetryAfterDate() {
+        CloseableHttpResponse resp = throttled(429, "Thu, 01 Jan 1970 00:00:00 GMT");
+        assertEquals(0, RequestScheduler.retryAfterMillis(resp));
+        assertEquals(30000, RequestScheduler.retryAfterMillis(throttled(429, "30")));
+    }
+}
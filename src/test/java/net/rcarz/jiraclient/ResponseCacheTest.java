@@ -0,0 +1,138 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class ResponseCacheTest {
+
+    private final StubHttpClient http = new StubHttpClient();
+
+    private JiraClient client(ResponseCache cache) throws JiraException {
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+        jira.setResponseCache(cache);
+        return jira;
+    }
+
+    @Test
+    public void testPrioritiesAreServedFromCache() throws Exception {
+        http.enqueue(StubHttpClient.json(200, "[{\"id\":\"1\",\"name\":\"Major\"}]"));
+        ResponseCache cache = ResponseCache.metadata(16);
+        JiraClient jira = client(cache);
+
+        List<Priority> first = jira.getPriorities();
+        List<Priority> second = jira.getPriorities();
+
+        assertEquals(1, http.requests.size());
+        assertEquals("Major", second.get(0).getName());
+        assertEquals(first.size(), second.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testUncachedEndpointsAlwaysHitServer() throws Exception {
+        http.enqueue(StubHttpClient.json(200, "{\"key\":\"TEST-1\"}"));
+        http.enqueue(StubHttpClient.json(200, "{\"key\":\"TEST-1\"}"));
+        ResponseCache cache = ResponseCache.metadata(16);
+        RestClient restclient = client(cache).getRestClient();
+
+        restclient.getMap("/rest/api/latest/issue/TEST-1");
+        restclient.getMap("/rest/api/latest/issue/TEST-1");
+
+        assertEquals(2, http.requests.size());
+        assertEquals(0, cache.getMissCount());
+        assertFalse(cache.isCached(URI.create("http://jira.example.com/rest/agile/1.0/board/1/project")));
+    }
+
+    @Test
+    public void testExpiredEntriesAreRefetched() throws Exception {
+        http.enqueue(StubHttpClient.json(200, "[]"));
+        http.enqueue(StubHttpClient.json(200, "[]"));
+        ResponseCache cache = new ResponseCache(16).cache(ResponseCache.ISSUE_TYPES, 1, TimeUnit.NANOSECONDS);
+        JiraClient jira = client(cache);
+
+        jira.getIssueTypes();
+        Thread.sleep(1);
+        jira.getIssueTypes();
+
+        assertEquals(2, http.requests.size());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() throws Exception {
+        ResponseCache cache = new ResponseCache(2).cache(ResponseCache.PROJECT, 1, TimeUnit.HOURS);
+        URI a = URI.create("http://jira.example.com/rest/api/2/project/A");
+        URI b = URI.create("http://jira.example.com/rest/api/2/project/B");
+        URI c = URI.create("http://jira.example.com/rest/api/2/project/C");
+
+        cache.put(a, new JSONObject());
+        cache.put(b, new JSONObject());
+        cache.get(a);
+        cache.put(c, new JSONObject());
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.get(a) != null);
+        assertTrue(cache.get(b) == null);
+    }
+
+    @Test
+    public void testWritesInvalidateVersions() throws Exception {
+        http.enqueue(StubHttpClient.json(200, "[{\"id\":\"1\",\"name\":\"1.0\"}]"));
+        http.enqueue(StubHttpClient.json(201, "{\"id\":\"2\",\"name\":\"2.0\"}"));
+        http.enqueue(StubHttpClient.json(200, "[{\"id\":\"1\",\"name\":\"1.0\"},{\"id\":\"2\",\"name\":\"2.0\"}]"));
+        JiraClient jira = client(ResponseCache.metadata(16));
+        RestClient restclient = jira.getRestClient();
+
+        HashMap<String, String> before = Version.getVersionIdMap(restclient, "TEST");
+        restclient.post("/rest/api/2/version", new JSONObject().put("name", "2.0"));
+        HashMap<String, String> after = Version.getVersionIdMap(restclient, "TEST");
+
+        assertEquals(1, before.size());
+        assertEquals(2, after.size());
+        assertEquals(3, http.requests.size());
+    }
+
+    @Test
+    public void testCallersGetTheirOwnCopy() throws Exception {
+        ResponseCache cache = ResponseCache.metadata(16);
+        URI uri = URI.create("http://jira.example.com/rest/api/2/project/A");
+
+        cache.put(uri, new JSONObject().put("key", "A"));
+        ((JSONObject) cache.get(uri)).put("key", "changed");
+
+        assertEquals("A", ((JSONObject) cache.get(uri)).getString("key"));
+    }
+
+    @Test
+    public void testMetadataLeavesCreateMetaToMetadataCache() {
+        ResponseCache cache = ResponseCache.metadata(16);
+
+        assertFalse(cache.isCached(URI.create("http://jira.example.com/rest/api/2/issue/createmeta")));
+        assertFalse(cache.isCached(URI.create("http://jira.example.com/rest/api/2/issue/TEST-1/editmeta")));
+    }
+
+    @Test
+    public void testExplicitInvalidation() throws Exception {
+        http.enqueue(StubHttpClient.json(200, "[]"));
+        http.enqueue(StubHttpClient.json(200, "[]"));
+        ResponseCache cache = ResponseCache.metadata(16);
+        JiraClient jira = client(cache);
+
+        jira.getProjects();
+        cache.invalidate(ResponseCache.PROJECTS);
+        jira.getProjects();
+
+        assertEquals(2, http.requests.size());
+    }
+}
@@ -0,0 +1,124 @@
+package net.rcarz.jiraclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class RestClientTest {
+
+    private final StubHttpClient http = new StubHttpClient();
+    private final RestClient restclient = new RestClient(http, URI.create("http://jira.example.com"));
+
+    @Test
+    public void testGetMapDecodesMultiLinePayload() throws Exception {
+        http.enqueue(StubHttpClient.json(200, "{\n  \"key\": \"TEST-1\",\n  \"fields\": {}\n}\n"));
+
+        JSONObject result = restclient.getMap("/rest/api/latest/issue/TEST-1");
+
+        assertEquals("TEST-1", result.getString("key"));
+        assertTrue(result.get("fields") instanceof JSONObject);
+    }
+
+    @Test
+    public void testGetArrayHonoursDeclaredCharset() throws Exception {
+        Charset latin1 = Charset.forName("ISO-8859-1");
+        http.enqueue(StubHttpClient.response(200, "[{\"name\":\"Gr\u00fcn\"}]",
+            "application/json;charset=ISO-8859-1", latin1));
+
+        JSONArray result = restclient.getArray("/rest/api/latest/priority");
+
+        assertEquals("Gr\u00fcn", result.getJSONObject(0).getString("name"));
+    }
+
+    @Test
+    public void testEmptyBodyGivesNull() throws Exception {
+        http.enqueue(StubHttpClient.json(204, null));
+        assertNull(restclient.delete("/rest/api/latest/issue/TEST-1"));
+
+        http.enqueue(StubHttpClient.json(200, "  \n"));
+        assertNull(restclient.getMap("/rest/api/latest/issue/TEST-1"));
+    }
+
+    @Test
+    public void testErrorKeepsRawBody() throws Exception {
+        http.enqueue(StubHttpClient.json(400, "{\"errorMessages\":[\"bad\"]}\nline two"));
+
+        try {
+            restclient.getMap("/rest/api/latest/issue/TEST-1");
+            fail("expected a RestException");
+        } catch (RestException ex) {
+            assertEquals(400, ex.getHttpStatusCode());
+            assertEquals("{\"errorMessages\":[\"bad\"]}\nline two", ex.getHttpResult());
+        }
+    }
+
+    @Test
+    public void testAcceptHeaderIsSent() throws Exception {
+        http.enqueue(StubHttpClient.json(200, "{}"));
+        restclient.getMap("/rest/api/latest/myself");
+
+        assertEquals("application/json", http.requests.get(0).getFirstHeader("Accept").getValue());
+    }
+
+    @Test
+    public void testNotModifiedIsServedFromStoredBody() throws Exception {
+        ConditionalCache cache = new ConditionalCache(16);
+        restclient.setConditionalCache(cache);
+
+        CloseableHttpResponse first = StubHttpClient.json(200, "{\"key\":\"TEST-1\"}");
+        first.addHeader("ETag", "\"v1\"");
+        first.addHeader("Last-Modified", "Sun, 18 Oct 2026 10:00:00 GMT");
+        http.enqueue(first);
+        http.enqueue(StubHttpClient.response(304, null, null, null));
+
+        JSONObject a = restclient.getMap("/rest/api/latest/issue/TEST-1");
+        JSONObject b = restclient.getMap("/rest/api/latest/issue/TEST-1");
+
+        assertTrue(a == b);
+        assertNull(http.requests.get(0).getFirstHeader("If-None-Match"));
+        assertEquals("\"v1\"", http.requests.get(1).getFirstHeader("If-None-Match").getValue());
+        assertEquals("Sun, 18 Oct 2026 10:00:00 GMT",
+            http.requests.get(1).getFirstHeader("If-Modified-Since").getValue());
+        assertEquals(1, cache.getNotModifiedCount());
+    }
+
+    @Test
+    public void testChangedResourceReplacesStoredBody() throws Exception {
+        ConditionalCache cache = new ConditionalCache(16);
+        restclient.setConditionalCache(cache);
+
+        CloseableHttpResponse first = StubHttpClient.json(200, "{\"v\":1}");
+        first.addHeader("ETag", "\"v1\"");
+        CloseableHttpResponse second = StubHttpClient.json(200, "{\"v\":2}");
+        second.addHeader("ETag", "\"v2\"");
+        http.enqueue(first).enqueue(second).enqueue(StubHttpClient.response(304, null, null, null));
+
+        restclient.getMap("/rest/api/latest/priority/1");
+        assertEquals(2, restclient.getMap("/rest/api/latest/priority/1").getInt("v"));
+        assertEquals(2, restclient.getMap("/rest/api/latest/priority/1").getInt("v"));
+
+        assertEquals("\"v2\"", http.requests.get(2).getFirstHeader("If-None-Match").getValue());
+        assertEquals(1, cache.getModifiedCount());
+        assertEquals(1, cache.getNotModifiedCount());
+    }
+
+    @Test
+    public void testResponsesWithoutValidatorsAreNotStored() throws Exception {
+        ConditionalCache cache = new ConditionalCache(16);
+        restclient.setConditionalCache(cache);
+        http.enqueue(StubHttpClient.json(200, "{}"));
+
+        restclient.getMap("/rest/api/latest/myself");
+
+        assertEquals(0, cache.size());
+    }
+}
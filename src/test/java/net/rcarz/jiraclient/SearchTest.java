@@ -1,10 +1,23 @@
 package net.rcarz.jiraclient;
 
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.NameValuePair;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.Test;
 
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 import static org.junit.Assert.*;
 
 public class SearchTest {
@@ -88,4 +101,279 @@ public class SearchTest {
 
     assertTrue("ChangeLog should contain Closed entry", closedStatusFound);
   }
+
+  @Test
+  public void testPrefetchingIteratorKeepsOrder() throws Exception {
+    PagingHttpClient http = new PagingHttpClient(10);
+    RestClient restclient = new RestClient(http, URI.create("http://jira.example.com"));
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    try {
+      Issue.SearchResult searchResult = Issue.search(restclient, "project = TEST", null, null, 3, null);
+      assertEquals(10, searchResult.total);
+      assertEquals(3, searchResult.issues.size());
+
+      List<String> keys = new ArrayList<String>();
+      Iterator<Issue> iterator = searchResult.iterator(executor, 2);
+      while (iterator.hasNext()) {
+        keys.add(iterator.next().getKey());
+      }
+
+      assertEquals(10, keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        assertEquals("TEST-" + i, keys.get(i));
+      }
+      assertEquals("one request per page", 4, http.requests.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPrefetchingIteratorRejectsZeroPages() throws Exception {
+    RestClient restclient = new RestClient(new PagingHttpClient(1), URI.create("http://jira.example.com"));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      Issue.search(restclient, "project = TEST", null, null, 3, null).iterator(executor, 0);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testStreamCoversAllPages() throws Exception {
+    PagingHttpClient http = new PagingHttpClient(10);
+    RestClient restclient = new RestClient(http, URI.create("http://jira.example.com"));
+    Issue.SearchResult searchResult = Issue.search(restclient, "project = TEST", null, null, 3, null);
+
+    final List<String> keys = new ArrayList<String>();
+    searchResult.stream().forEach(issue -> keys.add(issue.getKey()));
+
+    assertEquals(10, keys.size());
+    assertEquals("TEST-0", keys.get(0));
+    assertEquals("TEST-9", keys.get(9));
+  }
+
+  @Test
+  public void testParallelStreamKeepsEncounterOrder() throws Exception {
+    PagingHttpClient http = new PagingHttpClient(25);
+    RestClient restclient = new RestClient(http, URI.create("http://jira.example.com"));
+    Issue.SearchResult searchResult = Issue.search(restclient, "project = TEST", null, null, 4, null);
+
+    List<String> keys = searchResult.stream().parallel()
+        .map(Issue::getKey)
+        .collect(Collectors.toList());
+
+    assertEquals(25, keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      assertEquals("TEST-" + i, keys.get(i));
+    }
+    assertEquals("one request per page", 7, http.requests.size());
+  }
+
+  /**
+   * Answers "key in (...)" searches; GONE-* keys do not exist and make the
+   * query invalid unless validateQuery=warn is honoured, in which case they
+   * are dropped with a warning. MOVED-n is answered with the issue's
+   * current key NEW-n and id 2000n.
+   */
+  static class KeyHttpClient extends StubHttpClient {
+    boolean honoursValidateQuery = true;
+
+    @Override
+    protected CloseableHttpResponse respond(HttpRequest req) {
+      String jql = null;
+      int startAt = 0;
+      int maxResults = 50;
+      boolean warn = false;
+      for (NameValuePair p : new URIBuilder(((HttpUriRequest) req).getURI()).getQueryParams()) {
+        if (p.getName().equals("jql")) jql = p.getValue();
+        if (p.getName().equals("startAt")) startAt = Integer.parseInt(p.getValue());
+        if (p.getName().equals("maxResults")) maxResults = Integer.parseInt(p.getValue());
+        if (p.getName().equals("validateQuery")) warn = honoursValidateQuery && p.getValue().equals("warn");
+      }
+
+      List<String> keys = new ArrayList<String>();
+      JSONArray warnings = new JSONArray();
+      for (String k : jql.substring(jql.indexOf('(') + 1, jql.lastIndexOf(')')).split(",")) {
+        String key = k.replace("\"", "");
+        if (key.startsWith("GONE")) {
+          if (!warn) return json(400, "{\"errorMessages\":[\"no such issue\"]}");
+          warnings.put("An issue with key '" + key + "' does not exist for field 'key'.");
+          continue;
+        }
+        keys.add(key);
+      }
+
+      /* mimic a server that caps pages at 40 results */
+      maxResults = Math.min(maxResults, 40);
+      JSONArray issues = new JSONArray();
+      for (int i = startAt; i < Math.min(keys.size(), startAt + maxResults); i++) {
+        String key = keys.get(i);
+        String id = "1" + key.substring(key.indexOf('-') + 1);
+        if (key.startsWith("MOVED-")) {
+          id = "2000" + key.substring(6);
+          key = "NEW-" + key.substring(6);
+        } else if (key.startsWith("2000")) {
+          key = "NEW-" + key.substring(4);
+          id = keys.get(i);
+        }
+        issues.put(new JSONObject().put("id", id).put("key", key)
+            .put("fields", new JSONObject().put("summary", key)));
+      }
+
+      return json(200, new JSONObject().put("startAt", startAt).put("maxResults", maxResults)
+          .put("total", keys.size()).put("issues", issues).put("warningMessages", warnings).toString());
+    }
+  }
+
+  /**
+   * Serves a fixed number of synthetic issues honouring startAt and maxResults.
+   */
+  static class PagingHttpClient extends StubHttpClient {
+    private final int total;
+
+    PagingHttpClient(int total) {
+      this.total = total;
+    }
+
+    @Override
+    protected CloseableHttpResponse respond(HttpRequest req) {
+      int startAt = 0;
+      int maxResults = 50;
+      for (NameValuePair p : new URIBuilder(((HttpUriRequest) req).getURI()).getQueryParams()) {
+        if (p.getName().equals("startAt")) startAt = Integer.parseInt(p.getValue());
+        if (p.getName().equals("maxResults")) maxResults = Integer.parseInt(p.getValue());
+      }
+
+      JSONArray issues = new JSONArray();
+      for (int i = startAt; i < Math.min(total, startAt + maxResults); i++) {
+        JSONObject issue = new JSONObject();
+        issue.put("id", String.valueOf(10000 + i));
+        issue.put("key", "TEST-" + i);
+        issue.put("fields", new JSONObject().put("summary", "issue " + i));
+        issues.put(issue);
+      }
+
+      JSONObject page = new JSONObject();
+      page.put("startAt", startAt);
+      page.put("maxResults", maxResults);
+      page.put("total", total);
+      page.put("issues", issues);
+      return json(200, page.toString());
+    }
+  }
+
+  @Test
+  public void testGetIssuesKeepsRequestOrderAndReportsMissing() throws Exception {
+    KeyHttpClient http = new KeyHttpClient();
+    JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+
+    List<String> keys = new ArrayList<String>();
+    for (int i = 250; i > 0; i--) keys.add("TEST-" + i);
+    keys.add(3, "GONE-1");
+    keys.add("test-7");
+    keys.add("gone-2");
+
+    Issue.KeyFetchResult result = jira.getIssues(keys, "summary", null);
+
+    assertEquals(250, result.issues.size());
+    assertEquals("TEST-250", result.issues.get(0).getKey());
+    assertEquals("TEST-1", result.issues.get(249).getKey());
+    assertEquals(Arrays.asList("GONE-1", "gone-2"), result.missing);
+    /* three chunks of up to 100 keys, paged by 40 */
+    assertEquals("missing keys cost no extra searches", 3 + 3 + 2, http.requests.size());
+  }
+
+  @Test
+  public void testGetIssuesBisectsWhenValidateQueryIsIgnored() throws Exception {
+    KeyHttpClient http = new KeyHttpClient();
+    http.honoursValidateQuery = false;
+    JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+
+    Issue.KeyFetchResult result = jira.getIssues(
+        Arrays.asList("TEST-1", "GONE-1", "TEST-2", "TEST-3"), "summary", null);
+
+    assertEquals(Arrays.asList("TEST-1", "TEST-2", "TEST-3"), keysOf(result.issues));
+    assertEquals(Arrays.asList("GONE-1"), result.missing);
+  }
+
+  @Test
+  public void testGetIssuesDoesNotSearchMalformedKeys() throws Exception {
+    KeyHttpClient http = new KeyHttpClient();
+    JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+    String injected = "TEST-2\") OR key in (\"TEST-3";
+
+    Issue.KeyFetchResult result = jira.getIssues(
+        Arrays.asList("TEST-1", injected, "x\\y"), "summary", null);
+
+    assertEquals(Arrays.asList("TEST-1"), keysOf(result.issues));
+    assertEquals(Arrays.asList(injected, "x\\y"), result.missing);
+    assertEquals(1, http.requests.size());
+    assertTrue(http.requests.get(0).getRequestLine().getUri().contains("TEST-1"));
+    assertFalse(http.requests.get(0).getRequestLine().getUri().contains("TEST-2"));
+  }
+
+  @Test
+  public void testGetIssuesMatchesMovedIssues() throws Exception {
+    KeyHttpClient http = new KeyHttpClient();
+    JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+
+    Issue.KeyFetchResult one = jira.getIssues(Arrays.asList("TEST-1", "moved-1"), "summary", null);
+
+    assertEquals(Arrays.asList("TEST-1", "NEW-1"), keysOf(one.issues));
+    assertTrue(one.missing.isEmpty());
+    assertEquals("one alias is paired without another search", 1, http.requests.size());
+
+    Issue.KeyFetchResult two = jira.getIssues(
+        Arrays.asList("MOVED-2", "TEST-5", "moved-3", "GONE-1", "20002"), "summary", null);
+
+    assertEquals(Arrays.asList("NEW-2", "TEST-5", "NEW-3"), keysOf(two.issues));
+    assertEquals(Arrays.asList("GONE-1"), two.missing);
+  }
+
+  @Test
+  public void testGetIssuesCompletesOnSaturatedExecutor() throws Exception {
+    RestClient restclient = new RestClient(new KeyHttpClient(), URI.create("http://jira.example.com"));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    final CountDownLatch release = new CountDownLatch(1);
+
+    try {
+      executor.submit(() -> { release.await(); return null; });
+
+      List<String> keys = new ArrayList<String>();
+      for (int i = 1; i <= 250; i++) keys.add("TEST-" + i);
+
+      Issue.KeyFetchResult result = Issue.getAll(restclient, keys, "summary", null, executor, 4);
+
+      assertEquals(250, result.issues.size());
+      assertTrue(result.missing.isEmpty());
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  private static List<String> keysOf(List<Issue> issues) {
+    List<String> keys = new ArrayList<String>();
+    for (Issue issue : issues) keys.add(issue.getKey());
+    return keys;
+  }
+
+  @Test
+  public void testChunkKeysRespectsLimits() {
+    List<String> keys = new ArrayList<String>();
+    for (int i = 0; i < 450; i++) keys.add("PROJECTNAME-" + (100000 + i));
+
+    List<List<String>> chunks = Issue.chunkKeys(keys);
+
+    int count = 0;
+    for (List<String> chunk : chunks) {
+      assertTrue(chunk.size() <= Issue.MAX_KEYS_PER_CHUNK);
+      assertTrue(chunk.size() * ("PROJECTNAME-100000".length() + 3) <= Issue.MAX_KEY_JQL_LENGTH);
+      count += chunk.size();
+    }
+    assertEquals(450, count);
+  }
 }
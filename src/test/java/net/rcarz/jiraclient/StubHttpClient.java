@@ -0,0 +1,95 @@
+package net.rcarz.jiraclient;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * An in-memory HTTP client that replays canned responses and records the
+ * requests it was asked to execute.
+ */
+public class StubHttpClient extends CloseableHttpClient {
+
+    public final List<HttpRequest> requests =
+        Collections.synchronizedList(new ArrayList<HttpRequest>());
+    private final LinkedList<CloseableHttpResponse> queue = new LinkedList<CloseableHttpResponse>();
+
+    public static CloseableHttpResponse response(int status, String body, String contentType,
+                                                 Charset charset) {
+        StubResponse resp = new StubResponse(status);
+
+        if (body != null) {
+            ByteArrayEntity ent = new ByteArrayEntity(body.getBytes(charset));
+            ent.setContentType(contentType);
+            resp.setEntity(ent);
+        }
+
+        return resp;
+    }
+
+    public static CloseableHttpResponse json(int status, String body) {
+        return response(status, body, "application/json;charset=UTF-8", Charset.forName("UTF-8"));
+    }
+
+    public synchronized StubHttpClient enqueue(CloseableHttpResponse resp) {
+        queue.add(resp);
+        return this;
+    }
+
+    /**
+     * Produces the response for the given request. Override to route by URI.
+     */
+    protected synchronized CloseableHttpResponse respond(HttpRequest req) throws IOException {
+        if (queue.isEmpty())
+            throw new IOException("No response queued for " + req.getRequestLine());
+
+        return queue.removeFirst();
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request,
+                                              HttpContext context) throws IOException {
+        requests.add(request);
+        return respond(request);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public HttpParams getParams() {
+        return new BasicHttpParams();
+    }
+
+    @Override
+    public ClientConnectionManager getConnectionManager() {
+        return null;
+    }
+
+    private static class StubResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        StubResponse(int status) {
+            super(HttpVersion.HTTP_1_1, status, "Status " + status);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -8,8 +8,16 @@ import org.junit.Test;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.json.JSONArray;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
@@ -139,4 +147,156 @@ public class TransitionTest {
         return  jsonObject;
     }
 
+
+    /** Serves a search page, one transition list and transition POSTs. */
+    static class WorkflowHttpClient extends StubHttpClient {
+        final AtomicInteger transitionLookups = new AtomicInteger();
+        final AtomicInteger posts = new AtomicInteger();
+        volatile String rejectKey = null;
+        volatile String invalidKey = null;
+        volatile String extraKey = null;
+
+        @Override
+        protected CloseableHttpResponse respond(HttpRequest req) {
+            String path = ((HttpUriRequest) req).getURI().getPath();
+
+            if (path.endsWith("/search")) {
+                boolean first = !((HttpUriRequest) req).getURI().getQuery().contains("startAt=3");
+                JSONArray issues = new JSONArray();
+                for (int i = 1; first && i <= 3; i++)
+                    issues.put(issueJson("TEST-" + i));
+                return json(200, new JSONObject().put("startAt", first ? 0 : 3).put("maxResults", 50)
+                    .put("total", 3).put("issues", issues).toString());
+            }
+
+            if (req.getRequestLine().getMethod().equals("GET")) {
+                transitionLookups.incrementAndGet();
+                JSONArray transitions = new JSONArray();
+                if (!rejected(path))
+                    transitions.put(getTestJson());
+                if (extraKey != null && path.contains(extraKey))
+                    transitions.put(new JSONObject().put("id", "31").put("name", "Reopen"));
+                return json(200, new JSONObject().put("transitions", transitions).toString());
+            }
+
+            posts.incrementAndGet();
+            if (rejected(path))
+                return json(400, "{\"errorMessages\":[\"not allowed\"]}");
+            if (invalidKey != null && path.contains(invalidKey))
+                return json(400, "{\"errorMessages\":[],\"errors\":{\"resolution\":\"invalid\"}}");
+
+            return response(204, null, null, null);
+        }
+
+        private boolean rejected(String path) {
+            return rejectKey != null && path.contains(rejectKey);
+        }
+    }
+
+    static JSONObject issueJson(String key) {
+        return new JSONObject().put("id", key).put("key", key).put("fields", new JSONObject()
+            .put("project", new JSONObject().put("id", "1").put("key", "TEST"))
+            .put("issuetype", new JSONObject().put("id", "1").put("name", "Bug"))
+            .put("status", new JSONObject().put("id", "3").put("name", "In Review")));
+    }
+
+    @Test
+    public void testTransitionAllLooksUpTransitionsOnce() throws Exception {
+        WorkflowHttpClient http = new WorkflowHttpClient();
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+
+        BulkTransition.Report report = jira.transitionAll("status = 'In Review'", "Done",
+            Collections.<String, Object>singletonMap("resolution", "Done"));
+
+        assertEquals(3, report.getIssueCount());
+        assertEquals(3, report.getTransitionedCount());
+        assertEquals(1, report.getTransitionRequestCount());
+        assertEquals(2, report.getCacheHitCount());
+        assertTrue(report.getFailures().isEmpty());
+        assertEquals(1, http.transitionLookups.get());
+        assertEquals(3, http.posts.get());
+    }
+
+    @Test
+    public void testValidationFailureIsNotRetried() throws Exception {
+        WorkflowHttpClient http = new WorkflowHttpClient();
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+        MetadataCache cache = new MetadataCache(1, TimeUnit.HOURS);
+        jira.setMetadataCache(cache);
+        http.invalidKey = "TEST-1";
+
+        try {
+            new Issue(jira.getRestClient(), issueJson("TEST-1")).transition().execute("Done");
+            Assert.fail("expected JiraException");
+        } catch (JiraException ex) {
+            assertEquals("Failed to transition issue TEST-1", ex.getMessage());
+        }
+
+        assertEquals(1, cache.size());
+        assertEquals(2, http.transitionLookups.get());
+        assertEquals(1, http.posts.get());
+    }
+
+    @Test
+    public void testMissingCachedTransitionFallsBackToIssue() throws Exception {
+        WorkflowHttpClient http = new WorkflowHttpClient();
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+        MetadataCache cache = new MetadataCache(1, TimeUnit.HOURS);
+        jira.setMetadataCache(cache);
+        http.rejectKey = "TEST-1";
+
+        /* a condition hides "Done" for TEST-1, whose list is cached first */
+        new Issue(jira.getRestClient(), issueJson("TEST-1")).transition();
+        new Issue(jira.getRestClient(), issueJson("TEST-2")).transition().execute("Done");
+
+        assertEquals(0, cache.size());
+        assertEquals(2, http.transitionLookups.get());
+        assertEquals(1, http.posts.get());
+    }
+
+    @Test
+    public void testIssueSpecificTransitionsKeepCache() throws Exception {
+        WorkflowHttpClient http = new WorkflowHttpClient();
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+        MetadataCache cache = new MetadataCache(1, TimeUnit.HOURS);
+        jira.setMetadataCache(cache);
+        http.extraKey = "TEST-2";
+        http.invalidKey = "TEST-2";
+
+        new Issue(jira.getRestClient(), issueJson("TEST-1")).transition().execute("Done");
+
+        try {
+            new Issue(jira.getRestClient(), issueJson("TEST-2")).transition().execute("Done");
+            Assert.fail("expected JiraException");
+        } catch (JiraException ex) {
+            assertEquals("Failed to transition issue TEST-2", ex.getMessage());
+        }
+
+        assertEquals(1, cache.size());
+        assertEquals(2, http.transitionLookups.get());
+        assertEquals(2, http.posts.get());
+    }
+
+    @Test
+    public void testRejectedCachedTransitionIsValidated() throws Exception {
+        WorkflowHttpClient http = new WorkflowHttpClient();
+        JiraClient jira = new JiraClient(http, "http://jira.example.com", null);
+        MetadataCache cache = new MetadataCache(1, TimeUnit.HOURS);
+        jira.setMetadataCache(cache);
+        http.rejectKey = "TEST-2";
+
+        new Issue(jira.getRestClient(), issueJson("TEST-1")).transition().execute("Done");
+        assertEquals(1, cache.size());
+
+        try {
+            new Issue(jira.getRestClient(), issueJson("TEST-2")).transition().execute("Done");
+            Assert.fail("expected JiraException");
+        } catch (JiraException ex) {
+            assertTrue(ex.getMessage().contains("not available"));
+        }
+
+        assertEquals(0, cache.size());
+        assertEquals(2, http.transitionLookups.get());
+        assertEquals(2, http.posts.get());
+    }
 }
@@ -0,0 +1,165 @@
+package net.rcarz.jiraclient.agile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.RestClient;
+import net.rcarz.jiraclient.StubHttpClient;
+import org.apache.http.HttpRequest;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class AgileResultSetTest {
+
+    /**
+     * Serves a sprint with 230 issues in pages of at most 50 and a board
+     * list of 120 boards that only reports isLast.
+     */
+    private static class PagingHttpClient extends StubHttpClient {
+        final List<String> queries = new ArrayList<String>();
+
+        @Override
+        protected CloseableHttpResponse respond(HttpRequest req) throws IOException {
+            URI uri = URI.create(req.getRequestLine().getUri());
+            int startAt = 0;
+            int max = 50;
+
+            synchronized (queries) {
+                queries.add(uri.getRawQuery());
+            }
+
+            for (NameValuePair p : URLEncodedUtils.parse(uri, "UTF-8")) {
+                if (p.getName().equals("startAt"))
+                    startAt = Integer.parseInt(p.getValue());
+                if (p.getName().equals("maxResults"))
+                    max = Math.min(50, Integer.parseInt(p.getValue()));
+            }
+
+            if (uri.getPath().endsWith("/sprint/7/issue"))
+                return json(200, page("issues", startAt, max, 230, false).toString());
+            if (uri.getPath().endsWith("/board"))
+                return json(200, page("values", startAt, max, 120, true).toString());
+
+            return json(404, "{\"errorMessages\":[\"Not found\"]}");
+        }
+
+        private static JSONObject page(String listName, int startAt, int max, int total, boolean isLast) {
+            JSONArray values = new JSONArray();
+            for (int i = startAt; i < Math.min(total, startAt + max); i++)
+                values.put(new JSONObject()
+                    .put("id", i + 1)
+                    .put("key", "TEST-" + (i + 1))
+                    .put("name", "Item " + (i + 1))
+                    .put("self", "http://jira.example.com/rest/agile/1.0/x/" + (i + 1)));
+
+            JSONObject page = new JSONObject()
+                .put("startAt", startAt)
+                .put("maxResults", max)
+                .put(listName, values);
+
+            if (isLast)
+                page.put("isLast", startAt + max >= total);
+            else
+                page.put("total", total);
+
+            return page;
+        }
+    }
+
+    private final PagingHttpClient http = new PagingHttpClient();
+    private final RestClient restclient = new RestClient(http, URI.create("http://jira.example.com"));
+
+    private Sprint sprint() throws JiraException {
+        return new Sprint(restclient, new JSONObject().put("id", 7).put("name", "Sprint 7"));
+    }
+
+    @Test
+    public void testListFollowsTotal() throws Exception {
+        List<Issue> issues = sprint().getIssues();
+
+        assertEquals(230, issues.size());
+        assertEquals("TEST-1", issues.get(0).getKey());
+        assertEquals("TEST-230", issues.get(229).getKey());
+        assertEquals(5, http.queries.size());
+    }
+
+    @Test
+    public void testListFollowsIsLast() throws Exception {
+        List<Board> boards = Board.getAll(restclient);
+
+        assertEquals(120, boards.size());
+        assertEquals(120, boards.get(119).getId());
+        assertEquals(3, http.queries.size());
+    }
+
+    @Test
+    public void testIteratesLazilyWithFilters() throws Exception {
+        Iterator<Issue> it = sprint().iterateIssues()
+            .jql("status = Done")
+            .fields("summary,status")
+            .pageSize(20)
+            .iterator();
+
+        assertTrue(http.queries.isEmpty());
+        assertEquals("TEST-1", it.next().getKey());
+        assertEquals(1, http.queries.size());
+        assertTrue(http.queries.get(0).contains("jql=status+%3D+Done") ||
+                   http.queries.get(0).contains("jql=status%20%3D%20Done"));
+        assertTrue(http.queries.get(0).contains("fields=summary%2Cstatus"));
+        assertTrue(http.queries.get(0).contains("maxResults=20"));
+
+        int count = 1;
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+
+        assertEquals(230, count);
+        assertEquals(12, http.queries.size());
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testFetchesPagesConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Issue> issues = sprint().iterateIssues().toList(executor, 3);
+
+            assertEquals(230, issues.size());
+            for (int i = 0; i < issues.size(); i++)
+                assertEquals("TEST-" + (i + 1), issues.get(i).getKey());
+            assertEquals(5, http.queries.size());
+
+            /* without a total the pages are read one after another */
+            assertEquals(120, Board.iterateAll(restclient).toList(executor, 3).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailureIsReported() throws Exception {
+        try {
+            new Sprint(restclient, new JSONObject().put("id", 8)).getIssues();
+            fail("expected JiraException");
+        } catch (JiraException ex) {
+            assertEquals("Failed to retrieve a list of Issue : /rest/agile/1.0/sprint/8/issue", ex.getMessage());
+        }
+    }
+}